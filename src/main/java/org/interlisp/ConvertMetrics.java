@@ -0,0 +1,42 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.interlisp.tools.MetricsConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * Convert a directory of s-expression metrics files to binary metrics files.
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ */
+public class ConvertMetrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConvertMetrics.class);
+
+    private static class Args {
+        @Parameter(names = {"-d", "--dir"}, required = true)
+        private File dir;
+        @Parameter(names = {"-o", "--out"}, required = true)
+        private File outDir;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final long start = System.currentTimeMillis();
+
+        final Args programArgs = new Args();
+        JCommander.newBuilder().addObject(programArgs).build().parse(args);
+
+        final int fonts = new MetricsConverter().toBinary(programArgs.dir.toPath(), programArgs.outDir.toPath());
+        LOG.info("Converted {} fonts to {} in {} ms", fonts, programArgs.outDir, System.currentTimeMillis() - start);
+    }
+}
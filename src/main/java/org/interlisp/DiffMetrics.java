@@ -0,0 +1,61 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.interlisp.tools.MetricsDiff;
+import org.interlisp.unicode.XccsToUnicode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/*
+ * Show how two directories of metrics files differ, e.g., before and after the fonts are updated.
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ */
+public class DiffMetrics {
+
+    private static final File RESOURCES = new File("src/main/resources");
+
+    private static class Args {
+        @Parameter(names = {"--old"}, required = true)
+        private File oldDir;
+        @Parameter(names = {"--new"}, required = true)
+        private File newDir;
+        @Parameter(names = {"-o", "--out"})
+        private File reportFile;
+        @Parameter(names = {"--top"})
+        private int top = 20;
+    }
+
+    static {
+        XccsToUnicode.init(new File(RESOURCES, "data"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        final Args programArgs = new Args();
+        JCommander.newBuilder().addObject(programArgs).build().parse(args);
+
+        final MetricsDiff.Result result = new MetricsDiff(XccsToUnicode.getInstance())
+                .diff(programArgs.oldDir.toPath(), programArgs.newDir.toPath());
+
+        // don't close it: that would close System.out
+        final PrintWriter out = new PrintWriter(System.out);
+        result.writeSummary(out, programArgs.top);
+        out.flush();
+        if (programArgs.reportFile != null) {
+            try (final PrintWriter writer = new PrintWriter(programArgs.reportFile)) {
+                result.writeReport(writer);
+            }
+        }
+        if (result.count(MetricsDiff.Status.SAME) != result.files().size()) {
+            System.exit(1);
+        }
+    }
+}
@@ -7,8 +7,11 @@ package org.interlisp;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
-import org.interlisp.graphics.FallbackFontStack;
+import org.interlisp.graphics.FontCache;
+import org.interlisp.graphics.FontRegistry;
 import org.interlisp.graphics.FontStack;
+import org.interlisp.graphics.LocalFontSource;
+import org.interlisp.graphics.WebFontDownloader;
 import org.interlisp.unicode.XccsToUnicode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,12 +22,12 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URISyntaxException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.stream.Collectors;
 
 import static java.lang.String.format;
-import static org.interlisp.graphics.FontUtils.f;
 
 /*
  * Download Web fonts and see how well they cover the XCCS character set.
@@ -38,6 +41,20 @@ public class FontCoverage {
         private File outputFile;
         @Parameter(names = {"-m", "--missingOnly"}, arity = 0)
         boolean onlyShowMissing;
+        @Parameter(names = {"-c", "--cache"})
+        private File cacheDir = FontCache.DEFAULT_DIR;
+        @Parameter(names = {"--cacheMegabytes"})
+        private long cacheMegabytes = FontCache.DEFAULT_MAX_BYTES / (1024 * 1024);
+        @Parameter(names = {"--offline"}, arity = 0)
+        private boolean offline;
+        @Parameter(names = {"--revalidate"}, arity = 0)
+        private boolean revalidate;
+        @Parameter(names = {"--downloads"})
+        private int concurrentDownloads = WebFontDownloader.DEFAULT_CONCURRENCY;
+        @Parameter(names = {"--fontDir"})
+        private File fontDir;
+        @Parameter(names = {"--lazy"}, arity = 0)
+        private boolean lazy;
     }
 
     private static final File RESOURCES = new File("src/main/resources");
@@ -54,31 +71,31 @@ public class FontCoverage {
         final Args programArgs = new Args();
         JCommander.newBuilder().addObject(programArgs).build().parse(args);
 
-        final FontStack notoSans = new FontStack("Noto Sans", "Noto Sans",
-                "Noto Sans Simplified Chinese", "Noto Sans Traditional Chinese", "Noto Sans JP", "Noto Sans KR",
-                "Noto Sans Arabic", "Noto Sans Hebrew", "Noto Sans Runic",
-                "Noto Sans Georgian", "Noto Sans Armenian", "Noto Sans Thai", "Noto Sans Lao",
-                "Noto Sans Gurmukhi", "Noto Sans Bengali",
-                "Noto Sans Math", "Noto Sans Symbols", "Noto Sans Symbols 2");
-        final FontStack notoSansMono = new FallbackFontStack(notoSans, "Noto Sans Mono", "Noto Sans Mono");
-        final FontStack notoSansDisplay = new FallbackFontStack(notoSans, "Noto Sans Display", "Noto Sans Display");
-        final FontStack notoSerif = new FontStack("Noto Serif", "Noto Serif",
-                "Noto Serif Simplified Chinese", "Noto Serif Traditional Chinese", "Noto Serif JP", "Noto Serif KR",
-                "Noto Naskh Arabic", "Noto Serif Hebrew", f("Noto Sans Runic"),
-                "Noto Serif Georgian", "Noto Serif Armenian", "Noto Serif Thai", "Noto Serif Lao",
-                "Noto Serif Devanagari",
-                "Noto Serif Gurmukhi", "Noto Serif Bengali",
-                f("Noto Sans Math"), f("Noto Sans Symbols"), f("Noto Sans Symbols 2"));
+        final FontCache.Mode cacheMode;
+        if (programArgs.offline) {
+            cacheMode = FontCache.Mode.OFFLINE;
+        } else if (programArgs.revalidate) {
+            cacheMode = FontCache.Mode.REVALIDATE;
+        } else {
+            cacheMode = FontCache.Mode.CACHE_FIRST;
+        }
+        FontCache.init(programArgs.cacheDir, programArgs.cacheMegabytes * 1024 * 1024, cacheMode);
+        WebFontDownloader.setDefaultConcurrency(programArgs.concurrentDownloads);
+
+        // fetch every stack's members at once (or, if lazy, as the stacks need them), so fonts shared between stacks
+        // are loaded once
+        final FontRegistry registry = programArgs.fontDir == null ? FontRegistry.getInstance() :
+                FontRegistry.getInstance(new LocalFontSource(programArgs.fontDir));
+        final List<FontStack> stacks = NotoStacks.create(registry, programArgs.lazy);
 
 
         final FontCoverage fontCoverage = new FontCoverage();
         final boolean onlyShowMissing = programArgs.onlyShowMissing;
 
         try (final PrintWriter writer = (programArgs.outputFile == null ? new PrintWriter(System.out) : new PrintWriter(programArgs.outputFile))) {
-            fontCoverage.showCoverage(writer, notoSans, onlyShowMissing);
-            fontCoverage.showCoverage(writer, notoSansMono, onlyShowMissing);
-            fontCoverage.showCoverage(writer, notoSansDisplay, onlyShowMissing);
-            fontCoverage.showCoverage(writer, notoSerif, onlyShowMissing);
+            for (FontStack stack : stacks) {
+                fontCoverage.showCoverage(writer, stack, onlyShowMissing);
+            }
         }
     }
 
@@ -2,9 +2,18 @@ package org.interlisp;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
-import org.interlisp.graphics.FallbackFontStack;
+import com.beust.jcommander.ParameterException;
+import org.interlisp.graphics.DerivedFontPool;
+import org.interlisp.graphics.FontCache;
+import org.interlisp.graphics.FontRegistry;
 import org.interlisp.graphics.FontStack;
+import org.interlisp.graphics.LocalFontSource;
+import org.interlisp.graphics.WebFontDownloader;
+import org.interlisp.tools.CharsetTableStore;
+import org.interlisp.tools.DirectorySink;
+import org.interlisp.tools.MetricsPipeline;
 import org.interlisp.tools.MetricsProcessor;
+import org.interlisp.tools.MetricsSink;
 import org.interlisp.unicode.XccsToUnicode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,11 +21,11 @@ import org.slf4j.LoggerFactory;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.lang.invoke.MethodHandles;
 import java.net.URISyntaxException;
 import java.util.List;
-
-import static org.interlisp.graphics.FontUtils.f;
+import java.util.concurrent.Callable;
 
 /*
  * Download Web fonts and write their metrics to files suitable for use by Medley Interlisp's
@@ -37,9 +46,40 @@ public class Main {
      */
     private static final int FONT_SCALE = 100;
 
+    /**
+     * The <tt>--archive</tt> that means standard output.
+     */
+    private static final String STDOUT = "-";
+
     private static class Args {
-        @Parameter(names = {"-d", "--dir"}, required = true)
+        @Parameter(names = {"-d", "--dir"})
         private File dir;
+        @Parameter(names = {"--archive"})
+        private String archive;
+        @Parameter(names = {"--archiveFormat"})
+        private MetricsSink.Format archiveFormat;
+        @Parameter(names = {"-c", "--cache"})
+        private File cacheDir = FontCache.DEFAULT_DIR;
+        @Parameter(names = {"--cacheMegabytes"})
+        private long cacheMegabytes = FontCache.DEFAULT_MAX_BYTES / (1024 * 1024);
+        @Parameter(names = {"--offline"}, arity = 0)
+        private boolean offline;
+        @Parameter(names = {"--revalidate"}, arity = 0)
+        private boolean revalidate;
+        @Parameter(names = {"--downloads"})
+        private int concurrentDownloads = WebFontDownloader.DEFAULT_CONCURRENCY;
+        @Parameter(names = {"--fontDir"})
+        private File fontDir;
+        @Parameter(names = {"--lazy"}, arity = 0)
+        private boolean lazy;
+        @Parameter(names = {"--pipeline"}, arity = 0)
+        private boolean pipeline;
+        @Parameter(names = {"--layout"})
+        private MetricsProcessor.Layout layout = MetricsProcessor.Layout.FILES;
+        @Parameter(names = {"--parallel"}, arity = 0)
+        private boolean parallel;
+        @Parameter(names = {"--fontPoolMegabytes"})
+        private long fontPoolMegabytes = DerivedFontPool.DEFAULT_BUDGET_BYTES / (1024 * 1024);
     }
 
     static {
@@ -51,33 +91,105 @@ public class Main {
 
         final Args programArgs = new Args();
         JCommander.newBuilder().addObject(programArgs).build().parse(args);
+        if ((programArgs.dir == null) == (programArgs.archive == null)) {
+            throw new ParameterException("Give exactly one of --dir and --archive");
+        }
+        // when we write the archive to standard output, log to standard error
+        final PrintStream stdout = System.out;
+        if (STDOUT.equals(programArgs.archive)) {
+            System.setOut(System.err);
+        }
 
-        final FontStack notoSans = new FontStack("Noto Sans", "Noto Sans",
-                "Noto Sans Simplified Chinese", "Noto Sans Traditional Chinese", "Noto Sans JP", "Noto Sans KR",
-                "Noto Sans Arabic", "Noto Sans Hebrew", "Noto Sans Runic",
-                "Noto Sans Georgian", "Noto Sans Armenian", "Noto Sans Thai", "Noto Sans Lao",
-                "Noto Sans Gurmukhi", "Noto Sans Bengali",
-                "Noto Sans Math", "Noto Sans Symbols", "Noto Sans Symbols 2");
-        final FontStack notoSansMono = new FallbackFontStack(notoSans, "Noto Sans Mono", "Noto Sans Mono");
-        final FontStack notoSansDisplay = new FallbackFontStack(notoSans, "Noto Sans Display", "Noto Sans Display");
-        final FontStack notoSerif = new FontStack("Noto Serif", "Noto Serif",
-                "Noto Serif Simplified Chinese", "Noto Serif Traditional Chinese", "Noto Serif JP", "Noto Serif KR",
-                "Noto Naskh Arabic", "Noto Serif Hebrew", f("Noto Sans Runic"),
-                "Noto Serif Georgian", "Noto Serif Armenian", "Noto Serif Thai", "Noto Serif Lao",
-                "Noto Serif Devanagari",
-                "Noto Serif Gurmukhi", "Noto Serif Bengali",
-                f("Noto Sans Math"), f("Noto Sans Symbols"), f("Noto Sans Symbols 2"));
-
-        programArgs.dir.mkdirs();
-        LOG.info("Will write to {}", programArgs.dir);
-
-        for (FontStack stack : List.of(notoSans, notoSansMono, notoSansDisplay, notoSerif)) {
-            new MetricsProcessor(programArgs.dir, stack, FONT_SCALE, FONT_SIZES).writeStackMetrics();
+        final FontCache.Mode cacheMode;
+        if (programArgs.offline) {
+            cacheMode = FontCache.Mode.OFFLINE;
+        } else if (programArgs.revalidate) {
+            cacheMode = FontCache.Mode.REVALIDATE;
+        } else {
+            cacheMode = FontCache.Mode.CACHE_FIRST;
         }
+        FontCache.init(programArgs.cacheDir, programArgs.cacheMegabytes * 1024 * 1024, cacheMode);
+        WebFontDownloader.setDefaultConcurrency(programArgs.concurrentDownloads);
+        DerivedFontPool.init(programArgs.fontPoolMegabytes * 1024 * 1024);
+
+        final FontRegistry registry = programArgs.fontDir == null ? FontRegistry.getInstance() :
+                FontRegistry.getInstance(new LocalFontSource(programArgs.fontDir));
+
+        try (final MetricsSink sink = openSink(programArgs, stdout)) {
+            LOG.info("Will write to {}", programArgs.dir == null ? programArgs.archive : programArgs.dir);
+            writeMetrics(programArgs, registry, sink);
+        }
+
+        LOG.info("{}", DerivedFontPool.getInstance());
+        LOG.info("{}", registry.getWidthMemo());
 
         final long end = System.currentTimeMillis();
 
         LOG.info("Run finished in {} secs", (end - start) / 1000.0f);
     }
 
+    /**
+     * Open the sink the arguments call for: the directory, or the archive file or standard output.
+     *
+     * @param programArgs the arguments
+     * @param stdout      the real standard output
+     * @return the sink
+     * @throws IOException if we can't create the archive
+     */
+    private static MetricsSink openSink(Args programArgs, PrintStream stdout) throws IOException {
+        if (programArgs.dir != null) {
+            programArgs.dir.mkdirs();
+            return new DirectorySink(programArgs.dir);
+        }
+        final MetricsSink.Format format = programArgs.archiveFormat != null ? programArgs.archiveFormat :
+                MetricsSink.Format.forName(programArgs.archive);
+        return STDOUT.equals(programArgs.archive) ? MetricsSink.archive(stdout, format) :
+                MetricsSink.archive(new File(programArgs.archive), format);
+    }
+
+    /**
+     * Measure all the stacks and write their metrics.
+     *
+     * @param programArgs the arguments
+     * @param registry    where to get the fonts
+     * @param sink        where to write the metrics
+     * @throws IOException         if there's an I/O problem
+     * @throws URISyntaxException  if a font URI is malformed
+     * @throws FontFormatException if a font is unparseable
+     */
+    private static void writeMetrics(Args programArgs, FontRegistry registry, MetricsSink sink)
+            throws IOException, URISyntaxException, FontFormatException {
+        if (programArgs.pipeline) {
+            // load each stack's members as the pipeline gets to it, while it measures and writes the ones before
+            final List<Callable<FontStack>> loaders = NotoStacks.loaders(registry, programArgs.lazy).stream().
+                    map(loader -> (Callable<FontStack>)() -> {
+                        final FontStack stack = loader.call();
+                        stack.setParallel(programArgs.parallel);
+                        return stack;
+                    }).toList();
+            final MetricsPipeline pipeline = new MetricsPipeline(sink, FONT_SCALE, FONT_SIZES,
+                    MetricsPipeline.DEFAULT_QUEUE_CAPACITY);
+            pipeline.setLayout(programArgs.layout);
+            pipeline.run(loaders);
+            if (programArgs.layout == MetricsProcessor.Layout.DEDUP) {
+                LOG.info("{}", pipeline.getTableStore());
+            }
+        } else {
+            // fetch every stack's members at once (or, if lazy, as the stacks need them), so fonts shared between
+            // stacks are loaded once
+            final List<FontStack> stacks = NotoStacks.create(registry, programArgs.lazy);
+            final CharsetTableStore tableStore = new CharsetTableStore();
+            for (FontStack stack : stacks) {
+                stack.setParallel(programArgs.parallel);
+                final MetricsProcessor processor = new MetricsProcessor(sink, stack, FONT_SCALE, FONT_SIZES);
+                processor.setLayout(programArgs.layout);
+                processor.setTableStore(tableStore);
+                processor.writeStackMetrics();
+            }
+            if (programArgs.layout == MetricsProcessor.Layout.DEDUP) {
+                LOG.info("{}", tableStore);
+            }
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp;
+
+import org.interlisp.graphics.FallbackFontStack;
+import org.interlisp.graphics.FontRegistry;
+import org.interlisp.graphics.FontStack;
+
+import java.awt.*;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.interlisp.graphics.FontUtils.f;
+
+/**
+ * The four Noto-based font stacks behind our Medley font families.
+ */
+public class NotoStacks {
+
+    static final String[] NOTO_SANS_MEMBERS = {"Noto Sans",
+            "Noto Sans Simplified Chinese", "Noto Sans Traditional Chinese", "Noto Sans JP", "Noto Sans KR",
+            "Noto Sans Arabic", "Noto Sans Hebrew", "Noto Sans Runic",
+            "Noto Sans Georgian", "Noto Sans Armenian", "Noto Sans Thai", "Noto Sans Lao",
+            "Noto Sans Gurmukhi", "Noto Sans Bengali",
+            "Noto Sans Math", "Noto Sans Symbols", "Noto Sans Symbols 2"};
+
+    static final String[] NOTO_SANS_MONO_MEMBERS = {"Noto Sans Mono"};
+
+    static final String[] NOTO_SANS_DISPLAY_MEMBERS = {"Noto Sans Display"};
+
+    static final String[] NOTO_SERIF_MEMBERS = {"Noto Serif",
+            "Noto Serif Simplified Chinese", "Noto Serif Traditional Chinese", "Noto Serif JP", "Noto Serif KR",
+            "Noto Naskh Arabic", "Noto Serif Hebrew", f("Noto Sans Runic"),
+            "Noto Serif Georgian", "Noto Serif Armenian", "Noto Serif Thai", "Noto Serif Lao",
+            "Noto Serif Devanagari",
+            "Noto Serif Gurmukhi", "Noto Serif Bengali",
+            f("Noto Sans Math"), f("Noto Sans Symbols"), f("Noto Sans Symbols 2")};
+
+    /**
+     * You can't instantiate one of these.
+     */
+    private NotoStacks() {
+    }
+
+    /**
+     * Download the members of all four stacks from Google (with as few requests as we can) and build the stacks.
+     *
+     * @return the Noto Sans, Noto Sans Mono, Noto Sans Display, and Noto Serif stacks, in that order
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if a font is unparseable
+     */
+    public static List<FontStack> create() throws IOException, URISyntaxException, FontFormatException {
+        return create(FontRegistry.getInstance());
+    }
+
+    /**
+     * Load the members of all four stacks through the given registry, all at once, and build the stacks.
+     *
+     * @param registry where to get the fonts
+     * @return the Noto Sans, Noto Sans Mono, Noto Sans Display, and Noto Serif stacks, in that order
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if a font is unparseable
+     */
+    public static List<FontStack> create(FontRegistry registry) throws IOException, URISyntaxException, FontFormatException {
+        return create(registry, false);
+    }
+
+    /**
+     * Build the four stacks with members from the given registry.  If they're lazy, they load each member only when
+     * they first need it; otherwise, we load the members of all four stacks at once.
+     *
+     * @param registry where to get the fonts
+     * @param lazy     if true, build lazy stacks (see {@link FontStack#lazy})
+     * @return the Noto Sans, Noto Sans Mono, Noto Sans Display, and Noto Serif stacks, in that order
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if a font is unparseable
+     */
+    public static List<FontStack> create(FontRegistry registry, boolean lazy) throws IOException, URISyntaxException, FontFormatException {
+        if (lazy) {
+            final FontStack notoSans = FontStack.lazy(registry, "Noto Sans", NOTO_SANS_MEMBERS);
+            final FontStack notoSansMono = new FallbackFontStack(notoSans, "Noto Sans Mono", NOTO_SANS_MONO_MEMBERS);
+            final FontStack notoSansDisplay = new FallbackFontStack(notoSans, "Noto Sans Display", NOTO_SANS_DISPLAY_MEMBERS);
+            final FontStack notoSerif = FontStack.lazy(registry, "Noto Serif", NOTO_SERIF_MEMBERS);
+            return List.of(notoSans, notoSansMono, notoSansDisplay, notoSerif);
+        }
+
+        final List<String> allMembers = new ArrayList<>();
+        allMembers.addAll(List.of(NOTO_SANS_MEMBERS));
+        allMembers.addAll(List.of(NOTO_SANS_MONO_MEMBERS));
+        allMembers.addAll(List.of(NOTO_SANS_DISPLAY_MEMBERS));
+        allMembers.addAll(List.of(NOTO_SERIF_MEMBERS));
+        registry.prefetch(allMembers);
+
+        final FontStack notoSans = new FontStack(registry, "Noto Sans", NOTO_SANS_MEMBERS);
+        final FontStack notoSansMono = new FallbackFontStack(notoSans, "Noto Sans Mono", NOTO_SANS_MONO_MEMBERS);
+        final FontStack notoSansDisplay = new FallbackFontStack(notoSans, "Noto Sans Display", NOTO_SANS_DISPLAY_MEMBERS);
+        final FontStack notoSerif = new FontStack(registry, "Noto Serif", NOTO_SERIF_MEMBERS);
+        return List.of(notoSans, notoSansMono, notoSansDisplay, notoSerif);
+    }
+
+    /**
+     * Return a loader for each of the four stacks, to call in order.  Each loads just its own stack's members (with
+     * as few requests as we can), so the caller can start on one stack while the next loads.  The Noto Sans Mono and
+     * Noto Sans Display loaders use the stack the Noto Sans loader loaded.
+     *
+     * @param registry where to get the fonts
+     * @param lazy     if true, build lazy stacks (see {@link FontStack#lazy}), which load nothing up front
+     * @return the loaders of the Noto Sans, Noto Sans Mono, Noto Sans Display, and Noto Serif stacks, in that order
+     */
+    public static List<Callable<FontStack>> loaders(FontRegistry registry, boolean lazy) {
+        final AtomicReference<FontStack> notoSans = new AtomicReference<>();
+        return List.of(
+                () -> {
+                    notoSans.set(load(registry, lazy, "Noto Sans", NOTO_SANS_MEMBERS));
+                    return notoSans.get();
+                },
+                () -> loadFallback(notoSans.get(), lazy, "Noto Sans Mono", NOTO_SANS_MONO_MEMBERS),
+                () -> loadFallback(notoSans.get(), lazy, "Noto Sans Display", NOTO_SANS_DISPLAY_MEMBERS),
+                () -> load(registry, lazy, "Noto Serif", NOTO_SERIF_MEMBERS));
+    }
+
+    private static FontStack load(FontRegistry registry, boolean lazy, String familyName, String[] memberNames)
+            throws IOException, URISyntaxException, FontFormatException {
+        if (lazy) {
+            return FontStack.lazy(registry, familyName, memberNames);
+        }
+        registry.prefetch(List.of(memberNames));
+        return new FontStack(registry, familyName, memberNames);
+    }
+
+    private static FontStack loadFallback(FontStack fallback, boolean lazy, String familyName, String[] memberNames)
+            throws IOException, URISyntaxException, FontFormatException {
+        if (!lazy) {
+            fallback.getRegistry().prefetch(List.of(memberNames));
+        }
+        return new FallbackFontStack(fallback, familyName, memberNames);
+    }
+}
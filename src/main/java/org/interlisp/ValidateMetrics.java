@@ -0,0 +1,46 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.interlisp.tools.MetricsValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * Check that every metrics file in a directory reads back and writes out the same.
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ */
+public class ValidateMetrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ValidateMetrics.class);
+
+    private static class Args {
+        @Parameter(names = {"-d", "--dir"}, required = true)
+        private File dir;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final long start = System.currentTimeMillis();
+
+        final Args programArgs = new Args();
+        JCommander.newBuilder().addObject(programArgs).build().parse(args);
+
+        final MetricsValidator.Result result = new MetricsValidator().validate(programArgs.dir.toPath());
+        result.failures().forEach(LOG::error);
+        LOG.info("Checked {} charset, {} font, and {} combined metrics files ({} bytes) in {} ms: {} failed",
+                result.charsetFiles(), result.fontFiles(), result.combinedFiles(), result.bytes(),
+                System.currentTimeMillis() - start, result.failures().size());
+        if (!result.isValid()) {
+            System.exit(1);
+        }
+    }
+}
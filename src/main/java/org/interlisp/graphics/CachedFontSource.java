@@ -0,0 +1,143 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.List;
+
+/**
+ * A {@link FontSource} that serves only the Web fonts already in a {@link FontCache} directory, and never touches
+ * the network.  It's how a build machine uses a cache that was filled elsewhere.
+ * <p>
+ * The cache holds the CSS documents for whatever batches of members were fetched when it was filled, which needn't be
+ * the batches we're asked for.  So if it doesn't have the document for a batch, we look for each member in any cached
+ * document that asked for it.
+ */
+public class CachedFontSource extends WebFontSource {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final FontCache cache;
+
+    /**
+     * Serve the fonts from Google that are in the cache directory.
+     *
+     * @param cacheDir the cache directory
+     * @throws IOException if we can't read the cache's index
+     */
+    public CachedFontSource(File cacheDir) throws IOException {
+        this(cacheDir, GOOGLE_FONTS_CSS_URI);
+    }
+
+    /**
+     * Serve the fonts from the given base URI that are in the cache directory.
+     *
+     * @param cacheDir        the cache directory
+     * @param baseDownloadUri the base URI the fonts were downloaded from
+     * @throws IOException if we can't read the cache's index
+     */
+    public CachedFontSource(File cacheDir, URI baseDownloadUri) throws IOException {
+        super(baseDownloadUri);
+        cache = new FontCache(cacheDir, Long.MAX_VALUE, FontCache.Mode.OFFLINE);
+    }
+
+    @Override
+    protected FontCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Load the named members from the cached CSS documents that asked for them.
+     *
+     * @param names the member names
+     * @return the fonts for each member we found, by member name
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if a font is unparseable
+     */
+    @Override
+    public Map<String, List<Font>> load(Collection<String> names) throws IOException, URISyntaxException, FontFormatException {
+        if (names.isEmpty() || cache.lookup(computeDownloadUri(names).toString()) != null) {
+            return super.load(names);
+        }
+        final Map<String, List<String>> namesByCssUrl = new LinkedHashMap<>();
+        for (String name : names) {
+            final String cssUrl = findCssUrl(name);
+            if (cssUrl == null) {
+                log.warn("No cached CSS asked for '{}'", name);
+            } else {
+                namesByCssUrl.computeIfAbsent(cssUrl, url -> new ArrayList<>()).add(name);
+            }
+        }
+        final Map<String, List<Font>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : namesByCssUrl.entrySet()) {
+            // match the families to every name the document asked for, not just ours, so aliases pair up
+            final Map<String, List<Font>> byRequestedName = matchFamilies(requestedNames(entry.getKey()),
+                    new WebFontDownloader(entry.getKey(), cache).getFontsByFamily());
+            for (String name : entry.getValue()) {
+                byRequestedName.entrySet().stream().filter(requested -> requested.getKey().equalsIgnoreCase(name)).
+                        findFirst().ifPresentOrElse(requested -> result.put(name, requested.getValue()),
+                                () -> log.warn("Cached CSS {} has no family for '{}'", entry.getKey(), name));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the URL of a cached CSS document that asked for a member: the one that asked for it alone if we have
+     * it, otherwise any.
+     *
+     * @param name the member name
+     * @return the URL, or null if there's none
+     */
+    private String findCssUrl(String name) {
+        final String alone = computeDownloadUri(List.of(name)).toString();
+        if (cache.lookup(alone) != null) {
+            return alone;
+        }
+        for (String url : cache.urls()) {
+            if (requestedNames(url).stream().anyMatch(requested -> requested.equalsIgnoreCase(name))) {
+                return url;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the member names a CSS URL asks for.
+     *
+     * @param url the URL
+     * @return the names, in the order it asks for them; none if it isn't one of our source's URLs
+     */
+    private List<String> requestedNames(String url) {
+        final String prefix = getBaseDownloadUri() + "?";
+        if (!url.startsWith(prefix)) {
+            return List.of();
+        }
+        return Arrays.stream(url.substring(prefix.length()).split("&")).
+                filter(param -> param.startsWith("family=")).
+                map(param -> URLDecoder.decode(param.substring("family=".length()), StandardCharsets.UTF_8)).
+                toList();
+    }
+
+    @Override
+    public String toString() {
+        return "CachedFontSource{" +
+                "cacheDir=" + cache.getDir() +
+                ", baseDownloadUri=" + getBaseDownloadUri() +
+                '}';
+    }
+}
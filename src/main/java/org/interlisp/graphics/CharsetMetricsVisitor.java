@@ -0,0 +1,52 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import org.interlisp.io.font.WebCharsetMetrics;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives a {@link FontStack}'s metrics as it measures them (see {@link FontStack#visitCharsetMetrics}): each charset's
+ * as soon as it's done, in charset order, and then the line measurements of the whole font.
+ * <p>
+ * Override {@link #visitCharset(CharsetWidthMatrix)} to take each charset at all the sizes at once, or
+ * {@link #visitCharset(int, WebCharsetMetrics)} to take it a size at a time.
+ */
+public interface CharsetMetricsVisitor {
+
+    /**
+     * Receive one charset's metrics at one of the sizes.  By default, this does nothing.
+     *
+     * @param sizeIndex the position of the size in the list of requested sizes
+     * @param metrics   the charset's metrics at that size
+     * @throws IOException if we can't use them
+     */
+    default void visitCharset(int sizeIndex, WebCharsetMetrics metrics) throws IOException {
+    }
+
+    /**
+     * Receive one charset's metrics at all the sizes.  By default, this hands them to
+     * {@link #visitCharset(int, WebCharsetMetrics)} a size at a time.
+     *
+     * @param matrix the charset's metrics
+     * @throws IOException if we can't use them
+     */
+    default void visitCharset(CharsetWidthMatrix matrix) throws IOException {
+        for (int sizeIndex = 0; sizeIndex < matrix.widths().length; sizeIndex++) {
+            visitCharset(sizeIndex, matrix.forSize(sizeIndex));
+        }
+    }
+
+    /**
+     * Receive the line measurements of the font, after all its charsets.
+     *
+     * @param measurements the measurements at each size, in the order the sizes were requested
+     * @throws IOException if we can't use them
+     */
+    void visitEnd(List<FontMetricsExtractor.FontMeasurements> measurements) throws IOException;
+}
@@ -0,0 +1,33 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import org.interlisp.io.font.WebCharsetMetrics;
+
+/**
+ * The metrics of one XCCS charset, measured at several sizes at once.  Each array has one entry per size, in the order
+ * the sizes were requested; <tt>widths[sizeIndex]</tt> holds that size's character widths by rank, as in
+ * {@link WebCharsetMetrics}.
+ *
+ * @param charset    the XCCS charset
+ * @param maxAscent  the charset's maximum ascent, per size
+ * @param maxDescent the charset's maximum descent, per size
+ * @param maxHeight  the charset's maximum height, per size
+ * @param widths     the character widths, per size
+ */
+public record CharsetWidthMatrix(int charset, int[] maxAscent, int[] maxDescent, int[] maxHeight, int[][] widths) {
+
+    /**
+     * Return the metrics for one of the sizes.
+     *
+     * @param sizeIndex the position of the size in the list of requested sizes
+     * @return the metrics
+     */
+    public WebCharsetMetrics forSize(int sizeIndex) {
+        return new WebCharsetMetrics(charset, maxAscent[sizeIndex], maxDescent[sizeIndex], maxHeight[sizeIndex],
+                widths[sizeIndex]);
+    }
+}
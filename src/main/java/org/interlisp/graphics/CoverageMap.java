@@ -0,0 +1,131 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Which of a {@link FontStack}'s fonts can display each of the Unicode characters XCCS maps to.  We ask
+ * {@link Font#canDisplay} about each of those characters once per font, as the font is added, and remember the answers
+ * as a bitmap per font, plus a table of the first font that can display each character.  After that, finding the font
+ * for a mapped character is an array lookup.
+ * <p>
+ * Fonts are only ever added, in stack order.  One thread at a time may add them, while any number of others look
+ * characters up.
+ */
+public class CoverageMap {
+
+    /**
+     * In {@link #firstFont}, no font we've been given can display the character.
+     */
+    private static final short NOT_COVERED = -1;
+
+    private static final int BMP_SIZE = 0x10000;
+
+    /**
+     * The characters we keep track of: those that XCCS maps to, as a bitmap.
+     */
+    private final long[] mapped = new long[BMP_SIZE / Long.SIZE];
+
+    private final int[] mappedChars;
+
+    /**
+     * For each font, in order, the mapped characters it can display.
+     */
+    private final List<long[]> fontCoverage = new CopyOnWriteArrayList<>();
+
+    /**
+     * For each character, the index of the first font that can display it, or {@link #NOT_COVERED}.
+     */
+    private final short[] firstFont = new short[BMP_SIZE];
+
+    /**
+     * The number of fonts we've finished adding.  Readers check an index from {@link #firstFont} against this, so
+     * they never use one whose font isn't completely added.
+     */
+    private volatile int fontCount;
+
+    /**
+     * Create a map for the given characters.
+     *
+     * @param mappedChars the Unicode characters we care about, all in the Basic Multilingual Plane
+     */
+    public CoverageMap(int[] mappedChars) {
+        this.mappedChars = mappedChars.clone();
+        for (int ch : mappedChars) {
+            mapped[ch >>> 6] |= 1L << ch;
+        }
+        Arrays.fill(firstFont, NOT_COVERED);
+    }
+
+    /**
+     * Add the next font in the stack, and record which of our characters it can display.
+     *
+     * @param font the font
+     */
+    public synchronized void add(Font font) {
+        final int index = fontCoverage.size();
+        if (index > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many fonts: " + index);
+        }
+        final long[] bits = new long[BMP_SIZE / Long.SIZE];
+        for (int ch : mappedChars) {
+            if (font.canDisplay((char)ch)) {
+                bits[ch >>> 6] |= 1L << ch;
+                if (firstFont[ch] == NOT_COVERED) {
+                    firstFont[ch] = (short)index;
+                }
+            }
+        }
+        fontCoverage.add(bits);
+        fontCount = index + 1;
+    }
+
+    /**
+     * Return true if this is one of the characters we keep track of.
+     *
+     * @param ch the character
+     * @return true if we know which fonts can display it
+     */
+    public boolean isMapped(char ch) {
+        return (mapped[ch >>> 6] & (1L << ch)) != 0;
+    }
+
+    /**
+     * Return the index of the first font that can display the given mapped character.
+     *
+     * @param ch the character, which must be {@link #isMapped mapped}
+     * @return the font's index, or -1 if none of the fonts added so far can display it
+     */
+    public int firstFont(char ch) {
+        final int count = fontCount;
+        final int index = firstFont[ch];
+        return index < count ? index : NOT_COVERED;
+    }
+
+    /**
+     * Return true if the given font can display the given mapped character.
+     *
+     * @param fontIndex the font's index
+     * @param ch        the character, which must be {@link #isMapped mapped}
+     * @return true if the font can display the character
+     */
+    public boolean covers(int fontIndex, char ch) {
+        return fontIndex < fontCount && (fontCoverage.get(fontIndex)[ch >>> 6] & (1L << ch)) != 0;
+    }
+
+    /**
+     * Return the number of fonts we've added.
+     *
+     * @return the number of fonts
+     */
+    public int getFontCount() {
+        return fontCount;
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The fonts we've derived ({@link Font#deriveFont(int, float)}) from the members of our {@link FontStack}s, so a
+ * stack measuring the same style and size twice, or two stacks sharing a member, use the same derived {@link Font}
+ * (and Java's caches of its metrics) rather than making a new one each time.
+ * <p>
+ * At the sizes we measure (points times 100), each derived font can keep a lot of memory alive in those caches, so we
+ * keep the fonts we've used most recently, up to an estimated memory budget.
+ */
+public class DerivedFontPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DerivedFontPool.class);
+
+    /**
+     * By default, allow this much memory for derived fonts.
+     */
+    public static final long DEFAULT_BUDGET_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Our guess at the fixed cost of a derived font.
+     */
+    private static final long BYTES_PER_FONT = 4 * 1024;
+
+    /**
+     * Our guess at the cost of each glyph in a derived font: Java caches an advance for each glyph we measure.
+     */
+    private static final long BYTES_PER_GLYPH = 4;
+
+    private static DerivedFontPool SINGLETON = null;
+
+    private final long budgetBytes;
+
+    /**
+     * The derived fonts, least recently used first.  Guarded by <tt>this</tt>.
+     */
+    private final LinkedHashMap<Key, Font> fonts = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long estimatedBytes;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /**
+     * What we derived a font from.  We compare base fonts by identity, as {@link FontRegistry} shares them.
+     *
+     * @param base  the base font
+     * @param style the style
+     * @param size  the size
+     */
+    private record Key(Font base, int style, float size) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && other.base == base && other.style == style && other.size == size;
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(base) * 31 + style) * 31 + Float.hashCode(size);
+        }
+    }
+
+    /**
+     * Create the process-wide pool, if there isn't one yet.
+     *
+     * @param budgetBytes the most memory, by our estimate, to devote to derived fonts
+     */
+    public synchronized static void init(long budgetBytes) {
+        if (SINGLETON == null) {
+            SINGLETON = new DerivedFontPool(budgetBytes);
+        }
+    }
+
+    /**
+     * Return the process-wide pool, creating one with the default budget if nobody called {@link #init}.
+     *
+     * @return the pool
+     */
+    public synchronized static DerivedFontPool getInstance() {
+        init(DEFAULT_BUDGET_BYTES);
+        return SINGLETON;
+    }
+
+    /**
+     * Create a pool.
+     *
+     * @param budgetBytes the most memory, by our estimate, to devote to derived fonts
+     */
+    public DerivedFontPool(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Return a font derived from the given one with the given style and size, reusing one we've derived before if
+     * we can.
+     *
+     * @param base  the font to derive from
+     * @param style the style, see {@link Font#getStyle()}
+     * @param size  the size
+     * @return the derived font
+     */
+    public synchronized Font derive(Font base, int style, float size) {
+        final Key key = new Key(base, style, size);
+        Font derived = fonts.get(key);
+        if (derived != null) {
+            hits++;
+            return derived;
+        }
+        misses++;
+        //noinspection MagicConstant
+        derived = base.deriveFont(style, size);
+        fonts.put(key, derived);
+        estimatedBytes += estimateBytes(base);
+        evict();
+        return derived;
+    }
+
+    /**
+     * Discard the least recently used fonts until we're within our budget, but always keep the newest one.
+     */
+    private void evict() {
+        final Iterator<Map.Entry<Key, Font>> iterator = fonts.entrySet().iterator();
+        while (estimatedBytes > budgetBytes && fonts.size() > 1) {
+            final Map.Entry<Key, Font> eldest = iterator.next();
+            estimatedBytes -= estimateBytes(eldest.getKey().base());
+            iterator.remove();
+            evictions++;
+            LOG.debug("Evicted {}", eldest.getValue());
+        }
+    }
+
+    /**
+     * Guess how much memory a font derived from this one will hold on to.
+     *
+     * @param base the base font
+     * @return the estimate, in bytes
+     */
+    private static long estimateBytes(Font base) {
+        return BYTES_PER_FONT + BYTES_PER_GLYPH * base.getNumGlyphs();
+    }
+
+    /**
+     * Return our estimate of the memory the pooled fonts use.
+     *
+     * @return the estimate, in bytes
+     */
+    public synchronized long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Return the number of fonts in the pool.
+     *
+     * @return the number of fonts
+     */
+    public synchronized int size() {
+        return fonts.size();
+    }
+
+    /**
+     * Return the number of times {@link #derive} found a font in the pool.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Return the number of times {@link #derive} had to derive a font.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Return the number of fonts we've discarded to stay within budget.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DerivedFontPool{" +
+                "fonts=" + fonts.size() +
+                ", estimatedBytes=" + estimatedBytes +
+                ", budgetBytes=" + budgetBytes +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+}
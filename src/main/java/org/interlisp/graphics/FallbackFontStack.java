@@ -11,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import java.awt.*;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 
 /**
  * A {@link FontStack} that will fall back to another one for any characters it's missing.
@@ -23,7 +24,8 @@ public class FallbackFontStack extends FontStack {
 
     /**
      * Create a {@link FontStack} that uses fonts of its own, but falls back to another {@link FontStack} for fonts
-     * it's missing.
+     * it's missing.  We load our own members from the same place as the fallback's, through its
+     * {@link FontRegistry}, and we're lazy if the fallback is.
      *
      * @param fallback    the {@link FontStack} to fall back on
      * @param familyName  the family name
@@ -33,16 +35,17 @@ public class FallbackFontStack extends FontStack {
      * @throws FontFormatException if the resulting font is unparseable
      */
     public FallbackFontStack(FontStack fallback, String familyName, String... memberNames) throws IOException, URISyntaxException, FontFormatException {
-        super(familyName, memberNames);
+        super(fallback.getRegistry(), fallback.isLazy(), familyName, Arrays.asList(memberNames),
+                fallback.getLoadOrder());
         this.fallback = fallback;
-        stack.addAll(fallback.getStack());
     }
 
     public String toString() {
         return "FallbackFontStack{" +
                 "familyName='" + getFamilyName() + '\'' +
                 ", memberNames=" + getMemberNames() +
-                ", baseDownloadUri=" + getBaseDownloadUri() +
+                ", source=" + getRegistry().getSource() +
+                (isLazy() ? ", lazy" : "") +
                 ", fallback=" + ((fallback == null) ? "null" : fallback.getFamilyName()) +
                 '}';
     }
@@ -0,0 +1,528 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A persistent, content-addressed cache of the Web font resources we download: the CSS documents that list the fonts
+ * and the font files themselves.
+ * <p>
+ * Each resource is stored once, in a file named by the SHA-256 hash of its contents.  An index file maps each URL
+ * to the hash of the content we last fetched from it.  When the cache grows beyond its size limit we evict the
+ * least recently used content files.
+ * <p>
+ * We also remember each URL's validators (its <tt>ETag</tt> and <tt>Last-Modified</tt> headers).  In
+ * {@link Mode#REVALIDATE} mode we send them back in a conditional request, so an unchanged resource costs a
+ * <tt>304 Not Modified</tt> rather than a download.
+ * <p>
+ * In {@link Mode#OFFLINE} mode the cache never touches the network, and asking for a URL it doesn't hold is an error.
+ */
+public class FontCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FontCache.class);
+
+    /**
+     * How the cache decides whether to go to the network.
+     */
+    public enum Mode {
+        /**
+         * Use the cached copy if there is one, otherwise download and remember it.
+         */
+        CACHE_FIRST,
+        /**
+         * Ask the server whether each cached resource has changed, and download it again only if it has.
+         */
+        REVALIDATE,
+        /**
+         * Never download; fail if a resource isn't cached.
+         */
+        OFFLINE
+    }
+
+    /**
+     * The HTTP validators for a resource, either of which may be null.
+     *
+     * @param etag         the value of the <tt>ETag</tt> header
+     * @param lastModified the value of the <tt>Last-Modified</tt> header
+     */
+    public record Validators(String etag, String lastModified) {
+
+        public static final Validators NONE = new Validators(null, null);
+
+        /**
+         * Return true if there's nothing to send in a conditional request.
+         *
+         * @return true if we have neither validator
+         */
+        public boolean isEmpty() {
+            return etag == null && lastModified == null;
+        }
+    }
+
+    /**
+     * The result of a download.
+     *
+     * @param content    the bytes, or null if the server said the resource hasn't changed
+     * @param validators the validators the server sent with them
+     */
+    public record Download(byte[] content, Validators validators) {
+
+        /**
+         * Return true if the server told us our copy is still good.
+         *
+         * @return true if the resource hasn't changed
+         */
+        public boolean notModified() {
+            return content == null;
+        }
+    }
+
+    /**
+     * Fetch the bytes at a URL.  The cache calls this when it doesn't have what it was asked for, or wants to know
+     * whether what it has is still current.
+     */
+    @FunctionalInterface
+    public interface Downloader {
+        /**
+         * Fetch the resource.  If <tt>validators</tt> isn't empty, make the request conditional on them, and
+         * return a {@link Download} with null content if the resource hasn't changed.
+         *
+         * @param url        the URL of the resource
+         * @param validators the validators of the copy we have, or {@link Validators#NONE}
+         * @return what we downloaded
+         * @throws IOException if we can't download it
+         */
+        Download download(String url, Validators validators) throws IOException;
+    }
+
+    /**
+     * Read a cached content file.
+     *
+     * @param <T> what we make of the content
+     * @param <E> what else may go wrong reading it
+     */
+    @FunctionalInterface
+    public interface ContentReader<T, E extends Exception> {
+        /**
+         * Read the content.
+         *
+         * @param contentFile the file holding it
+         * @return what we made of it
+         * @throws IOException if we can't read it
+         * @throws E           if the content is bad
+         */
+        T read(Path contentFile) throws IOException, E;
+    }
+
+    /**
+     * What we know about a cached URL.
+     *
+     * @param hash       the hash of its content
+     * @param validators its validators
+     */
+    private record Entry(String hash, Validators validators) {
+    }
+
+    /**
+     * Where we keep the cache unless told otherwise.
+     */
+    public static final File DEFAULT_DIR = new File(System.getProperty("user.home"), ".cache/WebFontMetrics");
+
+    /**
+     * The default limit on the total size of the cached content, 1 GiB.
+     */
+    public static final long DEFAULT_MAX_BYTES = 1024L * 1024L * 1024L;
+
+    private static final String INDEX_FILE = "index.txt";
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static FontCache SINGLETON = null;
+
+    private final Path dir;
+
+    private final long maxBytes;
+
+    private final Mode mode;
+
+    /**
+     * Maps each URL to the hash of its content and its validators.
+     */
+    private final Map<String, Entry> index = new HashMap<>();
+
+    /**
+     * Told of each content file we evict, so they can forget what they made of it.
+     */
+    private final Set<Consumer<Path>> evictionListeners = new CopyOnWriteArraySet<>();
+
+    /**
+     * Create the process-wide cache.  Subsequent calls have no effect.
+     *
+     * @param dir      the cache directory, created if necessary
+     * @param maxBytes the limit on the total size of the cached content
+     * @param mode     whether we may go to the network
+     * @throws IOException if we can't create the directory or read its index
+     */
+    public synchronized static void init(File dir, long maxBytes, Mode mode) throws IOException {
+        if (SINGLETON == null) {
+            SINGLETON = new FontCache(dir, maxBytes, mode);
+        }
+    }
+
+    /**
+     * Return the process-wide cache, or null if there is none.
+     *
+     * @return the cache, or null
+     */
+    public static FontCache getInstance() {
+        return SINGLETON;
+    }
+
+    /**
+     * Open (or create) a cache in the given directory.
+     *
+     * @param dir      the cache directory, created if necessary
+     * @param maxBytes the limit on the total size of the cached content
+     * @param mode     whether we may go to the network
+     * @throws IOException if we can't create the directory or read its index
+     */
+    public FontCache(File dir, long maxBytes, Mode mode) throws IOException {
+        this.dir = dir.toPath();
+        this.maxBytes = maxBytes;
+        this.mode = mode;
+        Files.createDirectories(this.dir);
+        loadIndex();
+    }
+
+    /**
+     * Return the cache directory.
+     *
+     * @return the cache directory
+     */
+    public File getDir() {
+        return dir.toFile();
+    }
+
+    /**
+     * Return the cache's network policy.
+     *
+     * @return the mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Return true if the cache may not go to the network.
+     *
+     * @return true if we're offline
+     */
+    public boolean isOffline() {
+        return mode == Mode.OFFLINE;
+    }
+
+    /**
+     * Return the cached content for the URL, downloading and caching it first if necessary.
+     *
+     * @param url        the URL of the resource
+     * @param downloader how to fetch the resource if we don't have it
+     * @return the file holding the content
+     * @throws IOException if we can't download or store the content, or if we're offline and don't have it
+     */
+    public Path fetch(String url, Downloader downloader) throws IOException {
+        final Path cached = lookup(url);
+        if (cached != null && mode != Mode.REVALIDATE) {
+            return cached;
+        }
+        if (isOffline()) {
+            throw new IOException("Offline, and not in the font cache: " + url);
+        }
+        if (cached != null) {
+            final Validators validators = validators(url);
+            if (!validators.isEmpty()) {
+                final Download download = downloader.download(url, validators);
+                if (download.notModified()) {
+                    LOG.debug("Not modified: {}", url);
+                    return cached;
+                }
+                LOG.info("Changed upstream: {}", url);
+                return store(url, download.content(), download.validators());
+            }
+        }
+        LOG.info("Downloading {}", url);
+        final Download download = downloader.download(url, Validators.NONE);
+        return store(url, download.content(), download.validators());
+    }
+
+    /**
+     * Fetch the content for the URL, as {@link #fetch} does, and read it.  Another thread storing content may evict
+     * the file {@link #fetch} returned before we finish reading it; if so, we fetch it again (downloading it unless
+     * we're offline) and read that.
+     *
+     * @param url        the URL of the resource
+     * @param downloader how to fetch the resource if we don't have it
+     * @param reader     how to read it
+     * @param <T>        what we make of the content
+     * @param <E>        what else may go wrong reading it
+     * @return what the reader made of the content
+     * @throws IOException if we can't fetch or read the content
+     * @throws E           if the reader finds the content bad
+     */
+    public <T, E extends Exception> T read(String url, Downloader downloader, ContentReader<T, E> reader)
+            throws IOException, E {
+        final Path contentFile = fetch(url, downloader);
+        try {
+            return reader.read(contentFile);
+        } catch (IOException e) {
+            if (Files.exists(contentFile)) {
+                throw e;
+            }
+            LOG.info("Evicted while we read it, so fetching again: {}", url);
+            return reader.read(fetch(url, downloader));
+        }
+    }
+
+    /**
+     * Tell a listener about each content file we evict from now on.  Adding the same listener again has no effect.
+     *
+     * @param listener the listener, which gets the path of each file, after it's been deleted
+     */
+    public void addEvictionListener(Consumer<Path> listener) {
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * Return the URLs whose content we have.
+     *
+     * @return the URLs
+     */
+    public synchronized Set<String> urls() {
+        return new TreeSet<>(index.keySet());
+    }
+
+    /**
+     * Return the validators we have for the URL.
+     *
+     * @param url the URL of the resource
+     * @return the validators, possibly {@link Validators#NONE}
+     */
+    public synchronized Validators validators(String url) {
+        final Entry entry = index.get(url);
+        return entry == null ? Validators.NONE : entry.validators();
+    }
+
+    /**
+     * Return the cached content for the URL, or null if we don't have it.
+     *
+     * @param url the URL of the resource
+     * @return the file holding the content, or null
+     */
+    public synchronized Path lookup(String url) {
+        final Entry entry = index.get(url);
+        if (entry == null) {
+            return null;
+        }
+        final Path contentFile = dir.resolve(entry.hash());
+        if (!Files.isRegularFile(contentFile)) {
+            index.remove(url);
+            return null;
+        }
+        touch(contentFile);
+        return contentFile;
+    }
+
+    /**
+     * Remember the content for the URL, then evict old content if we've grown too large.
+     *
+     * @param url     the URL of the resource
+     * @param content its content
+     * @return the file holding the content
+     * @throws IOException if we can't write the content or the index
+     */
+    public Path store(String url, byte[] content) throws IOException {
+        return store(url, content, Validators.NONE);
+    }
+
+    /**
+     * Remember the content and validators for the URL, then evict old content if we've grown too large.
+     *
+     * @param url        the URL of the resource
+     * @param content    its content
+     * @param validators its validators
+     * @return the file holding the content
+     * @throws IOException if we can't write the content or the index
+     */
+    public synchronized Path store(String url, byte[] content, Validators validators) throws IOException {
+        final String hash = hash(content);
+        final Path contentFile = dir.resolve(hash);
+        if (Files.isRegularFile(contentFile)) {
+            touch(contentFile);
+        } else {
+            final Path tempFile = Files.createTempFile(dir, hash, ".tmp");
+            Files.write(tempFile, content);
+            Files.move(tempFile, contentFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        index.put(url, new Entry(hash, validators));
+        evict(contentFile);
+        saveIndex();
+        return contentFile;
+    }
+
+    /**
+     * Return the total size, in bytes, of the cached content.
+     *
+     * @return the size of the cache
+     * @throws IOException if we can't read the directory
+     */
+    public synchronized long size() throws IOException {
+        long total = 0;
+        for (Path contentFile : contentFiles()) {
+            total += Files.size(contentFile);
+        }
+        return total;
+    }
+
+    /**
+     * Delete the least recently used content files until the cache fits in {@link #maxBytes}.
+     *
+     * @param keep a content file we must not delete, because we're about to return it.  Files that {@link #fetch}
+     *             returned earlier aren't protected; {@link #read} copes with losing them.
+     * @throws IOException if we can't read the directory
+     */
+    private void evict(Path keep) throws IOException {
+        final List<Path> contentFiles = contentFiles();
+        long total = 0;
+        for (Path contentFile : contentFiles) {
+            total += Files.size(contentFile);
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        contentFiles.sort(Comparator.comparing(FontCache::lastModified));
+        for (Path contentFile : contentFiles) {
+            if (total <= maxBytes) {
+                break;
+            }
+            if (!contentFile.equals(keep)) {
+                final long size = Files.size(contentFile);
+                Files.deleteIfExists(contentFile);
+                final String hash = contentFile.getFileName().toString();
+                index.values().removeIf(entry -> entry.hash().equals(hash));
+                total -= size;
+                LOG.info("Evicted {} ({} bytes) from the font cache", hash, size);
+                for (Consumer<Path> listener : evictionListeners) {
+                    listener.accept(contentFile);
+                }
+            }
+        }
+    }
+
+    private List<Path> contentFiles() throws IOException {
+        try (final Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> !path.getFileName().toString().equals(INDEX_FILE)).
+                    filter(path -> !path.getFileName().toString().endsWith(".tmp")).
+                    filter(Files::isRegularFile).
+                    collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        final Path indexFile = dir.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(indexFile)) {
+            return;
+        }
+        try (final BufferedReader in = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            while (true) {
+                final String line = in.readLine();
+                if (line == null) {
+                    break;
+                }
+                // url, hash, ETag, Last-Modified; the validators may be empty
+                final String[] fields = line.split("\t", -1);
+                if (fields.length >= 2) {
+                    final String etag = fields.length > 2 && !fields[2].isEmpty() ? fields[2] : null;
+                    final String lastModified = fields.length > 3 && !fields[3].isEmpty() ? fields[3] : null;
+                    index.put(fields[0], new Entry(fields[1], new Validators(etag, lastModified)));
+                }
+            }
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        final Path tempFile = Files.createTempFile(dir, INDEX_FILE, ".tmp");
+        try (final BufferedWriter out = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> entry : index.entrySet()) {
+                final Validators validators = entry.getValue().validators();
+                out.write(entry.getKey());
+                out.write('\t');
+                out.write(entry.getValue().hash());
+                out.write('\t');
+                out.write(Objects.requireNonNullElse(validators.etag(), ""));
+                out.write('\t');
+                out.write(Objects.requireNonNullElse(validators.lastModified(), ""));
+                out.write('\n');
+            }
+        }
+        Files.move(tempFile, dir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void touch(Path contentFile) {
+        try {
+            Files.setLastModifiedTime(contentFile, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            LOG.warn("Can't update the access time of {}", contentFile, e);
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Return the hex SHA-256 hash of the content.
+     *
+     * @param content the content
+     * @return its hash
+     */
+    static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance(HASH_ALGORITHM).digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FontCache{" +
+                "dir=" + dir +
+                ", maxBytes=" + maxBytes +
+                ", mode=" + mode +
+                ", entries=" + index.size() +
+                '}';
+    }
+}
@@ -9,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.*;
+import java.awt.font.FontRenderContext;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -16,26 +17,125 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 
 /**
  * Extract and return font metrics from font files, directories, or collections of {@link Font}
  * objects.
+ * <p>
+ * We remember the {@link FontMetrics} of the most recently used {@link Font}s, by identity, so asking again about a font
+ * we've seen costs a map lookup.
+ * <p>
+ * A {@link #headless()} extractor measures fonts with {@link HeadlessFontMetrics} in a fixed {@link FontRenderContext}
+ * instead of asking a {@link Graphics2D}, so it needs no graphics environment and can be shared between threads.  It
+ * returns the same integers as the default one.
  */
 public class FontMetricsExtractor {
 
     private final Logger log = LoggerFactory.getLogger(FontMetricsExtractor.class);
 
+    /**
+     * By default, remember the metrics of this many fonts.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    /**
+     * The graphics context we ask for metrics, or null if we compute them ourselves.
+     */
     private final Graphics2D graphics;
 
+    /**
+     * The render context we compute metrics in, if we have no {@link #graphics}.
+     */
+    private final FontRenderContext frc;
+
+    /**
+     * The metrics we've fetched, least recently used first.  Guarded by <tt>this</tt>.
+     */
+    private final Map<FontKey, FontMetrics> metricsCache;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * Compares {@link Font}s by identity.  {@link Font#equals} compares their attributes, which is much slower, and
+     * we only ever ask about the same few instances.
+     *
+     * @param font the font
+     */
+    private record FontKey(Font font) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FontKey other && other.font == font;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(font);
+        }
+    }
+
     /**
      * Create an object that can extract and return font metrics from font files, directories, or collections of {@link Font}
      * objects.
      */
     public FontMetricsExtractor() {
-        final GraphicsEnvironment graphicsEnvironment = GraphicsEnvironment.getLocalGraphicsEnvironment();
-        graphics = graphicsEnvironment.createGraphics(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB));
-        // listAvailableFontFamilyNames(graphicsEnvironment);
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Create an object that can extract and return font metrics, and that remembers the metrics of up to the given
+     * number of fonts.
+     *
+     * @param cacheSize the most fonts whose metrics we remember
+     */
+    public FontMetricsExtractor(int cacheSize) {
+        this(GraphicsEnvironment.getLocalGraphicsEnvironment().
+                createGraphics(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB)), null, cacheSize);
+    }
+
+    /**
+     * Create an extractor that computes metrics itself, in the given render context, with no graphics context.
+     *
+     * @param frc       the render context
+     * @param cacheSize the most fonts whose metrics we remember
+     */
+    public FontMetricsExtractor(FontRenderContext frc, int cacheSize) {
+        this(null, frc, cacheSize);
+    }
+
+    private FontMetricsExtractor(Graphics2D graphics, FontRenderContext frc, int cacheSize) {
+        this.graphics = graphics;
+        this.frc = frc;
+        metricsCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FontKey, FontMetrics> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Return an extractor that needs no graphics environment and returns the same metrics as one that uses an image's
+     * {@link Graphics2D}.
+     *
+     * @return the extractor
+     */
+    public static FontMetricsExtractor headless() {
+        return new FontMetricsExtractor(HeadlessFontMetrics.DEFAULT_RENDER_CONTEXT, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Measure a font, with our graphics context if we have one.
+     *
+     * @param font the font
+     * @return its metrics
+     */
+    private FontMetrics measure(Font font) {
+        return graphics == null ? new HeadlessFontMetrics(font, frc) : graphics.getFontMetrics(font);
     }
 
     /**
@@ -63,7 +163,7 @@ public class FontMetricsExtractor {
         final java.util.List<FontMetrics> result = new LinkedList<>();
         for (Font newFont : newFonts) {
 //            graphicsEnvironment.registerFont(newFont);
-            final FontMetrics fontMetrics = graphics.getFontMetrics(newFont.deriveFont(pointSize));
+            final FontMetrics fontMetrics = measure(newFont.deriveFont(pointSize));
             result.add(fontMetrics);
         }
         return result;
@@ -112,17 +212,44 @@ public class FontMetricsExtractor {
      * @return the metrics collection
      */
     public Collection<FontMetrics> fromFonts(Collection<Font> fonts) {
-        return fonts.stream().map(graphics::getFontMetrics).toList();
+        return fonts.stream().map(this::fromFont).toList();
     }
 
     /**
-     * Fetch the metrics for a given {@link Font}.
+     * Fetch the metrics for a given {@link Font}, from our cache if we've seen it recently.
      *
      * @param font the font
      * @return the {@link FontMetrics}
      */
-    public FontMetrics fromFont(Font font) {
-        return graphics.getFontMetrics(font);
+    public synchronized FontMetrics fromFont(Font font) {
+        final FontKey key = new FontKey(font);
+        FontMetrics metrics = metricsCache.get(key);
+        if (metrics != null) {
+            hits++;
+        } else {
+            misses++;
+            metrics = measure(font);
+            metricsCache.put(key, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Return the number of times {@link #fromFont} found the metrics in our cache.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getCacheHits() {
+        return hits;
+    }
+
+    /**
+     * Return the number of times {@link #fromFont} had to ask for the metrics.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getCacheMisses() {
+        return misses;
     }
 
     public static class FontMeasurements {
@@ -0,0 +1,242 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The fonts we've loaded so far from a {@link FontSource}, by member name.  {@link FontStack}s resolve their member
+ * names through a registry, so a font that belongs to several stacks (like <tt>Noto Sans Math</tt>, which we use in
+ * both the Noto Sans and Noto Serif stacks) is loaded and parsed once, and every stack shares the same {@link Font}.
+ * <p>
+ * Call {@link #prefetch(Collection)} with the members of all the stacks you're about to build to fetch them all
+ * together, which for Web fonts means with as few CSS requests as possible.
+ * <p>
+ * A registry is thread-safe.  We hold no lock while we load: each member's fonts are a future, which the caller that
+ * asked for the member first completes, and any other caller that wants it waits for.  So callers loading different
+ * members don't wait for each other, and a virtual thread waiting for a download doesn't pin its carrier.
+ */
+public class FontRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FontRegistry.class);
+
+    /**
+     * Where we get our fonts unless told otherwise.
+     */
+    public static final URI GOOGLE_FONTS_CSS_URI = WebFontSource.GOOGLE_FONTS_CSS_URI;
+
+    private static final Map<URI, FontRegistry> WEB_REGISTRIES = new ConcurrentHashMap<>();
+
+    private static final Map<FontSource, FontRegistry> REGISTRIES = new ConcurrentHashMap<>();
+
+    private final FontSource source;
+
+    /**
+     * The fonts we've loaded or are loading, by member name.
+     */
+    private final Map<String, CompletableFuture<List<Font>>> fontsByName = new ConcurrentHashMap<>();
+
+    /**
+     * The widths the stacks that use our fonts have measured in them.
+     */
+    private final WidthMemo widthMemo = new WidthMemo();
+
+    /**
+     * The members our source doesn't have.
+     */
+    private final Set<String> missing = Collections.synchronizedSortedSet(new TreeSet<>());
+
+    /**
+     * Return the process-wide registry of fonts from Google.
+     *
+     * @return the registry
+     */
+    public static FontRegistry getInstance() {
+        return getInstance(GOOGLE_FONTS_CSS_URI);
+    }
+
+    /**
+     * Return the process-wide registry of Web fonts from the given base URI.
+     *
+     * @param baseDownloadUri the base URI (e.g., <tt>https://fonts.googleapis.com/css2</tt>), with no query parameters
+     * @return the registry
+     */
+    public static FontRegistry getInstance(URI baseDownloadUri) {
+        return WEB_REGISTRIES.computeIfAbsent(baseDownloadUri, uri -> getInstance(new WebFontSource(uri)));
+    }
+
+    /**
+     * Return the process-wide registry of fonts from the given source.
+     *
+     * @param source the source
+     * @return the registry
+     */
+    public static FontRegistry getInstance(FontSource source) {
+        return REGISTRIES.computeIfAbsent(source, FontRegistry::new);
+    }
+
+    private FontRegistry(FontSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Return the source we load fonts from.
+     *
+     * @return the source
+     */
+    public FontSource getSource() {
+        return source;
+    }
+
+    /**
+     * Make sure we've loaded all the named fonts.  We ask the source for all the ones nobody has yet asked for at once,
+     * and wait for any another caller is loading.  If the source fails, we forget the members we asked it for, so a
+     * later call tries them again.
+     *
+     * @param names the member names
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if a font is unparseable
+     */
+    public void prefetch(Collection<String> names) throws IOException, URISyntaxException, FontFormatException {
+        final Map<String, CompletableFuture<List<Font>>> unloaded = new LinkedHashMap<>();
+        final List<CompletableFuture<List<Font>>> loading = new ArrayList<>();
+        for (String name : new LinkedHashSet<>(names)) {
+            final CompletableFuture<List<Font>> ours = new CompletableFuture<>();
+            final CompletableFuture<List<Font>> theirs = fontsByName.putIfAbsent(name, ours);
+            if (theirs == null) {
+                unloaded.put(name, ours);
+            } else {
+                loading.add(theirs);
+            }
+        }
+        if (!unloaded.isEmpty()) {
+            final Map<String, List<Font>> loaded;
+            try {
+                loaded = source.load(List.copyOf(unloaded.keySet()));
+            } catch (Throwable t) {
+                unloaded.forEach((name, future) -> {
+                    fontsByName.remove(name, future);
+                    future.completeExceptionally(t);
+                });
+                throw t;
+            }
+            unloaded.forEach((name, future) -> {
+                final List<Font> fonts = loaded.get(name);
+                if (fonts == null) {
+                    LOG.warn("{} has no font named '{}'", source, name);
+                    missing.add(name);
+                }
+                future.complete(fonts == null ? List.of() : fonts);
+            });
+        }
+        for (CompletableFuture<List<Font>> future : loading) {
+            await(future);
+        }
+    }
+
+    /**
+     * Wait for a member's fonts.
+     *
+     * @param future the fonts, which another caller may still be loading
+     * @return the fonts
+     * @throws IOException         if we couldn't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if a font is unparseable
+     */
+    private static List<Font> await(CompletableFuture<List<Font>> future)
+            throws IOException, URISyntaxException, FontFormatException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof URISyntaxException uriSyntaxException) {
+                throw uriSyntaxException;
+            } else if (cause instanceof FontFormatException fontFormatException) {
+                throw fontFormatException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Return the fonts for the named member, loading them if necessary.
+     *
+     * @param name the member name
+     * @return the member's fonts
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if a font is unparseable
+     */
+    public List<Font> get(String name) throws IOException, URISyntaxException, FontFormatException {
+        prefetch(List.of(name));
+        return Collections.unmodifiableList(await(fontsByName.get(name)));
+    }
+
+    /**
+     * Return the fonts for all the named members, in order, loading any we don't have with one request.
+     *
+     * @param names the member names
+     * @return the fonts
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if a font is unparseable
+     */
+    public List<Font> resolve(List<String> names) throws IOException, URISyntaxException, FontFormatException {
+        prefetch(names);
+        final List<Font> result = new ArrayList<>();
+        for (String name : names) {
+            result.addAll(await(fontsByName.get(name)));
+        }
+        return result;
+    }
+
+    /**
+     * Return the memo of the widths measured in our fonts, which the stacks we serve share by default.
+     *
+     * @return the memo
+     */
+    public WidthMemo getWidthMemo() {
+        return widthMemo;
+    }
+
+    /**
+     * Return true if we asked our source for a member and it had no fonts for it.  We hand out an empty list of fonts
+     * for such a member, so the characters only it would display get the widths of some other font.
+     *
+     * @param name the member name
+     * @return true if the member is missing
+     */
+    public boolean isMissing(String name) {
+        return missing.contains(name);
+    }
+
+    @Override
+    public String toString() {
+        return "FontRegistry{" +
+                "source=" + source +
+                ", members=" + fontsByName.keySet() +
+                (missing.isEmpty() ? "" : ", missing=" + missing) +
+                '}';
+    }
+}
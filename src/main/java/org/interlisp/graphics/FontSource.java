@@ -0,0 +1,35 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import java.awt.*;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Somewhere we can get the fonts that make up a {@link FontStack}, by member name: a Web font service, a directory
+ * of font files, or the fonts we've cached.
+ * <p>
+ * Stacks don't use a source directly; they resolve their members through the {@link FontRegistry} for the source,
+ * so each font is loaded once.
+ */
+public interface FontSource {
+
+    /**
+     * Load the named members.  Implementations should load them together if that's cheaper.
+     *
+     * @param names the member names
+     * @return the fonts for each member we found, by member name.  Members we couldn't find are absent.
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if a font URI is malformed
+     * @throws FontFormatException if a font is unparseable
+     */
+    Map<String, List<Font>> load(Collection<String> names) throws IOException, URISyntaxException, FontFormatException;
+
+}
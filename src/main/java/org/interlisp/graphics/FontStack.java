@@ -12,13 +12,14 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.*;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import static org.interlisp.unicode.XccsToUnicode.REPLACEMENT_CHAR;
 
@@ -30,6 +31,10 @@ import static org.interlisp.unicode.XccsToUnicode.REPLACEMENT_CHAR;
  * <p>
  * We need to define font (family) stacks for each of the font families we deal with to gather metrics for characters
  * beyond XCCS charset 0.
+ * <p>
+ * A stack normally loads all its members when it's created.  A <em>lazy</em> stack ({@link #lazy}) loads nothing
+ * until it's asked about a character, and then loads members in order only until one of them can display it, so
+ * fonts for scripts we never look up (say, Thai or Lao) are never downloaded or parsed.
  */
 @SuppressWarnings("JavadocLinkAsPlainText")
 public class FontStack {
@@ -41,18 +46,72 @@ public class FontStack {
      */
     private static final float WHY_DO_WE_HAVE_TO_SCALE = 1.33333f;
 
-    private URI baseDownloadUri = URI.create("https://fonts.googleapis.com/css2");
-
     private final XccsToUnicode xccsToUnicode = XccsToUnicode.getInstance();
 
+    /**
+     * Measures our derived fonts, remembering the metrics of those it has seen.  It needs no graphics context, so
+     * several threads can use it.
+     */
+    private final FontMetricsExtractor fme = FontMetricsExtractor.headless();
+
+    private final MeasurementStats measurementStats = new MeasurementStats();
+
+    /**
+     * The widths we and the other stacks sharing our fonts have measured, or null to measure every width.
+     */
+    private volatile WidthMemo widthMemo;
+
+    /**
+     * When we measure in parallel, measure this many charsets per thread at a time.
+     */
+    static final int PARALLEL_WINDOW_PER_THREAD = 4;
+
+    /**
+     * If true, measure charsets in parallel.
+     */
+    private volatile boolean parallel;
+
     private final String familyName;
 
     private final List<String> memberNames;
 
-    protected List<Font> stack;
+    private final FontRegistry registry;
+
+    private final boolean lazy;
+
+    /**
+     * The names we load fonts for, in order: our own members, then any we fall back on.
+     */
+    private final List<String> loadOrder;
+
+    /**
+     * How many of {@link #loadOrder} we've loaded.  Guarded by <tt>this</tt>.
+     */
+    private int loadedMembers;
+
+    /**
+     * The names in {@link #loadOrder} our registry's source has no fonts for.
+     */
+    private final List<String> missingMembers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Which font displays each XCCS character, once we've worked it out.
+     */
+    private volatile ResolutionPlan resolutionPlan;
 
     /**
-     * Create a font stack.
+     * The fonts we've loaded so far, in stack order.  We only ever append, so lookups can read it without locking
+     * while another thread loads the next member.
+     */
+    protected final List<Font> stack = new CopyOnWriteArrayList<>();
+
+    /**
+     * Which of the fonts in {@link #stack} can display each XCCS character.
+     */
+    private final CoverageMap coverage = new CoverageMap(xccsToUnicode.unicodeCharacters());
+
+    /**
+     * Create a font stack of Web fonts from Google.
      *
      * @param familyName  the family name of the stack, for informational purposes only
      * @param memberNames the names of the members, which are the names used to download them
@@ -61,9 +120,7 @@ public class FontStack {
      * @throws FontFormatException if the resulting font is unparseable
      */
     public FontStack(String familyName, String... memberNames) throws IOException, URISyntaxException, FontFormatException {
-        this.familyName = familyName;
-        this.memberNames = Arrays.asList(memberNames);
-        load();
+        this(FontRegistry.getInstance(), familyName, memberNames);
     }
 
     /**
@@ -78,38 +135,174 @@ public class FontStack {
      * @throws FontFormatException if the resulting font is unparseable
      */
     public FontStack(URI baseDownloadUri, String familyName, String... memberNames) throws IOException, URISyntaxException, FontFormatException {
-        this.familyName = familyName;
-        this.memberNames = Arrays.asList(memberNames);
-        this.baseDownloadUri = baseDownloadUri;
-        load();
+        this(FontRegistry.getInstance(baseDownloadUri), familyName, memberNames);
+    }
+
+    /**
+     * Create a font stack whose members come from the given {@link FontSource}.
+     *
+     * @param source      where to get the members
+     * @param familyName  the family name of the stack, for informational purposes only
+     * @param memberNames the names of the members
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if the resulting font is unparseable
+     */
+    public FontStack(FontSource source, String familyName, String... memberNames) throws IOException, URISyntaxException, FontFormatException {
+        this(FontRegistry.getInstance(source), familyName, memberNames);
+    }
+
+    /**
+     * Create a font stack whose members we resolve through the given {@link FontRegistry}.
+     *
+     * @param registry    where to get the members
+     * @param familyName  the family name of the stack, for informational purposes only
+     * @param memberNames the names of the members
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if the resulting font is unparseable
+     */
+    public FontStack(FontRegistry registry, String familyName, String... memberNames) throws IOException, URISyntaxException, FontFormatException {
+        this(registry, false, familyName, Arrays.asList(memberNames), List.of());
     }
 
     /**
-     * Create the complete download URI and return it.
+     * Create a font stack that loads its members, in order, only as it needs them to display characters.
      *
-     * @return the download URI
+     * @param registry    where to get the members
+     * @param familyName  the family name of the stack, for informational purposes only
+     * @param memberNames the names of the members
+     * @return the stack, with nothing loaded yet
      */
-    private URI computeDownloadUri() {
-        final String queryString = memberNames.stream().map(name -> URLEncoder.encode(name, StandardCharsets.UTF_8)).
-                collect(Collectors.joining("&family=", "?family=", ""));
-        return URI.create(baseDownloadUri.toString() + queryString);
+    public static FontStack lazy(FontRegistry registry, String familyName, String... memberNames) {
+        try {
+            return new FontStack(registry, true, familyName, Arrays.asList(memberNames), List.of());
+        } catch (IOException | URISyntaxException | FontFormatException e) {
+            // a lazy stack doesn't load anything up front
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Create a font stack whose members are followed by some other stack's.
+     *
+     * @param registry      where to get the members
+     * @param lazy          if true, load members only as we need them; otherwise, load them all now
+     * @param familyName    the family name of the stack, for informational purposes only
+     * @param memberNames   the names of the members
+     * @param fallbackNames the names of the members we fall back on, in the order we try them
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if the resulting font is unparseable
+     */
+    protected FontStack(FontRegistry registry, boolean lazy, String familyName, List<String> memberNames,
+                        List<String> fallbackNames) throws IOException, URISyntaxException, FontFormatException {
+        this.familyName = familyName;
+        this.memberNames = List.copyOf(memberNames);
+        this.registry = registry;
+        this.widthMemo = registry.getWidthMemo();
+        this.lazy = lazy;
+        final List<String> order = new ArrayList<>(memberNames);
+        fallbackNames.stream().filter(name -> !order.contains(name)).forEach(order::add);
+        this.loadOrder = List.copyOf(order);
+        if (!lazy) {
+            load();
+        }
     }
 
     /**
-     * Load the fonts in the stack.
+     * Load all the fonts in the stack through our {@link FontRegistry}, so we share any member fonts other stacks have
+     * already loaded.
      *
      * @throws IOException         if we can't read the fonts
      * @throws URISyntaxException  if the font URI is malformed
      * @throws FontFormatException if the resulting font is unparseable
      */
     private void load() throws IOException, URISyntaxException, FontFormatException {
-        final URI downloadUri = computeDownloadUri();
-        final WebFontDownloader wfd = new WebFontDownloader(downloadUri.toString());
-        stack = wfd.getFonts();
+        registry.prefetch(loadOrder);
+        //noinspection StatementWithEmptyBody
+        while (loadNextMember()) {
+        }
+    }
+
+    /**
+     * Load the next member we haven't loaded yet and add its fonts to the stack.
+     *
+     * @return false if there was nothing left to load
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if the resulting font is unparseable
+     */
+    private synchronized boolean loadNextMember() throws IOException, URISyntaxException, FontFormatException {
+        if (loadedMembers == loadOrder.size()) {
+            return false;
+        }
+        final String name = loadOrder.get(loadedMembers);
+        final List<Font> fonts = registry.get(name);
+        if (lazy) {
+            log.info("Stack '{}' loaded member '{}' on demand", familyName, name);
+        }
+        if (registry.isMissing(name)) {
+            log.warn("Stack '{}' has no fonts for member '{}', so the characters it would display get other widths",
+                    familyName, name);
+            missingMembers.add(name);
+        }
+        // the registry hands out shared Fonts, so a member we have in common with a fallback appears only once
+        for (Font font : fonts) {
+            if (stack.stream().noneMatch(loaded -> loaded == font)) {
+                stack.add(font);
+                coverage.add(font);
+            }
+        }
+        loadedMembers++;
+        return true;
+    }
+
+    /**
+     * Load the next member, as {@link #loadNextMember()}, for callers that can't throw checked exceptions.
+     *
+     * @return false if there was nothing left to load
+     */
+    private boolean loadNextMemberOnDemand() {
+        try {
+            return loadNextMember();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException | FontFormatException e) {
+            throw new UncheckedIOException(new IOException(e));
+        }
+    }
+
+    /**
+     * Return true if this stack loads its members only as it needs them.
+     *
+     * @return true if we're lazy
+     */
+    public boolean isLazy() {
+        return lazy;
     }
 
     /**
-     * Return the {@link Font}s in the stack.
+     * Return the names of everything we load fonts for, in the order we try them: our own members, then any we fall
+     * back on.
+     *
+     * @return the names
+     */
+    protected List<String> getLoadOrder() {
+        return loadOrder;
+    }
+
+    /**
+     * Return how many of the names in {@link #getLoadOrder()} we've loaded so far.
+     *
+     * @return the count
+     */
+    public synchronized int getLoadedMemberCount() {
+        return loadedMembers;
+    }
+
+    /**
+     * Return the {@link Font}s in the stack.  A lazy stack returns only the fonts it has loaded so far.
      *
      * @return the fonts as a list
      */
@@ -117,6 +310,15 @@ public class FontStack {
         return Collections.unmodifiableList(stack);
     }
 
+    /**
+     * Return the names in {@link #getLoadOrder()} we've tried to load and found no fonts for.
+     *
+     * @return the names
+     */
+    public List<String> getMissingMembers() {
+        return Collections.unmodifiableList(missingMembers);
+    }
+
     /**
      * Return the names of the member fonts.
      *
@@ -136,12 +338,39 @@ public class FontStack {
     }
 
     /**
-     * Return the base of the download URI.
+     * Use the given memo of the widths measured, instead of our registry's.
+     *
+     * @param widthMemo the memo, or null to measure every width ourselves
+     */
+    public void setWidthMemo(WidthMemo widthMemo) {
+        this.widthMemo = widthMemo;
+    }
+
+    /**
+     * Return the memo of the widths measured that we use.
+     *
+     * @return the memo, or null if we use none
+     */
+    public WidthMemo getWidthMemo() {
+        return widthMemo;
+    }
+
+    /**
+     * Return the registry we resolve our members through.
+     *
+     * @return the registry
+     */
+    public FontRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Return the base of the download URI, if our fonts are Web fonts.
      *
-     * @return the download URI base
+     * @return the download URI base, or null if our fonts don't come from the Web
      */
     public URI getBaseDownloadUri() {
-        return baseDownloadUri;
+        return registry.getSource() instanceof WebFontSource webFontSource ? webFontSource.getBaseDownloadUri() : null;
     }
 
     /**
@@ -152,7 +381,50 @@ public class FontStack {
      * @return the first {@link Font} that can display the character, or null if none found
      */
     public Font isDisplayableBy(char ch) {
-        return stack.stream().filter(font -> font.canDisplay(ch)).findFirst().orElse(null);
+        final int index = indexOfFontDisplaying(ch);
+        return index < 0 ? null : stack.get(index);
+    }
+
+    /**
+     * Return the index in {@link #getStack()} of the first font that can display the given Unicode character.  If
+     * there is none, this returns -1.  For characters XCCS maps to, this consults our {@link CoverageMap} rather
+     * than asking each font.
+     *
+     * @param ch the character in question
+     * @return the index of the first font that can display the character, or -1 if none found
+     */
+    public int indexOfFontDisplaying(char ch) {
+        if (coverage.isMapped(ch)) {
+            int index = coverage.firstFont(ch);
+            // a lazy stack loads more members only when the ones it has can't display the character
+            while (index < 0) {
+                final boolean loadedMore = loadNextMemberOnDemand();
+                index = coverage.firstFont(ch);
+                if (!loadedMore) {
+                    break;
+                }
+            }
+            return index;
+        }
+        for (int i = 0; ; i++) {
+            while (i >= stack.size()) {
+                if (!loadNextMemberOnDemand()) {
+                    return -1;
+                }
+            }
+            if (stack.get(i).canDisplay(ch)) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Return the stack's {@link CoverageMap}, which covers the fonts loaded so far.
+     *
+     * @return the coverage map
+     */
+    public CoverageMap getCoverage() {
+        return coverage;
     }
 
     /**
@@ -175,7 +447,60 @@ public class FontStack {
      * @return true if any font can display the character
      */
     public boolean isDisplayableByAny(char ch) {
-        return stack.stream().anyMatch(font -> font.canDisplay(ch));
+        return indexOfFontDisplaying(ch) >= 0;
+    }
+
+    /**
+     * Return the {@link FontMetricsExtractor} we measure our fonts with, whose cache statistics may be of interest.
+     *
+     * @return the extractor
+     */
+    public FontMetricsExtractor getMetricsExtractor() {
+        return fme;
+    }
+
+    /**
+     * Measure charsets in parallel, in the common {@link ForkJoinPool}, or one after another.  Either way, the results
+     * are the same.  In parallel, we measure a window of charsets at a time, so we hold at most that many charsets'
+     * metrics.
+     *
+     * @param parallel if true, measure charsets in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Return true if we measure charsets in parallel.
+     *
+     * @return true if we're parallel
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Return what measuring character widths has cost us so far.
+     *
+     * @return the statistics
+     */
+    public MeasurementStats getMeasurementStats() {
+        return measurementStats;
+    }
+
+    /**
+     * Return which font in the stack displays each XCCS character.  We work this out the first time we're asked; a
+     * lazy stack loads the members it needs to display the XCCS characters then.
+     *
+     * @return the plan
+     */
+    public ResolutionPlan getResolutionPlan() {
+        ResolutionPlan plan = resolutionPlan;
+        if (plan == null) {
+            plan = new ResolutionPlan(this, xccsToUnicode);
+            resolutionPlan = plan;
+        }
+        return plan;
     }
 
     /**
@@ -189,56 +514,225 @@ public class FontStack {
      */
     public List<WebCharsetMetrics> getAllCharsetMetrics(int size, int style,
                                                               FontMetricsExtractor.FontMeasurements returnedMeasurements) {
-        final FontMetricsExtractor fme = new FontMetricsExtractor();
-        //noinspection MagicConstant
-        final Collection<Font> derivedFonts = stack.stream().map(font -> font.deriveFont(style, size)).toList();
-        int maxSlugWidth = fme.fromFonts(derivedFonts).stream().mapToInt(fm -> fm.charWidth(REPLACEMENT_CHAR)).max().
-                orElseThrow(() -> new IllegalStateException("Fonts do not contain REPLACEMENT_CHAR"));
-
-        final List<WebCharsetMetrics> result = new LinkedList<>();
-
-        int fontMaxAscent = 0;
-        int fontMaxDescent = 0;
-        int fontMaxHeight = 0;
-
-        // for each XCCS charset, find the font that can display (measure) it and get its width
-        for (Integer xccsCharset : xccsToUnicode.charsets()) {
-            int widthIndex = 0;
-            final int[] charsetWidths = new int[256];
-
-            int charsetMaxAscent = 0;
-            int charsetMaxDescent = 0;
-            int charsetMaxHeight = 0;
-
-            for (Integer xccsChar : xccsToUnicode.charsetMembers(xccsCharset)) {
-                int unicode = xccsToUnicode.unicode(xccsChar);
-                // loop over the derived fonts until we find one that can measure the character
-                final Font canDisplayIt = isDisplayableBy(derivedFonts, (char)unicode);
-                if (canDisplayIt != null) {
-                    final FontMetrics metricsForThatFont = fme.fromFont(canDisplayIt);
-                    charsetMaxAscent = Math.max(charsetMaxAscent, metricsForThatFont.getAscent());
-                    charsetMaxDescent = Math.max(charsetMaxDescent, metricsForThatFont.getDescent());
-                    charsetMaxHeight = Math.max(charsetMaxHeight, metricsForThatFont.getHeight());
-                    final int width = metricsForThatFont.charWidth(unicode);
-                    charsetWidths[widthIndex] = (int)(WHY_DO_WE_HAVE_TO_SCALE * width);
+        return getCharsetWidthMatrices(List.of(size), style, List.of(returnedMeasurements)).stream().
+                map(matrix -> matrix.forSize(0)).toList();
+    }
+
+    /**
+     * Gather the metrics from the stack for all XCCS charsets at several sizes at once.
+     *
+     * @param sizes                font sizes in points
+     * @param style                font style, see {@link Font#getStyle()}
+     * @param returnedMeasurements one instance of {@link org.interlisp.graphics.FontMetricsExtractor.FontMeasurements}
+     *                             per size, <b>each of which will be updated with the line measurements of the
+     *                             constituent fonts at that size</b>.
+     * @return a {@link CharsetWidthMatrix} for each charset, in ascending order
+     * @see #visitCharsetMetrics
+     */
+    public List<CharsetWidthMatrix> getCharsetWidthMatrices(List<Integer> sizes, int style,
+                                                            List<FontMetricsExtractor.FontMeasurements> returnedMeasurements) {
+        if (returnedMeasurements.size() != sizes.size()) {
+            throw new IllegalArgumentException("Need one FontMeasurements per size, not " + returnedMeasurements.size());
+        }
+        final List<CharsetWidthMatrix> result = new ArrayList<>();
+        try {
+            visitCharsetMetrics(sizes, style, new CharsetMetricsVisitor() {
+                @Override
+                public void visitCharset(CharsetWidthMatrix matrix) {
+                    result.add(matrix);
                 }
-                widthIndex++;
+
+                @Override
+                public void visitEnd(List<FontMetricsExtractor.FontMeasurements> measurements) {
+                    // return these values by updating returnedMeasurements.  I'm sorry.
+                    for (int s = 0; s < measurements.size(); s++) {
+                        final FontMetricsExtractor.FontMeasurements m = measurements.get(s);
+                        returnedMeasurements.get(s).setValues(m.getHeight(), m.getMaxAscent(), m.getMaxDescent(),
+                                m.getSlugWidth());
+                    }
+                }
+            });
+        } catch (IOException e) {
+            // our visitor does no I/O
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Measure the stack for all XCCS charsets at several sizes at once, and hand each charset's metrics to a visitor
+     * as soon as they're done, so we never hold more than a few charsets' metrics at a time: one, or if we're
+     * {@link #setParallel parallel}, a window of {@link #PARALLEL_WINDOW_PER_THREAD} per thread of the common
+     * {@link ForkJoinPool}.  We look up the font for each character once, in our {@link ResolutionPlan}, and measure it at all the sizes, in fonts we get from the
+     * {@link DerivedFontPool}, unless the {@link WidthMemo} says another stack sharing that font has already measured
+     * it.  A lazy stack takes its slug width from the members it needed to load.
+     * <p>
+     * The visitor gets the charsets in order, one at a time, even if we measure them in parallel.
+     *
+     * @param sizes   font sizes in points
+     * @param style   font style, see {@link Font#getStyle()}
+     * @param visitor receives the metrics of each charset, then the line measurements at each size
+     * @throws IOException if the visitor throws it
+     */
+    public void visitCharsetMetrics(List<Integer> sizes, int style, CharsetMetricsVisitor visitor) throws IOException {
+        final ResolutionPlan plan = getResolutionPlan();
+        final int sizeCount = sizes.size();
+        final int fontCount = plan.fontCount();
+        final DerivedFontPool fontPool = DerivedFontPool.getInstance();
+
+        // the metrics of each font derived at each size, and the widths we've already measured in it
+        final FontMetrics[][] metrics = new FontMetrics[sizeCount][fontCount];
+        final WidthMemo memo = widthMemo;
+        final WidthMemo.Widths[][] knownWidths = new WidthMemo.Widths[sizeCount][fontCount];
+        final int[] maxSlugWidths = new int[sizeCount];
+        for (int s = 0; s < sizeCount; s++) {
+            final int size = sizes.get(s);
+            for (int f = 0; f < fontCount; f++) {
+                knownWidths[s][f] = memo == null ? null : memo.widths(stack.get(f), style, size);
             }
+            final List<Font> derivedFonts = stack.subList(0, fontCount).stream().
+                    map(font -> fontPool.derive(font, style, size)).toList();
+            metrics[s] = fme.fromFonts(derivedFonts).toArray(new FontMetrics[0]);
+            maxSlugWidths[s] = Arrays.stream(metrics[s]).mapToInt(fm -> fm.charWidth(REPLACEMENT_CHAR)).max().
+                    orElseThrow(() -> new IllegalStateException("Fonts do not contain REPLACEMENT_CHAR"));
+        }
 
-            fontMaxHeight = Math.max(fontMaxHeight, charsetMaxHeight);
-            fontMaxAscent = Math.max(fontMaxAscent, charsetMaxAscent);
-            fontMaxDescent = Math.max(fontMaxDescent, charsetMaxDescent);
+        final int[] fontMaxAscent = new int[sizeCount];
+        final int[] fontMaxDescent = new int[sizeCount];
+        final int[] fontMaxHeight = new int[sizeCount];
 
-            final WebCharsetMetrics charsetMetrics =
-                    new WebCharsetMetrics(xccsCharset, charsetMaxAscent, charsetMaxDescent,
-                            charsetMaxHeight, charsetWidths);
-            result.add(charsetMetrics);
+        // for each XCCS charset, measure each character in the font that can display it, at every size, and pass it on
+        final IOExceptionThrowingConsumer<CharsetWidthMatrix> combine = matrix -> {
+            for (int s = 0; s < sizeCount; s++) {
+                fontMaxHeight[s] = Math.max(fontMaxHeight[s], matrix.maxHeight()[s]);
+                fontMaxAscent[s] = Math.max(fontMaxAscent[s], matrix.maxAscent()[s]);
+                fontMaxDescent[s] = Math.max(fontMaxDescent[s], matrix.maxDescent()[s]);
+            }
+            visitor.visitCharset(matrix);
+        };
+        if (parallel) {
+            // measuring a charset touches nothing shared but the (immutable) metrics and the memo, so charsets can be
+            // measured in any order, on any thread.  We measure a window of them at a time and pass them on in charset
+            // order, so a slow charset holds back at most the rest of its window, not every charset after it.
+            final int window = PARALLEL_WINDOW_PER_THREAD * Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+            for (int start = 0; start < plan.charsetCount(); start += window) {
+                final CharsetWidthMatrix[] matrices = IntStream.range(start, Math.min(start + window, plan.charsetCount())).
+                        parallel().
+                        mapToObj(c -> measureCharset(plan, c, metrics, knownWidths)).
+                        toArray(CharsetWidthMatrix[]::new);
+                for (CharsetWidthMatrix matrix : matrices) {
+                    combine.accept(matrix);
+                }
+            }
+        } else {
+            for (int c = 0; c < plan.charsetCount(); c++) {
+                combine.accept(measureCharset(plan, c, metrics, knownWidths));
+            }
         }
 
-        // return these values by updating returnedMeasurements.  I'm sorry.
-        returnedMeasurements.setValues(fontMaxHeight, fontMaxAscent, fontMaxDescent, maxSlugWidth);
+        final List<FontMetricsExtractor.FontMeasurements> measurements = new ArrayList<>(sizeCount);
+        for (int s = 0; s < sizeCount; s++) {
+            final FontMetricsExtractor.FontMeasurements m = new FontMetricsExtractor.FontMeasurements();
+            m.setValues(fontMaxHeight[s], fontMaxAscent[s], fontMaxDescent[s], maxSlugWidths[s]);
+            measurements.add(m);
+        }
+        visitor.visitEnd(measurements);
+    }
 
-        return result;
+    /**
+     * Like a {@link java.util.function.Consumer}, but may throw {@link IOException}.
+     *
+     * @param <T> the type of what it consumes
+     */
+    @FunctionalInterface
+    private interface IOExceptionThrowingConsumer<T> {
+        void accept(T t) throws IOException;
+    }
+
+    /**
+     * Measure one charset at every size.  For each font that displays any of its characters, we measure all those
+     * characters at once, with one {@link java.awt.font.GlyphVector} per size.  All our working storage is our own, so
+     * several threads can measure different charsets at once.
+     *
+     * @param plan        our resolution plan
+     * @param index       the position of the charset in the plan
+     * @param metrics     the metrics of each font derived at each size
+     * @param knownWidths the widths we've already measured in each font derived at each size, or nulls if we don't
+     *                    remember widths
+     * @return the charset's metrics
+     */
+    private CharsetWidthMatrix measureCharset(ResolutionPlan plan, int index, FontMetrics[][] metrics,
+                                              WidthMemo.Widths[][] knownWidths) {
+        final int sizeCount = metrics.length;
+        final int[] unicodes = plan.unicodes(index);
+        final int[] fontIndexes = plan.fontIndexes(index);
+        final int[][] charsetWidths = new int[sizeCount][256];
+
+        final int[] charsetMaxAscent = new int[sizeCount];
+        final int[] charsetMaxDescent = new int[sizeCount];
+        final int[] charsetMaxHeight = new int[sizeCount];
+
+        final char[] chars = new char[unicodes.length];
+        final int[] ranks = new int[unicodes.length];
+        final char[] unknownChars = new char[unicodes.length];
+        final int[] unknownRanks = new int[unicodes.length];
+        final int[] widths = new int[unicodes.length];
+        final boolean[] done = new boolean[unicodes.length];
+        for (int first = 0; first < unicodes.length; first++) {
+            final int fontIndex = fontIndexes[first];
+            if (fontIndex < 0 || done[first]) {
+                continue;
+            }
+            // gather the rest of the characters this font displays
+            int count = 0;
+            for (int rank = first; rank < unicodes.length; rank++) {
+                if (fontIndexes[rank] == fontIndex) {
+                    chars[count] = (char)unicodes[rank];
+                    ranks[count++] = rank;
+                    done[rank] = true;
+                }
+            }
+            for (int s = 0; s < sizeCount; s++) {
+                final FontMetrics metricsForThatFont = metrics[s][fontIndex];
+                charsetMaxAscent[s] = Math.max(charsetMaxAscent[s], metricsForThatFont.getAscent());
+                charsetMaxDescent[s] = Math.max(charsetMaxDescent[s], metricsForThatFont.getDescent());
+                charsetMaxHeight[s] = Math.max(charsetMaxHeight[s], metricsForThatFont.getHeight());
+                // measure only what no stack sharing this font has measured
+                final WidthMemo.Widths known = knownWidths[s][fontIndex];
+                int unknownCount = 0;
+                for (int i = 0; i < count; i++) {
+                    final int width = known == null ? WidthMemo.UNKNOWN : known.get(chars[i]);
+                    if (width == WidthMemo.UNKNOWN) {
+                        unknownChars[unknownCount] = chars[i];
+                        unknownRanks[unknownCount++] = ranks[i];
+                    } else {
+                        charsetWidths[s][ranks[i]] = (int)(WHY_DO_WE_HAVE_TO_SCALE * width);
+                    }
+                }
+                if (unknownCount == 0) {
+                    continue;
+                }
+                final long start = System.nanoTime();
+                if (metricsForThatFont instanceof HeadlessFontMetrics headless) {
+                    headless.charWidths(unknownChars, unknownCount, widths);
+                    measurementStats.recordBatch(unknownCount, System.nanoTime() - start);
+                } else {
+                    for (int i = 0; i < unknownCount; i++) {
+                        widths[i] = metricsForThatFont.charWidth(unknownChars[i]);
+                    }
+                    measurementStats.recordSingle(unknownCount, System.nanoTime() - start);
+                }
+                for (int i = 0; i < unknownCount; i++) {
+                    if (known != null) {
+                        known.put(unknownChars[i], widths[i]);
+                    }
+                    charsetWidths[s][unknownRanks[i]] = (int)(WHY_DO_WE_HAVE_TO_SCALE * widths[i]);
+                }
+            }
+        }
+
+        return new CharsetWidthMatrix(plan.charset(index), charsetMaxAscent, charsetMaxDescent, charsetMaxHeight,
+                charsetWidths);
     }
 
     @Override
@@ -246,7 +740,9 @@ public class FontStack {
         return "FontStack{" +
                 "familyName='" + familyName + '\'' +
                 ", memberNames=" + memberNames +
-                ", baseDownloadUri=" + baseDownloadUri +
+                ", source=" + registry.getSource() +
+                (lazy ? ", lazy" : "") +
+                (missingMembers.isEmpty() ? "" : ", missing=" + missingMembers) +
                 '}';
     }
 }
@@ -0,0 +1,139 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.util.Arrays;
+
+/**
+ * {@link FontMetrics} computed straight from a {@link Font} and a {@link FontRenderContext}, with no
+ * {@link Graphics2D} involved, so they work headless and from any thread.  We round the way Java's own metrics for a
+ * graphics context do, so with the same render context we return the same integers.
+ */
+public class HeadlessFontMetrics extends FontMetrics {
+
+    /**
+     * The render context of an untransformed image graphics context with default rendering hints: no antialiasing
+     * and no fractional metrics.
+     */
+    public static final FontRenderContext DEFAULT_RENDER_CONTEXT = new FontRenderContext(null, false, false);
+
+    /**
+     * Java rounds ascents and descents up, unless they're within this much of the integer below.
+     */
+    private static final float ROUNDING_UP_VALUE = 0.95f;
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Not serializable; a deserialized copy keeps the integer metrics but can't measure strings.
+     */
+    private final transient FontRenderContext frc;
+
+    private final int ascent;
+
+    private final int descent;
+
+    private final int leading;
+
+    /**
+     * Compute the metrics of a font in the default render context.
+     *
+     * @param font the font
+     */
+    public HeadlessFontMetrics(Font font) {
+        this(font, DEFAULT_RENDER_CONTEXT);
+    }
+
+    /**
+     * Compute the metrics of a font in a given render context.
+     *
+     * @param font the font
+     * @param frc  the render context
+     */
+    public HeadlessFontMetrics(Font font, FontRenderContext frc) {
+        super(font);
+        this.frc = frc;
+        final LineMetrics lineMetrics = font.getLineMetrics("", frc);
+        ascent = (int)(ROUNDING_UP_VALUE + lineMetrics.getAscent());
+        descent = (int)(ROUNDING_UP_VALUE + lineMetrics.getDescent());
+        leading = (int)(ROUNDING_UP_VALUE + lineMetrics.getDescent() + lineMetrics.getLeading()) - descent;
+    }
+
+    @Override
+    public FontRenderContext getFontRenderContext() {
+        return frc;
+    }
+
+    @Override
+    public int getAscent() {
+        return ascent;
+    }
+
+    @Override
+    public int getDescent() {
+        return descent;
+    }
+
+    @Override
+    public int getLeading() {
+        return leading;
+    }
+
+    @Override
+    public int charWidth(char ch) {
+        return charWidth((int)ch);
+    }
+
+    @Override
+    public int charWidth(int codePoint) {
+        if (!Character.isValidCodePoint(codePoint)) {
+            codePoint = 0xFFFF;
+        }
+        final GlyphVector glyphVector = font.createGlyphVector(frc, Character.toChars(codePoint));
+        // the position after the glyph is its advance, and unlike its GlyphMetrics, doesn't need its outline
+        return round(glyphVector.getGlyphPosition(glyphVector.getNumGlyphs()).getX());
+    }
+
+    /**
+     * Measure a batch of characters with one {@link GlyphVector}, rather than one at a time.
+     *
+     * @param chars  the characters, each of which maps to a single glyph
+     * @param count  how many of them to measure
+     * @param widths where to put their widths, as {@link #charWidth(char)} would return them
+     */
+    public void charWidths(char[] chars, int count, int[] widths) {
+        final GlyphVector glyphVector = font.createGlyphVector(frc, count == chars.length ? chars : Arrays.copyOf(chars, count));
+        // each glyph's advance is the distance to the next one's position
+        final float[] positions = glyphVector.getGlyphPositions(0, count + 1, null);
+        for (int i = 0; i < count; i++) {
+            widths[i] = round(positions[2 * (i + 1)] - positions[2 * i]);
+        }
+    }
+
+    @Override
+    public int stringWidth(String str) {
+        return round(font.createGlyphVector(frc, str).getGlyphPosition(str.length()).getX());
+    }
+
+    @Override
+    public int charsWidth(char[] data, int off, int len) {
+        return stringWidth(new String(data, off, len));
+    }
+
+    /**
+     * Round an advance to an integer the way Java does.
+     *
+     * @param advance the advance
+     * @return the rounded advance
+     */
+    static int round(double advance) {
+        return (int)(0.5 + advance);
+    }
+}
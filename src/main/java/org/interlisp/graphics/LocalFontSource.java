@@ -0,0 +1,131 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A {@link FontSource} that reads the font files in a directory tree, like the ones under
+ * <tt>src/main/resources</tt>.  A member named "Noto Sans Hebrew" is every font whose family is "Noto Sans Hebrew",
+ * or whose PostScript name is "NotoSansHebrew-<i>something</i>".
+ * <p>
+ * We hand {@link Font#createFonts(File)} the files themselves, so nothing is copied; the font rasterizer reads the
+ * tables it needs straight from the file.
+ */
+public class LocalFontSource implements FontSource {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private static final List<String> FONT_FILE_TYPES = List.of(".ttf", ".otf", ".ttc");
+
+    private final File dir;
+
+    /**
+     * The fonts in the directory, keyed by lower-case family name and by PostScript name prefix.
+     * Null until we first need them.
+     */
+    private Map<String, List<Font>> fontsByKey = null;
+
+    /**
+     * Read fonts from the given directory and its subdirectories.
+     *
+     * @param dir the directory
+     */
+    public LocalFontSource(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Return the directory we read.
+     *
+     * @return the directory
+     */
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * Parse every font file in the directory tree and index the fonts.
+     *
+     * @throws IOException if we can't read the directory
+     */
+    private synchronized Map<String, List<Font>> index() throws IOException {
+        if (fontsByKey != null) {
+            return fontsByKey;
+        }
+        final Map<String, List<Font>> result = new HashMap<>();
+        final List<Path> fontFiles;
+        try (final Stream<Path> files = Files.walk(dir.toPath())) {
+            fontFiles = files.filter(Files::isRegularFile).
+                    filter(path -> FONT_FILE_TYPES.stream().anyMatch(type -> path.toString().toLowerCase(Locale.ROOT).endsWith(type))).
+                    sorted().toList();
+        }
+        for (Path fontFile : fontFiles) {
+            try {
+                for (Font font : Font.createFonts(fontFile.toFile())) {
+                    for (String key : keys(font)) {
+                        result.computeIfAbsent(key, k -> new ArrayList<>()).add(font);
+                    }
+                }
+            } catch (FontFormatException e) {
+                log.error("Can't parse {}", fontFile, e);
+            }
+        }
+        // upright fonts come before italic ones, as they do in Google's CSS
+        result.values().forEach(fonts -> fonts.sort(Comparator.comparing(font -> font.getFontName().contains("Italic"))));
+        log.info("Found {} font file(s) in {}", fontFiles.size(), dir);
+        fontsByKey = result;
+        return result;
+    }
+
+    /**
+     * Return the keys we'll find a font under: its family name, and its PostScript name up to the hyphen.
+     *
+     * @param font the font
+     * @return the lower-case keys
+     */
+    private static Set<String> keys(Font font) {
+        final Set<String> keys = new HashSet<>();
+        keys.add(font.getFamily(Locale.ROOT).toLowerCase(Locale.ROOT));
+        final String psName = font.getPSName();
+        final int hyphen = psName.indexOf('-');
+        keys.add((hyphen < 0 ? psName : psName.substring(0, hyphen)).toLowerCase(Locale.ROOT));
+        return keys;
+    }
+
+    @Override
+    public Map<String, List<Font>> load(Collection<String> names) throws IOException {
+        final Map<String, List<Font>> index = index();
+        final Map<String, List<Font>> result = new LinkedHashMap<>();
+        for (String name : names) {
+            List<Font> fonts = index.get(name.toLowerCase(Locale.ROOT));
+            if (fonts == null) {
+                fonts = index.get(name.replace(" ", "").toLowerCase(Locale.ROOT));
+            }
+            if (fonts != null) {
+                result.put(name, List.copyOf(fonts));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "LocalFontSource{" +
+                "dir=" + dir +
+                '}';
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What measuring character widths has cost a {@link FontStack}: how many {@link java.awt.font.GlyphVector}s we built,
+ * how many glyphs we measured with them, how many widths we had to ask for one at a time, and how long it all took.
+ * Safe to update from several threads.
+ */
+public class MeasurementStats {
+
+    private final LongAdder glyphVectors = new LongAdder();
+
+    private final LongAdder glyphs = new LongAdder();
+
+    private final LongAdder singleWidths = new LongAdder();
+
+    private final LongAdder nanos = new LongAdder();
+
+    /**
+     * Record measuring a batch of glyphs with one glyph vector.
+     *
+     * @param glyphCount the number of glyphs
+     * @param elapsed    how long it took, in nanoseconds
+     */
+    public void recordBatch(int glyphCount, long elapsed) {
+        glyphVectors.increment();
+        glyphs.add(glyphCount);
+        nanos.add(elapsed);
+    }
+
+    /**
+     * Record measuring characters' widths one at a time.
+     *
+     * @param widthCount the number of widths
+     * @param elapsed    how long it took, in nanoseconds
+     */
+    public void recordSingle(int widthCount, long elapsed) {
+        singleWidths.add(widthCount);
+        nanos.add(elapsed);
+    }
+
+    /**
+     * Return the number of glyph vectors we've built.
+     *
+     * @return the number of glyph vectors
+     */
+    public long getGlyphVectors() {
+        return glyphVectors.sum();
+    }
+
+    /**
+     * Return the number of glyphs we've measured in glyph vectors.
+     *
+     * @return the number of glyphs
+     */
+    public long getGlyphs() {
+        return glyphs.sum();
+    }
+
+    /**
+     * Return the number of widths we've measured one at a time.
+     *
+     * @return the number of widths
+     */
+    public long getSingleWidths() {
+        return singleWidths.sum();
+    }
+
+    /**
+     * Return the total time we've spent measuring widths.
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getNanos() {
+        return nanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "MeasurementStats{" +
+                "glyphVectors=" + getGlyphVectors() +
+                ", glyphs=" + getGlyphs() +
+                ", singleWidths=" + getSingleWidths() +
+                ", millis=" + TimeUnit.NANOSECONDS.toMillis(getNanos()) +
+                '}';
+    }
+}
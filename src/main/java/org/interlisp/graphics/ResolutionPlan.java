@@ -0,0 +1,108 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import org.interlisp.unicode.XccsToUnicode;
+
+import java.util.List;
+
+/**
+ * For every XCCS charset, which of a {@link FontStack}'s fonts displays each of its characters.  Whether a font can
+ * display a character doesn't depend on its size or style, so a stack works this out once and uses it to measure
+ * every size and style.
+ * <p>
+ * Characters are indexed by their rank within their charset, the way {@link org.interlisp.io.font.WebCharsetMetrics}
+ * stores their widths.
+ */
+public class ResolutionPlan {
+
+    private final int[] charsets;
+
+    /**
+     * For each charset, the Unicode character for each XCCS character in it.
+     */
+    private final int[][] unicodes;
+
+    /**
+     * For each charset, the index of the font that displays each XCCS character in it, or -1 if none does.
+     */
+    private final int[][] fontIndexes;
+
+    private final int fontCount;
+
+    /**
+     * Work out which font in the stack displays each XCCS character.
+     *
+     * @param stack         the stack
+     * @param xccsToUnicode the XCCS mapping
+     */
+    ResolutionPlan(FontStack stack, XccsToUnicode xccsToUnicode) {
+        charsets = xccsToUnicode.charsets().stream().mapToInt(Integer::intValue).toArray();
+        unicodes = new int[charsets.length][];
+        fontIndexes = new int[charsets.length][];
+        for (int i = 0; i < charsets.length; i++) {
+            final List<Integer> members = List.copyOf(xccsToUnicode.charsetMembers(charsets[i]));
+            unicodes[i] = new int[members.size()];
+            fontIndexes[i] = new int[members.size()];
+            for (int rank = 0; rank < members.size(); rank++) {
+                final int unicode = xccsToUnicode.unicode(members.get(rank));
+                unicodes[i][rank] = unicode;
+                fontIndexes[i][rank] = stack.indexOfFontDisplaying((char)unicode);
+            }
+        }
+        // a lazy stack may have loaded more fonts while we worked out the plan
+        fontCount = stack.getStack().size();
+    }
+
+    /**
+     * Return the number of charsets.
+     *
+     * @return the number of charsets
+     */
+    public int charsetCount() {
+        return charsets.length;
+    }
+
+    /**
+     * Return the charset number of the charset at the given position.  They're in ascending order.
+     *
+     * @param index the position
+     * @return the XCCS charset number
+     */
+    public int charset(int index) {
+        return charsets[index];
+    }
+
+    /**
+     * Return the Unicode characters for the XCCS characters in the charset at the given position, by rank.
+     *
+     * @param index the position
+     * @return the Unicode characters.  Don't modify the array.
+     */
+    public int[] unicodes(int index) {
+        return unicodes[index];
+    }
+
+    /**
+     * Return the index in {@link FontStack#getStack()} of the font that displays each XCCS character in the charset
+     * at the given position, by rank, or -1 for a character no font displays.
+     *
+     * @param index the position
+     * @return the font indexes.  Don't modify the array.
+     */
+    public int[] fontIndexes(int index) {
+        return fontIndexes[index];
+    }
+
+    /**
+     * Return the number of fonts in the stack the plan uses, which is all of them but those a lazy stack hasn't loaded.
+     *
+     * @return the number of fonts
+     */
+    public int fontCount() {
+        return fontCount;
+    }
+}
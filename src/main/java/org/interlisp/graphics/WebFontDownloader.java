@@ -9,15 +9,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.*;
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,8 +34,59 @@ public class WebFontDownloader {
 
     private static final Pattern URL_EXTRACTOR = Pattern.compile("^ *src: *url\\((.*)\\) *format.*");
 
+    private static final Pattern FAMILY_EXTRACTOR = Pattern.compile("^ *font-family: *['\"]?([^'\";]*)['\"]? *;.*");
+
+    /**
+     * By default, download this many fonts at a time.
+     */
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    /**
+     * Google serves different CSS depending on the user agent.  We send the one {@link java.net.URLConnection} does,
+     * for which we get plain TrueType files.
+     */
+    private static final String USER_AGENT = "Java/" + System.getProperty("java.version");
+
+    /**
+     * One client for all downloads, so we reuse connections (and HTTP/2 streams) to the font servers.
+     */
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder().
+            version(HttpClient.Version.HTTP_2).
+            followRedirects(HttpClient.Redirect.NORMAL).
+            executor(Executors.newVirtualThreadPerTaskExecutor()).
+            build();
+
+    /**
+     * Keep at most this many parsed font files.
+     */
+    private static final int MAX_PARSED_FONTS = 64;
+
+    /**
+     * Fonts we've parsed from cached (content-addressed) files, least recently used first.  We forget a file's fonts
+     * when its cache evicts it, and the least recently used when we have more than {@link #MAX_PARSED_FONTS}, so we
+     * don't keep alive fonts the cache and the {@link DerivedFontPool} have let go.
+     */
+    private static final Map<Path, Font[]> PARSED_FONTS = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, Font[]> eldest) {
+                    return size() > MAX_PARSED_FONTS;
+                }
+            });
+
+    private static final Consumer<Path> FORGET_PARSED_FONTS = PARSED_FONTS::remove;
+
+    /**
+     * Set by one thread, and read by whichever creates a downloader.
+     */
+    private static volatile int defaultConcurrency = DEFAULT_CONCURRENCY;
+
     private final String cssUrl;
 
+    private final FontCache cache;
+
+    private final int concurrency;
+
     /**
      * Download one or more font families from Google or other source.  For example,
      * <tt>https://fonts.googleapis.com/css2?family=Noto+Sans&family=Noto+Serif</tt>.
@@ -46,34 +101,172 @@ public class WebFontDownloader {
      * }
      * </pre>
      * We pull the URLs from each <tt>@font-face</tt> stanza,
+     * <p>
+     * We consult the process-wide {@link FontCache}, if there is one, before going to the network.
      *
      * @param familiesUrl the URL to download from
      */
     public WebFontDownloader(String familiesUrl) {
+        this(familiesUrl, FontCache.getInstance());
+    }
+
+    /**
+     * Download one or more font families, consulting the given {@link FontCache} before going to the network.
+     *
+     * @param familiesUrl the URL to download from
+     * @param cache       the cache, or null to always download
+     */
+    public WebFontDownloader(String familiesUrl, FontCache cache) {
+        this(familiesUrl, cache, defaultConcurrency);
+    }
+
+    /**
+     * Download one or more font families, consulting the given {@link FontCache} before going to the network.
+     * Download and parse up to <tt>concurrency</tt> fonts at once, each on its own virtual thread.
+     *
+     * @param familiesUrl the URL to download from
+     * @param cache       the cache, or null to always download
+     * @param concurrency the maximum number of fonts to fetch at once
+     */
+    public WebFontDownloader(String familiesUrl, FontCache cache, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1: " + concurrency);
+        }
         cssUrl = familiesUrl;
+        this.cache = cache;
+        this.concurrency = concurrency;
+        if (cache != null) {
+            cache.addEvictionListener(FORGET_PARSED_FONTS);
+        }
     }
 
-    private List<String> getUrlsFromCss() throws IOException, URISyntaxException {
-        final List<String> fontUrls = new LinkedList<>();
+    /**
+     * Set the number of fonts that downloaders created without an explicit concurrency will fetch at once.
+     *
+     * @param concurrency the maximum number of fonts to fetch at once
+     */
+    public static void setDefaultConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1: " + concurrency);
+        }
+        defaultConcurrency = concurrency;
+    }
+
+    /**
+     * Download the bytes at the URL.
+     *
+     * @param url the URL
+     * @return the content
+     * @throws IOException if we can't read it
+     */
+    private static byte[] download(String url) throws IOException {
+        return download(url, FontCache.Validators.NONE).content();
+    }
 
-        try (final BufferedReader br = new BufferedReader(new InputStreamReader(new URI(cssUrl).toURL().openStream()))) {
+    /**
+     * Download the bytes at the URL, unless the validators say our copy is still current.
+     *
+     * @param url        the URL
+     * @param validators the validators of the copy we have, or {@link FontCache.Validators#NONE}
+     * @return the content and its validators, or no content if the server says it hasn't changed
+     * @throws IOException if we can't read it
+     */
+    private static FontCache.Download download(String url, FontCache.Validators validators) throws IOException {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).header("User-Agent", USER_AGENT).GET();
+        if (validators.etag() != null) {
+            builder.header("If-None-Match", validators.etag());
+        }
+        if (validators.lastModified() != null) {
+            builder.header("If-Modified-Since", validators.lastModified());
+        }
+        try {
+            final HttpResponse<byte[]> response = HTTP_CLIENT.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() == 304 && !validators.isEmpty()) {
+                return new FontCache.Download(null, validators);
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP status " + response.statusCode() + " fetching " + url);
+            }
+            final FontCache.Validators newValidators =
+                    new FontCache.Validators(response.headers().firstValue("ETag").orElse(null),
+                            response.headers().firstValue("Last-Modified").orElse(null));
+            return new FontCache.Download(response.body(), newValidators);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted fetching " + url);
+        }
+    }
+
+    private Reader openCss() throws IOException {
+        if (cache == null) {
+            return new InputStreamReader(new ByteArrayInputStream(download(cssUrl)), StandardCharsets.UTF_8);
+        }
+        // read it all now, while we know it's there
+        return new StringReader(cache.read(cssUrl, WebFontDownloader::download,
+                cssFile -> Files.readString(cssFile, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * One <tt>@font-face</tt> stanza: the family it declares and the URL of its font file.
+     *
+     * @param family the family name, or null if the stanza didn't say
+     * @param url    the font file's URL
+     */
+    private record FontFace(String family, String url) {
+    }
+
+    private List<FontFace> getFacesFromCss() throws IOException, URISyntaxException {
+        final List<FontFace> faces = new LinkedList<>();
+
+        try (final BufferedReader br = new BufferedReader(openCss())) {
+            String family = null;
             while (true) {
                 final String line = br.readLine();
                 if (line == null) {
                     break;
                 }
+                final Matcher familyMatcher = FAMILY_EXTRACTOR.matcher(line);
+                if (familyMatcher.matches()) {
+                    family = familyMatcher.group(1);
+                }
                 final Matcher matcher = URL_EXTRACTOR.matcher(line);
                 if (matcher.matches()) {
-                    fontUrls.add(matcher.group(1));
+                    faces.add(new FontFace(family, matcher.group(1)));
                 }
             }
         }
 
-        return fontUrls;
+        return faces;
+    }
+
+    /**
+     * Fetch and parse the font file at the URL.
+     *
+     * @param fontUrl the URL
+     * @return the fonts it contains
+     * @throws IOException         if we can't read
+     * @throws FontFormatException if the font file is bad
+     */
+    private Font[] loadFonts(String fontUrl) throws IOException, FontFormatException {
+        if (cache == null) {
+            return Font.createFonts(new ByteArrayInputStream(download(fontUrl)));
+        }
+        // read the cached file directly, sparing Font the copy to a temp file it makes of a stream
+        return cache.read(fontUrl, WebFontDownloader::download, fontFile -> {
+            // the file is named by its content, so if it hasn't changed we needn't parse it again
+            final Font[] parsed = PARSED_FONTS.get(fontFile);
+            if (parsed != null) {
+                return parsed;
+            }
+            final Font[] fonts = Font.createFonts(fontFile.toFile());
+            PARSED_FONTS.put(fontFile, fonts);
+            return fonts;
+        });
     }
 
     /**
-     * Return all {@link Font}s found at the URL.
+     * Return all {@link Font}s found at the URL, in the order the CSS lists them.
+     * We fetch and parse up to {@link #concurrency} of them at once.
      *
      * @return a list of {@link Font}
      * @throws IOException         if we can't read
@@ -81,16 +274,73 @@ public class WebFontDownloader {
      * @throws FontFormatException if the font file is bad
      */
     public List<Font> getFonts() throws IOException, URISyntaxException, FontFormatException {
-        final List<String> fontUrls = getUrlsFromCss();
         final List<Font> result = new LinkedList<>();
+        getFontsByFamily().values().forEach(result::addAll);
+        return result;
+    }
 
-        for (String fontUrl : fontUrls) {
-            try (final BufferedInputStream fontStream = new BufferedInputStream(new URI(fontUrl).toURL().openStream())) {
-                final Font[] fonts = Font.createFonts(fontStream);
-                result.addAll(Arrays.asList(fonts));
+    /**
+     * Return all {@link Font}s found at the URL, grouped by the family named in their <tt>@font-face</tt>
+     * stanzas.  The map iterates in the order the CSS lists the families, and each family's fonts are in CSS order.
+     * Fonts from stanzas that name no family are grouped under the empty string.
+     * We fetch and parse up to {@link #concurrency} of them at once.
+     *
+     * @return the fonts, by family name
+     * @throws IOException         if we can't read
+     * @throws URISyntaxException  if the URL is bad
+     * @throws FontFormatException if the font file is bad
+     */
+    public Map<String, List<Font>> getFontsByFamily() throws IOException, URISyntaxException, FontFormatException {
+        final List<FontFace> faces = getFacesFromCss();
+        final Map<String, List<Font>> result = new LinkedHashMap<>();
+
+        final Semaphore permits = new Semaphore(concurrency);
+        try (final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final List<Future<Font[]>> futures = new ArrayList<>(faces.size());
+            for (FontFace face : faces) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return loadFonts(face.url());
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            // collect in CSS order, which is the stack's fallback order
+            for (int i = 0; i < faces.size(); i++) {
+                final String family = Objects.requireNonNullElse(faces.get(i).family(), "");
+                result.computeIfAbsent(family, key -> new LinkedList<>()).addAll(Arrays.asList(await(futures.get(i))));
             }
         }
 
         return result;
     }
+
+    /**
+     * Wait for a font to load, rethrowing whatever went wrong.
+     *
+     * @param future the pending font
+     * @return the fonts
+     * @throws IOException         if we couldn't read
+     * @throws FontFormatException if the font file was bad
+     */
+    private static Font[] await(Future<Font[]> future) throws IOException, FontFormatException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted loading fonts");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            } else if (cause instanceof FontFormatException ffe) {
+                throw ffe;
+            } else if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause);
+        }
+    }
 }
@@ -0,0 +1,157 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link FontSource} that downloads Web fonts from Google or another service that speaks the same CSS API,
+ * through the process-wide {@link FontCache} if there is one.
+ */
+public class WebFontSource implements FontSource {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Where we get our fonts unless told otherwise.
+     */
+    public static final URI GOOGLE_FONTS_CSS_URI = URI.create("https://fonts.googleapis.com/css2");
+
+    private final URI baseDownloadUri;
+
+    /**
+     * Download fonts from Google.
+     */
+    public WebFontSource() {
+        this(GOOGLE_FONTS_CSS_URI);
+    }
+
+    /**
+     * Download fonts from the given base URL (e.g., <tt>https://fonts.googleapis.com/css2</tt>).  <b>It must
+     * contain no query parameters.</b>
+     *
+     * @param baseDownloadUri the base URI
+     */
+    public WebFontSource(URI baseDownloadUri) {
+        this.baseDownloadUri = baseDownloadUri;
+    }
+
+    /**
+     * Return the base of the download URI.
+     *
+     * @return the download URI base
+     */
+    public URI getBaseDownloadUri() {
+        return baseDownloadUri;
+    }
+
+    /**
+     * Return the cache we download through, or null for none.
+     *
+     * @return the cache
+     */
+    protected FontCache getCache() {
+        return FontCache.getInstance();
+    }
+
+    /**
+     * Create the complete download URI for the given member names and return it.
+     *
+     * @param names the member names
+     * @return the download URI
+     */
+    public URI computeDownloadUri(Collection<String> names) {
+        final String queryString = names.stream().map(name -> URLEncoder.encode(name, StandardCharsets.UTF_8)).
+                collect(Collectors.joining("&family=", "?family=", ""));
+        return URI.create(baseDownloadUri.toString() + queryString);
+    }
+
+    /**
+     * Fetch all the named members with one CSS request, falling back to one request per member for any whose
+     * family name we can't match up in the CSS.
+     *
+     * @param names the member names
+     * @return the fonts, by member name
+     * @throws IOException         if we can't read the fonts
+     * @throws URISyntaxException  if the font URI is malformed
+     * @throws FontFormatException if a font is unparseable
+     */
+    @Override
+    public Map<String, List<Font>> load(Collection<String> names) throws IOException, URISyntaxException, FontFormatException {
+        final Map<String, List<Font>> result = new LinkedHashMap<>();
+        if (names.isEmpty()) {
+            return result;
+        }
+        log.info("Fetching {} font(s) with one request: {}", names.size(), names);
+
+        final Map<String, List<Font>> byFamily =
+                new WebFontDownloader(computeDownloadUri(names).toString(), getCache()).getFontsByFamily();
+        final Map<String, List<Font>> byName = matchFamilies(List.copyOf(names), byFamily);
+        for (String name : names) {
+            final List<Font> fonts = byName.get(name);
+            if (fonts == null) {
+                log.warn("Couldn't find '{}' among the families {}; fetching it alone", name, byFamily.keySet());
+                result.put(name, new WebFontDownloader(computeDownloadUri(List.of(name)).toString(), getCache()).getFonts());
+            } else {
+                result.put(name, fonts);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Match the member names we asked a CSS request for to the families it declared.
+     *
+     * @param names    the member names, in the order we asked for them
+     * @param byFamily the fonts, by family name, in the order the CSS declared the families
+     * @return the fonts, by member name, for the members we could match
+     */
+    protected static Map<String, List<Font>> matchFamilies(List<String> names, Map<String, List<Font>> byFamily) {
+        final Map<String, List<Font>> result = new LinkedHashMap<>();
+
+        // match requested names to the families the CSS declared
+        final Map<String, String> familyByLowerCase = new HashMap<>();
+        byFamily.keySet().forEach(family -> familyByLowerCase.put(family.toLowerCase(Locale.ROOT), family));
+        final List<String> unmatchedNames = new LinkedList<>();
+        for (String name : names) {
+            final String family = familyByLowerCase.remove(name.toLowerCase(Locale.ROOT));
+            if (family == null) {
+                unmatchedNames.add(name);
+            } else {
+                result.put(name, byFamily.get(family));
+            }
+        }
+
+        // The service may answer to a name with a different family name (an alias).  It lists families in the order
+        // we asked for them, so if the leftovers pair up, match them by position.
+        final List<String> unmatchedFamilies = byFamily.keySet().stream().
+                filter(family -> familyByLowerCase.containsKey(family.toLowerCase(Locale.ROOT))).toList();
+        if (unmatchedNames.size() == unmatchedFamilies.size()) {
+            for (int i = 0; i < unmatchedNames.size(); i++) {
+                result.put(unmatchedNames.get(i), byFamily.get(unmatchedFamilies.get(i)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "WebFontSource{" +
+                "baseDownloadUri=" + baseDownloadUri +
+                '}';
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The character widths we've measured, by (base font, style, size, character), shared by all the {@link FontStack}s
+ * that resolve their members through one {@link FontRegistry}, which owns the memo.  Stacks that fall back on another
+ * stack share its fonts, through the registry, so when Noto Sans Mono and Noto Sans Display measure a CJK, Arabic, or
+ * symbol character in a Noto Sans member, they find the width Noto Sans already measured.
+ * <p>
+ * Because the memo outlives any one stack, measuring a stack a second time measures nothing.  To measure afresh (to
+ * compare two ways of measuring, say), {@link #clear()} the memo first, or give the stack its own with
+ * {@link FontStack#setWidthMemo(WidthMemo)}.
+ * <p>
+ * We keep the widths for each (font, style, size) in pages of 256 characters, which we allocate as we need them.
+ */
+public class WidthMemo {
+
+    /**
+     * In a page, we haven't measured the character.
+     */
+    public static final int UNKNOWN = -1;
+
+    private static final int PAGE_SIZE = 256;
+
+    private static final int PAGE_COUNT = 0x10000 / PAGE_SIZE;
+
+    private final Map<Key, Widths> widths = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * We compare base fonts by identity, as {@link FontRegistry} shares them.
+     *
+     * @param base  the base font
+     * @param style the style
+     * @param size  the size
+     */
+    private record Key(Font base, int style, float size) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && other.base == base && other.style == style && other.size == size;
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(base) * 31 + style) * 31 + Float.hashCode(size);
+        }
+    }
+
+    /**
+     * The widths of the characters of one (font, style, size).  Several threads may use one at once.  Two of them may
+     * both measure a character neither has seen, but they'll get the same width.
+     */
+    public class Widths {
+
+        private final AtomicReferenceArray<int[]> pages = new AtomicReferenceArray<>(PAGE_COUNT);
+
+        private Widths() {
+        }
+
+        /**
+         * Return the width of a character, if we've measured it.
+         *
+         * @param ch the character
+         * @return its width, or {@link #UNKNOWN}
+         */
+        public int get(char ch) {
+            final int[] page = pages.get(ch / PAGE_SIZE);
+            final int width = page == null ? UNKNOWN : page[ch % PAGE_SIZE];
+            (width == UNKNOWN ? misses : hits).increment();
+            return width;
+        }
+
+        /**
+         * Remember the width of a character.
+         *
+         * @param ch    the character
+         * @param width its width
+         */
+        public void put(char ch, int width) {
+            int[] page = pages.get(ch / PAGE_SIZE);
+            if (page == null) {
+                final int[] newPage = new int[PAGE_SIZE];
+                Arrays.fill(newPage, UNKNOWN);
+                page = pages.compareAndSet(ch / PAGE_SIZE, null, newPage) ? newPage : pages.get(ch / PAGE_SIZE);
+            }
+            page[ch % PAGE_SIZE] = width;
+        }
+    }
+
+    /**
+     * Return the widths of the characters of a font derived from the given one in the given style and size.
+     *
+     * @param base  the base font
+     * @param style the style, see {@link Font#getStyle()}
+     * @param size  the size
+     * @return the widths
+     */
+    public Widths widths(Font base, int style, float size) {
+        return widths.computeIfAbsent(new Key(base, style, size), key -> new Widths());
+    }
+
+    /**
+     * Return the number of times we knew a width.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Return the number of times we didn't know a width.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Forget all the widths.
+     */
+    public void clear() {
+        widths.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "WidthMemo{" +
+                "fonts=" + widths.size() +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                '}';
+    }
+}
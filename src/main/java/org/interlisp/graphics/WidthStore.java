@@ -0,0 +1,339 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.graphics;
+
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.unicode.XccsToUnicode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All the metrics of a run, for every (stack, size, style, charset), in a few compact arrays rather than as
+ * {@link WebCharsetMetrics} records with an <tt>int[256]</tt> each.
+ * <p>
+ * Most XCCS charsets map far fewer than 256 characters, so we keep a bitmap of the character codes each charset has,
+ * and store widths only for those, in code order (which is the order {@link WebCharsetMetrics#widths()} has them in).
+ * Widths are stored as <tt>char</tt>s; the rare width too big for one goes in an overflow table.
+ */
+public class WidthStore {
+
+    /**
+     * The number of styles: {@link java.awt.Font#PLAIN}, {@link java.awt.Font#BOLD}, {@link java.awt.Font#ITALIC}, and
+     * both.  A style is its own index.
+     */
+    private static final int STYLE_COUNT = 4;
+
+    /**
+     * In the widths, the width is in the overflow table.
+     */
+    private static final char OVERFLOW = Character.MAX_VALUE;
+
+    private final List<Integer> sizes;
+
+    private final int[] charsets;
+
+    /**
+     * For each charset number, its position in {@link #charsets}, or -1.
+     */
+    private final int[] charsetIndexes = new int[256];
+
+    /**
+     * For each charset, a bitmap of the character codes it has.
+     */
+    private final long[][] present;
+
+    /**
+     * For each charset, where its widths start among all the charsets' widths.
+     */
+    private final int[] charsetOffsets;
+
+    /**
+     * The number of widths in all the charsets: the size of one (stack, size, style)'s widths.
+     */
+    private final int widthsPerFont;
+
+    private final List<String> stackNames = new ArrayList<>();
+
+    /**
+     * For each stack, the widths for each (size, style, charset).
+     */
+    private final List<char[]> widths = new ArrayList<>();
+
+    /**
+     * For each stack, the maximum ascent, descent, and height of each (size, style, charset), and whether we have it.
+     */
+    private final List<int[]> charsetLineMetrics = new ArrayList<>();
+
+    /**
+     * For each stack, the line measurements of each (size, style) font, and whether we have them.
+     */
+    private final List<int[]> fontLineMetrics = new ArrayList<>();
+
+    /**
+     * Widths too big for a <tt>char</tt>, by their position in their stack's widths, per stack.
+     */
+    private final List<Map<Integer, Integer>> overflow = new ArrayList<>();
+
+    /**
+     * Create a store for the given sizes and the charsets XCCS maps.
+     *
+     * @param sizes         the sizes, in the order the callers will refer to them
+     * @param xccsToUnicode the XCCS mapping
+     */
+    public WidthStore(List<Integer> sizes, XccsToUnicode xccsToUnicode) {
+        this.sizes = List.copyOf(sizes);
+        charsets = xccsToUnicode.charsets().stream().mapToInt(Integer::intValue).toArray();
+        present = new long[charsets.length][4];
+        charsetOffsets = new int[charsets.length];
+        Arrays.fill(charsetIndexes, -1);
+        int offset = 0;
+        for (int c = 0; c < charsets.length; c++) {
+            charsetIndexes[charsets[c]] = c;
+            charsetOffsets[c] = offset;
+            for (int xccsChar : xccsToUnicode.charsetMembers(charsets[c])) {
+                final int code = XccsToUnicode.charCode(xccsChar);
+                present[c][code >>> 6] |= 1L << code;
+                offset++;
+            }
+        }
+        widthsPerFont = offset;
+    }
+
+    /**
+     * Make room for another stack's metrics.
+     *
+     * @param familyName the stack's family name
+     * @return the stack's index in the store
+     */
+    public synchronized int addStack(String familyName) {
+        final int fonts = sizes.size() * STYLE_COUNT;
+        stackNames.add(familyName);
+        widths.add(new char[fonts * widthsPerFont]);
+        charsetLineMetrics.add(new int[fonts * charsets.length * 4]);
+        fontLineMetrics.add(new int[fonts * 5]);
+        overflow.add(new HashMap<>());
+        return stackNames.size() - 1;
+    }
+
+    /**
+     * Return the index of the stack with the given family name.
+     *
+     * @param familyName the family name
+     * @return the index, or -1 if we don't have the stack
+     */
+    public synchronized int stackIndex(String familyName) {
+        return stackNames.indexOf(familyName);
+    }
+
+    /**
+     * Return the number of stacks.
+     *
+     * @return the number of stacks
+     */
+    public synchronized int stackCount() {
+        return stackNames.size();
+    }
+
+    /**
+     * Return the sizes, in order.
+     *
+     * @return the sizes
+     */
+    public List<Integer> getSizes() {
+        return sizes;
+    }
+
+    private int font(int sizeIndex, int style) {
+        return sizeIndex * STYLE_COUNT + style;
+    }
+
+    private int charsetIndex(int charset) {
+        final int index = charset >= 0 && charset < charsetIndexes.length ? charsetIndexes[charset] : -1;
+        if (index < 0) {
+            throw new IllegalArgumentException("No such charset: " + charset);
+        }
+        return index;
+    }
+
+    /**
+     * Store one charset's metrics for a stack at one size and style.
+     *
+     * @param stack     the stack's index
+     * @param sizeIndex the size's index
+     * @param style     the style, see {@link java.awt.Font#getStyle()}
+     * @param metrics   the metrics
+     */
+    public synchronized void put(int stack, int sizeIndex, int style, WebCharsetMetrics metrics) {
+        final int c = charsetIndex(metrics.charset());
+        final int font = font(sizeIndex, style);
+        final char[] stackWidths = widths.get(stack);
+        final int base = font * widthsPerFont + charsetOffsets[c];
+        final int count = memberCount(c);
+        for (int rank = 0; rank < count; rank++) {
+            final int width = metrics.widths()[rank];
+            if (width >= 0 && width < OVERFLOW) {
+                stackWidths[base + rank] = (char)width;
+            } else {
+                stackWidths[base + rank] = OVERFLOW;
+                overflow.get(stack).put(base + rank, width);
+            }
+        }
+        final int[] lineMetrics = charsetLineMetrics.get(stack);
+        final int at = (font * charsets.length + c) * 4;
+        lineMetrics[at] = metrics.maxAscent();
+        lineMetrics[at + 1] = metrics.maxDescent();
+        lineMetrics[at + 2] = metrics.maxHeight();
+        lineMetrics[at + 3] = 1;
+    }
+
+    /**
+     * Store a stack's line measurements at one size and style.
+     *
+     * @param stack        the stack's index
+     * @param sizeIndex    the size's index
+     * @param style        the style, see {@link java.awt.Font#getStyle()}
+     * @param measurements the measurements
+     */
+    public synchronized void put(int stack, int sizeIndex, int style, FontMetricsExtractor.FontMeasurements measurements) {
+        final int[] lineMetrics = fontLineMetrics.get(stack);
+        final int at = font(sizeIndex, style) * 5;
+        lineMetrics[at] = measurements.getHeight();
+        lineMetrics[at + 1] = measurements.getMaxAscent();
+        lineMetrics[at + 2] = measurements.getMaxDescent();
+        lineMetrics[at + 3] = measurements.getSlugWidth();
+        lineMetrics[at + 4] = 1;
+    }
+
+    /**
+     * Return the width of one character.
+     *
+     * @param stack     the stack's index
+     * @param sizeIndex the size's index
+     * @param style     the style, see {@link java.awt.Font#getStyle()}
+     * @param charset   the XCCS charset
+     * @param code      the character's code within the charset
+     * @return the width, or -1 if the charset has no such character
+     */
+    public synchronized int width(int stack, int sizeIndex, int style, int charset, int code) {
+        final int c = charsetIndex(charset);
+        final long[] bits = present[c];
+        if ((bits[code >>> 6] & (1L << code)) == 0) {
+            return -1;
+        }
+        // the character's rank is the number of characters in the charset below it
+        int rank = Long.bitCount(bits[code >>> 6] & ((1L << code) - 1));
+        for (int word = 0; word < code >>> 6; word++) {
+            rank += Long.bitCount(bits[word]);
+        }
+        return width(stack, font(sizeIndex, style) * widthsPerFont + charsetOffsets[c] + rank);
+    }
+
+    private int width(int stack, int position) {
+        final char width = widths.get(stack)[position];
+        return width == OVERFLOW ? overflow.get(stack).get(position) : width;
+    }
+
+    /**
+     * Return one charset's metrics for a stack at one size and style.
+     *
+     * @param stack     the stack's index
+     * @param sizeIndex the size's index
+     * @param style     the style, see {@link java.awt.Font#getStyle()}
+     * @param charset   the XCCS charset
+     * @return the metrics, or null if we don't have them
+     */
+    public synchronized WebCharsetMetrics get(int stack, int sizeIndex, int style, int charset) {
+        final int c = charsetIndex(charset);
+        final int font = font(sizeIndex, style);
+        final int[] lineMetrics = charsetLineMetrics.get(stack);
+        final int at = (font * charsets.length + c) * 4;
+        if (lineMetrics[at + 3] == 0) {
+            return null;
+        }
+        final int[] charsetWidths = new int[256];
+        final int base = font * widthsPerFont + charsetOffsets[c];
+        for (int rank = 0; rank < memberCount(c); rank++) {
+            charsetWidths[rank] = width(stack, base + rank);
+        }
+        return new WebCharsetMetrics(charset, lineMetrics[at], lineMetrics[at + 1], lineMetrics[at + 2], charsetWidths);
+    }
+
+    /**
+     * Return a stack's line measurements at one size and style.
+     *
+     * @param stack     the stack's index
+     * @param sizeIndex the size's index
+     * @param style     the style, see {@link java.awt.Font#getStyle()}
+     * @return the measurements, or null if we don't have them
+     */
+    public synchronized FontMetricsExtractor.FontMeasurements getMeasurements(int stack, int sizeIndex, int style) {
+        final int[] lineMetrics = fontLineMetrics.get(stack);
+        final int at = font(sizeIndex, style) * 5;
+        if (lineMetrics[at + 4] == 0) {
+            return null;
+        }
+        final FontMetricsExtractor.FontMeasurements measurements = new FontMetricsExtractor.FontMeasurements();
+        measurements.setValues(lineMetrics[at], lineMetrics[at + 1], lineMetrics[at + 2], lineMetrics[at + 3]);
+        return measurements;
+    }
+
+    /**
+     * Return a visitor that stores what a stack measures at one style.
+     *
+     * @param stack the stack's index
+     * @param style the style, see {@link java.awt.Font#getStyle()}
+     * @return the visitor
+     */
+    public CharsetMetricsVisitor recorder(int stack, int style) {
+        return new CharsetMetricsVisitor() {
+            @Override
+            public void visitCharset(int sizeIndex, WebCharsetMetrics metrics) {
+                put(stack, sizeIndex, style, metrics);
+            }
+
+            @Override
+            public void visitEnd(List<FontMetricsExtractor.FontMeasurements> measurements) {
+                for (int sizeIndex = 0; sizeIndex < measurements.size(); sizeIndex++) {
+                    put(stack, sizeIndex, style, measurements.get(sizeIndex));
+                }
+            }
+        };
+    }
+
+    private int memberCount(int c) {
+        final int end = c + 1 < charsets.length ? charsetOffsets[c + 1] : widthsPerFont;
+        return end - charsetOffsets[c];
+    }
+
+    /**
+     * Estimate how much memory we're using.
+     *
+     * @return the estimate, in bytes
+     */
+    public synchronized long estimatedBytes() {
+        long bytes = 0;
+        for (int stack = 0; stack < stackNames.size(); stack++) {
+            bytes += 2L * widths.get(stack).length + 4L * charsetLineMetrics.get(stack).length +
+                    4L * fontLineMetrics.get(stack).length + 48L * overflow.get(stack).size();
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "WidthStore{" +
+                "stacks=" + stackNames +
+                ", sizes=" + sizes.size() +
+                ", charsets=" + charsets.length +
+                ", widthsPerFont=" + widthsPerFont +
+                ", estimatedBytes=" + estimatedBytes() +
+                '}';
+    }
+}
@@ -7,6 +7,7 @@ package org.interlisp.io.font;
 
 import org.interlisp.io.sexp.LispList;
 import org.interlisp.io.sexp.Litatom;
+import org.interlisp.io.sexp.SExpEmitter;
 
 import java.awt.*;
 
@@ -56,9 +57,25 @@ public class ConvertToLisp {
      * @return a list of [weight slope expansion], e.g., <tt>(BOLD ITALIC REGULAR)</tt>
      */
     public LispList makeLispFaceTriple(int style) {
-        final Litatom weight = atom((style & Font.BOLD) != 0 ? "BOLD" : "MEDIUM");
-        final Litatom slope = atom((style & Font.ITALIC) != 0 ? "ITALIC" : "REGULAR");
-        return new LispList(weight, slope, REGULAR);
+        return new LispList(atom(weight(style)), atom(slope(style)), REGULAR);
+    }
+
+    /**
+     * Write the Interlisp font-face triple for a font's style and weight, as {@link #makeLispFaceTriple(int)} makes.
+     *
+     * @param emitter where to write it
+     * @param style   normal, italic, bold, etc., see {@link Font#getStyle()}
+     */
+    public void writeLispFaceTriple(SExpEmitter emitter, int style) {
+        emitter.beginList().atom(weight(style)).atom(slope(style)).atom("REGULAR").endList();
+    }
+
+    private static String weight(int style) {
+        return (style & Font.BOLD) != 0 ? "BOLD" : "MEDIUM";
+    }
+
+    private static String slope(int style) {
+        return (style & Font.ITALIC) != 0 ? "ITALIC" : "REGULAR";
     }
 
 }
@@ -6,6 +6,7 @@
 package org.interlisp.io.font;
 
 import org.interlisp.io.sexp.CanWriteSExp;
+import org.interlisp.io.sexp.SExpEmitter;
 
 import java.io.IOException;
 import java.io.Writer;
@@ -24,6 +25,15 @@ public record WebCharsetMetrics(int charset, int maxAscent, int maxDescent,
         ).write(w);
     }
 
+    @Override
+    public void write(SExpEmitter e) {
+        e.beginList()
+                .atom(":CHARSET").num(charset)
+                .atom(":MAX-ASCENT").num(maxAscent).atom(":MAX-DESCENT").num(maxDescent)
+                .atom(":XCCS-WIDTHS").list(widths)
+                .endList();
+    }
+
     @Override
     public String toString() {
         return "CharsetMetricsEntry{" +
@@ -6,16 +6,22 @@
 package org.interlisp.io.font;
 
 import org.interlisp.io.sexp.CanWriteSExp;
+import org.interlisp.io.sexp.LispList;
+import org.interlisp.io.sexp.LispString;
+import org.interlisp.io.sexp.SExpEmitter;
+import org.interlisp.io.sexp.SExpression;
 
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Collection;
+import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 import static org.interlisp.io.sexp.LispList.list;
 import static org.interlisp.io.sexp.LispList.pList;
 import static org.interlisp.io.sexp.LispNum.num;
+import static org.interlisp.io.sexp.Litatom.atom;
 
 /**
  * Write a standalone Web font metrics file for <tt>\\HTML.READ-FONT-METRICS</tt> to read.
@@ -40,8 +46,23 @@ public class WebFontDescr implements CanWriteSExp {
 
     private final SortedSet<Integer> charsets = new TreeSet<>();
 
+    private final List<String> charsetDigests;
+
     public WebFontDescr(String name, int size, int height, int style,
                         int maxAscent, int maxDescent, int slugWidth, Collection<Integer> charsets) {
+        this(name, size, height, style, maxAscent, maxDescent, slugWidth, charsets, List.of());
+    }
+
+    /**
+     * Create font metrics that refer to each charset's metrics by the digest of its table, as in the
+     * <tt>DEDUP</tt> layout.
+     *
+     * @param charsetDigests the digest of each charset's table, in charset order, or an empty list for none
+     * @throws IllegalArgumentException if there are digests, but not one per charset
+     */
+    public WebFontDescr(String name, int size, int height, int style,
+                        int maxAscent, int maxDescent, int slugWidth, Collection<Integer> charsets,
+                        List<String> charsetDigests) {
         this.name = name;
         this.size = size;
         this.height = height;
@@ -50,6 +71,11 @@ public class WebFontDescr implements CanWriteSExp {
         this.maxDescent = maxDescent;
         this.slugWidth = slugWidth;
         this.charsets.addAll(charsets);
+        if (!charsetDigests.isEmpty() && charsetDigests.size() != this.charsets.size()) {
+            throw new IllegalArgumentException(this.charsets.size() + " charsets, but " + charsetDigests.size() +
+                    " digests");
+        }
+        this.charsetDigests = List.copyOf(charsetDigests);
     }
 
     public String getName() {
@@ -84,15 +110,47 @@ public class WebFontDescr implements CanWriteSExp {
         return charsets;
     }
 
+    /**
+     * Return the digest of each charset's table.
+     *
+     * @return the digests, in charset order, or an empty list if we don't refer to the tables by digest
+     */
+    public List<String> getCharsetDigests() {
+        return charsetDigests;
+    }
+
     public void write(Writer w) throws IOException {
-        pList(":NAME", cvt.makeLispFamilyName(name), ":FACE", cvt.makeLispFaceTriple(style),
+        final LispList pList = pList(":NAME", cvt.makeLispFamilyName(name), ":FACE", cvt.makeLispFaceTriple(style),
                 ":SIZE", num(size), ":HEIGHT", num(height),
                 ":MAX-ASCENT", num(maxAscent), ":MAX-DESCENT", num(maxDescent),
                 ":SLUG-WIDTH", num(slugWidth),
-                ":CHARSETS", list(charsets)).write(w);
+                ":CHARSETS", list(charsets));
+        if (!charsetDigests.isEmpty()) {
+            pList.add(atom(":CHARSET-DIGESTS")).add(list(charsetDigests.stream().map(LispString::str)
+                    .toArray(SExpression[]::new)));
+        }
+        pList.write(w);
         w.write('\n');
     }
 
+    @Override
+    public void write(SExpEmitter e) {
+        e.beginList().atom(":NAME").atom(cvt.makeLispFamilyNameStr(name)).atom(":FACE");
+        cvt.writeLispFaceTriple(e, style);
+        e.atom(":SIZE").num(size).atom(":HEIGHT").num(height)
+                .atom(":MAX-ASCENT").num(maxAscent).atom(":MAX-DESCENT").num(maxDescent)
+                .atom(":SLUG-WIDTH").num(slugWidth)
+                .atom(":CHARSETS").list(charsets);
+        if (!charsetDigests.isEmpty()) {
+            e.atom(":CHARSET-DIGESTS").beginList();
+            for (String digest : charsetDigests) {
+                e.string(digest);
+            }
+            e.endList();
+        }
+        e.endList().newline();
+    }
+
     @Override
     public String toString() {
         return "WebFontDescr{" +
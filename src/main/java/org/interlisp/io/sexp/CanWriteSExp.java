@@ -22,4 +22,12 @@ public interface CanWriteSExp {
      */
     void write(Writer writer) throws IOException;
 
+    /**
+     * Write this as an s-expression, straight into an emitter's buffer.  The bytes must be what
+     * {@link #write(Writer)} writes.
+     *
+     * @param emitter the {@link SExpEmitter} we're writing to
+     */
+    void write(SExpEmitter emitter);
+
 }
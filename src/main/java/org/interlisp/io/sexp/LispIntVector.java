@@ -0,0 +1,126 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.io.sexp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+
+/**
+ * A list of integers, backed by an <tt>int[]</tt> rather than a {@link LispList} of boxed {@link LispNum}s.
+ * It writes the same characters a {@link LispList} of the same numbers would, a buffer-full at a time.
+ */
+public class LispIntVector implements SExpression {
+
+    /**
+     * The longest an int gets: 10 digits and a minus sign.
+     */
+    private static final int MAX_INT_CHARS = 11;
+
+    private static final char[] MIN_INT = Integer.toString(Integer.MIN_VALUE).toCharArray();
+
+    private final int[] ints;
+
+    /**
+     * Create a new vector.  We don't copy the array, so don't change it while we're in use.
+     *
+     * @param ints the integers
+     */
+    public LispIntVector(int[] ints) {
+        this.ints = ints;
+    }
+
+    /**
+     * A shorthand way to create a {@link LispIntVector}.
+     *
+     * @param ints the integers
+     * @return the {@link LispIntVector}
+     */
+    public static LispIntVector ints(int[] ints) {
+        return new LispIntVector(ints);
+    }
+
+    /**
+     * A shorthand way to create a {@link LispIntVector} from a {@link Collection} of integers.
+     *
+     * @param ints the integers
+     * @return the {@link LispIntVector}
+     */
+    public static LispIntVector ints(Collection<Integer> ints) {
+        final int[] array = new int[ints.size()];
+        int i = 0;
+        for (int value : ints) {
+            array[i++] = value;
+        }
+        return new LispIntVector(array);
+    }
+
+    public int size() {
+        return ints.length;
+    }
+
+    public int get(int index) {
+        return ints[index];
+    }
+
+    @Override
+    public void write(Writer w) throws IOException {
+        final char[] buffer = new char[Math.min(1 + ints.length * (MAX_INT_CHARS + 1), 1024) + 1];
+        buffer[0] = '(';
+        int length = 1;
+        for (int value : ints) {
+            if (length + MAX_INT_CHARS + 1 > buffer.length) {
+                w.write(buffer, 0, length);
+                length = 0;
+            }
+            length = format(value, buffer, length);
+            buffer[length++] = ' ';
+        }
+        if (length == buffer.length) {
+            w.write(buffer, 0, length);
+            length = 0;
+        }
+        buffer[length++] = ')';
+        w.write(buffer, 0, length);
+    }
+
+    /**
+     * Put the decimal representation of an integer into a buffer, the way {@link Integer#toString(int)} writes it.
+     *
+     * @param value  the integer
+     * @param buffer the buffer, with room for {@value MAX_INT_CHARS} more chars
+     * @param pos    where to start
+     * @return the position after the last digit
+     */
+    static int format(int value, char[] buffer, int pos) {
+        if (value == Integer.MIN_VALUE) {
+            System.arraycopy(MIN_INT, 0, buffer, pos, MIN_INT.length);
+            return pos + MIN_INT.length;
+        }
+        if (value < 0) {
+            buffer[pos++] = '-';
+            value = -value;
+        }
+        int end = pos;
+        for (int rest = value; rest >= 10; rest /= 10) {
+            end++;
+        }
+        end++;
+        int digit = end;
+        do {
+            buffer[--digit] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return "LispIntVector{" +
+                "size=" + ints.length +
+                '}';
+    }
+}
@@ -9,7 +9,6 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.*;
 
-import static org.interlisp.io.sexp.LispNum.num;
 import static org.interlisp.io.sexp.Litatom.atom;
 
 public class LispList implements SExpression {
@@ -54,27 +53,25 @@ public class LispList implements SExpression {
     }
 
     /**
-     * Shorthand to create a new {@link LispList} from an array of int.
+     * Shorthand to create a list from an array of int.  We don't box the integers; the result is a
+     * {@link LispIntVector}, which writes the same as a {@link LispList} of them would.
      *
      * @param ints the array of integers
-     * @return the new {@link LispList}
+     * @return the new {@link LispIntVector}
      */
-    public static LispList list(int[] ints) {
-        final LispList lispList = new LispList();
-        Arrays.stream(ints).forEach(i -> lispList.add(num(i)));
-        return lispList;
+    public static LispIntVector list(int[] ints) {
+        return LispIntVector.ints(ints);
     }
 
     /**
-     * Shorthand to create a new {@link LispList} from a {@link Collection} int.
+     * Shorthand to create a list from a {@link Collection} of integers.  We don't keep the boxed integers; the
+     * result is a {@link LispIntVector}, which writes the same as a {@link LispList} of them would.
      *
-     * @param ints the array of integers
-     * @return the new {@link LispList}
+     * @param ints the integers
+     * @return the new {@link LispIntVector}
      */
-    public static LispList list(Collection<Integer> ints) {
-        final LispList lispList = new LispList();
-        ints.forEach(i -> lispList.add(num(i)));
-        return lispList;
+    public static LispIntVector list(Collection<Integer> ints) {
+        return LispIntVector.ints(ints);
     }
 
     /**
@@ -0,0 +1,318 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.io.sexp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Write s-expressions straight into a reusable byte buffer, without building a tree of {@link SExpression}s first.
+ * The bytes are the same as writing the equivalent {@link SExpression} to a UTF-8 {@link java.io.Writer}: every
+ * element of a list is followed by a space, so <tt>(:FORMAT 2)</tt> comes out as <tt>(:FORMAT 2 )</tt>.
+ * <p>
+ * Our metrics are ASCII, so most characters go into the buffer as they are.  {@link #writeTo(WritableByteChannel)}
+ * hands the buffer to a channel (e.g., a {@link java.nio.channels.FileChannel}) with no charset encoder in between.
+ * Call {@link #reset()} to reuse the buffer for the next file.
+ * <p>
+ * An emitter is not thread-safe.
+ */
+public final class SExpEmitter {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private static final byte[] MIN_INT = Integer.toString(Integer.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buffer;
+
+    private int length;
+
+    /**
+     * How many lists we're inside.
+     */
+    private int depth;
+
+    public SExpEmitter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an emitter.
+     *
+     * @param capacity the initial size of the buffer, in bytes
+     */
+    public SExpEmitter(int capacity) {
+        buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    /**
+     * Start a list.
+     *
+     * @return this
+     */
+    public SExpEmitter beginList() {
+        ensure(1);
+        buffer[length++] = '(';
+        depth++;
+        return this;
+    }
+
+    /**
+     * Finish the innermost list.
+     *
+     * @return this
+     * @throws IllegalStateException if we're not in a list
+     */
+    public SExpEmitter endList() {
+        if (depth == 0) {
+            throw new IllegalStateException("Not in a list");
+        }
+        depth--;
+        ensure(1);
+        buffer[length++] = ')';
+        return endElement();
+    }
+
+    /**
+     * Write a literal atom, like {@link Litatom}.
+     *
+     * @param name the atom's package and p-name
+     * @return this
+     */
+    public SExpEmitter atom(String name) {
+        chars(name, false);
+        return endElement();
+    }
+
+    /**
+     * Write a string, like {@link LispString}.
+     *
+     * @param str the string
+     * @return this
+     */
+    public SExpEmitter string(String str) {
+        ensure(1);
+        buffer[length++] = '"';
+        chars(str, true);
+        ensure(1);
+        buffer[length++] = '"';
+        return endElement();
+    }
+
+    /**
+     * Write an integer, like {@link LispNum}.
+     *
+     * @param value the integer
+     * @return this
+     */
+    public SExpEmitter num(int value) {
+        if (value == Integer.MIN_VALUE) {
+            ensure(MIN_INT.length);
+            System.arraycopy(MIN_INT, 0, buffer, length, MIN_INT.length);
+            length += MIN_INT.length;
+            return endElement();
+        }
+        ensure(11);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        final int end = length + digits(value);
+        int pos = end;
+        do {
+            buffer[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        length = end;
+        return endElement();
+    }
+
+    /**
+     * Write a list of integers, like {@link LispList#list(int[])}.
+     *
+     * @param values the integers
+     * @return this
+     */
+    public SExpEmitter list(int[] values) {
+        beginList();
+        for (int value : values) {
+            num(value);
+        }
+        return endList();
+    }
+
+    /**
+     * Write a list of integers, like {@link LispList#list(Collection)}.
+     *
+     * @param values the integers
+     * @return this
+     */
+    public SExpEmitter list(Collection<Integer> values) {
+        beginList();
+        for (int value : values) {
+            num(value);
+        }
+        return endList();
+    }
+
+    /**
+     * Write what another emitter has written.
+     *
+     * @param other the other emitter
+     * @return this
+     */
+    public SExpEmitter append(SExpEmitter other) {
+        ensure(other.length);
+        System.arraycopy(other.buffer, 0, buffer, length, other.length);
+        length += other.length;
+        return this;
+    }
+
+    /**
+     * Write a newline.
+     *
+     * @return this
+     */
+    public SExpEmitter newline() {
+        ensure(1);
+        buffer[length++] = '\n';
+        return this;
+    }
+
+    /**
+     * Forget what we've written, keeping the buffer.
+     *
+     * @return this
+     */
+    public SExpEmitter reset() {
+        length = 0;
+        depth = 0;
+        return this;
+    }
+
+    /**
+     * Return the number of bytes we've written.
+     *
+     * @return the number
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Return a copy of what we've written.
+     *
+     * @return the bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Return a view of what we've written, which is good until we write again.
+     *
+     * @return the bytes, from position 0 to the limit
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(buffer, 0, length);
+    }
+
+    /**
+     * Return whether we've written exactly the bytes between a buffer's position and its limit.
+     *
+     * @param bytes the buffer
+     * @return true if so
+     */
+    public boolean contentEquals(ByteBuffer bytes) {
+        return ByteBuffer.wrap(buffer, 0, length).equals(bytes);
+    }
+
+    /**
+     * Write what we've written to a channel.
+     *
+     * @param channel the channel
+     * @throws IOException if there's an I/O problem
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * Return what we've written, as a string.
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private SExpEmitter endElement() {
+        if (depth > 0) {
+            ensure(1);
+            buffer[length++] = ' ';
+        }
+        return this;
+    }
+
+    /**
+     * Write the characters of a string in UTF-8.
+     *
+     * @param str          the string
+     * @param escapeQuotes whether to put a backslash before each <tt>"</tt>, as {@link LispString} does
+     */
+    private void chars(String str, boolean escapeQuotes) {
+        final int n = str.length();
+        // at most two bytes for an escaped quote, three for any other char
+        ensure(3 * n);
+        for (int i = 0; i < n; i++) {
+            final char ch = str.charAt(i);
+            if (ch < 0x80) {
+                if (escapeQuotes && ch == '"') {
+                    buffer[length++] = '\\';
+                }
+                buffer[length++] = (byte) ch;
+            } else if (ch < 0x800) {
+                buffer[length++] = (byte) (0xC0 | ch >> 6);
+                buffer[length++] = (byte) (0x80 | ch & 0x3F);
+            } else if (Character.isHighSurrogate(ch) && i + 1 < n && Character.isLowSurrogate(str.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(ch, str.charAt(++i));
+                buffer[length++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[length++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(ch)) {
+                // what the UTF-8 encoder writes for a lone surrogate
+                buffer[length++] = '?';
+            } else {
+                buffer[length++] = (byte) (0xE0 | ch >> 12);
+                buffer[length++] = (byte) (0x80 | ch >> 6 & 0x3F);
+                buffer[length++] = (byte) (0x80 | ch & 0x3F);
+            }
+        }
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void ensure(int more) {
+        if (length + more > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + more));
+        }
+    }
+}
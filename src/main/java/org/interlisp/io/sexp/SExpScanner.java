@@ -0,0 +1,320 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.io.sexp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read the tokens of s-expressions, as written by {@link SExpression}s and {@link SExpEmitter}, from a
+ * {@link ByteBuffer}, typically a memory-mapped file.  We don't build a tree, and we don't allocate anything per
+ * token: the caller asks for the next token and looks at it in place, with {@link #intValue()} or
+ * {@link #atomIs(String)}, and only {@link #text()} makes a {@link String}.
+ * <p>
+ * We read what we write, not all of Interlisp's syntax: lists, atoms, decimal integers, and strings in which a
+ * backslash quotes the next character.  Atoms and strings are UTF-8.
+ * <p>
+ * A scanner is not thread-safe.
+ */
+public final class SExpScanner {
+
+    /**
+     * The kinds of token.
+     */
+    public enum Token {
+        OPEN, CLOSE, ATOM, NUMBER, STRING, EOF
+    }
+
+    private final ByteBuffer input;
+
+    private final int limit;
+
+    private int pos;
+
+    private Token token;
+
+    /**
+     * Where the current atom or string's bytes start and end.  For strings, the bytes still contain escapes.
+     */
+    private int textStart;
+
+    private int textEnd;
+
+    private int intValue;
+
+    /**
+     * Where {@link #nextIntList()} collects its integers.
+     */
+    private int[] ints = new int[256];
+
+    /**
+     * Scan the input from its position to its limit.
+     *
+     * @param input the input
+     */
+    public SExpScanner(ByteBuffer input) {
+        this.input = input;
+        this.pos = input.position();
+        this.limit = input.limit();
+    }
+
+    /**
+     * Move to the next token.
+     *
+     * @return the token's kind
+     * @throws IOException if the input isn't a token we understand
+     */
+    public Token next() throws IOException {
+        while (pos < limit && isWhitespace(input.get(pos))) {
+            pos++;
+        }
+        if (pos == limit) {
+            return token = Token.EOF;
+        }
+        final byte b = input.get(pos);
+        switch (b) {
+            case '(' -> {
+                pos++;
+                return token = Token.OPEN;
+            }
+            case ')' -> {
+                pos++;
+                return token = Token.CLOSE;
+            }
+            case '"' -> {
+                return token = scanString();
+            }
+            default -> {
+                if (isDigit(b) || (b == '-' && pos + 1 < limit && isDigit(input.get(pos + 1)))) {
+                    return token = scanNumber();
+                }
+                textStart = pos;
+                while (pos < limit && !isDelimiter(input.get(pos))) {
+                    pos++;
+                }
+                textEnd = pos;
+                return token = Token.ATOM;
+            }
+        }
+    }
+
+    /**
+     * Return the kind of the current token.
+     *
+     * @return the kind
+     */
+    public Token token() {
+        return token;
+    }
+
+    /**
+     * Return the value of the current {@link Token#NUMBER}.
+     *
+     * @return the value
+     */
+    public int intValue() {
+        return intValue;
+    }
+
+    /**
+     * Return whether the current token is the given atom.
+     *
+     * @param name the atom's name, in ASCII
+     * @return true if it is
+     */
+    public boolean atomIs(String name) {
+        if (token != Token.ATOM || textEnd - textStart != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (input.get(textStart + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the text of the current {@link Token#ATOM} or {@link Token#STRING}, without a string's quotes and
+     * escapes.
+     *
+     * @return the text
+     */
+    public String text() {
+        final byte[] bytes = new byte[textEnd - textStart];
+        int length = 0;
+        for (int i = textStart; i < textEnd; i++) {
+            final byte b = input.get(i);
+            if (token == Token.STRING && b == '\\') {
+                i++;
+                bytes[length++] = input.get(i);
+            } else {
+                bytes[length++] = b;
+            }
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Return where we are in the input.
+     *
+     * @return the position
+     */
+    public int position() {
+        return pos;
+    }
+
+    /**
+     * Move to the next token, which must be of the given kind.
+     *
+     * @param expected the kind we expect
+     * @throws IOException if it's some other kind
+     */
+    public void expect(Token expected) throws IOException {
+        if (next() != expected) {
+            throw error("Expected " + expected);
+        }
+    }
+
+    /**
+     * Move to the next token, which must be the given atom.
+     *
+     * @param name the atom's name
+     * @throws IOException if it's something else
+     */
+    public void expectAtom(String name) throws IOException {
+        next();
+        if (!atomIs(name)) {
+            throw error("Expected " + name);
+        }
+    }
+
+    /**
+     * Read an integer.
+     *
+     * @return the integer
+     * @throws IOException if the next token isn't one
+     */
+    public int nextInt() throws IOException {
+        expect(Token.NUMBER);
+        return intValue;
+    }
+
+    /**
+     * Read a list of integers.
+     *
+     * @return the integers
+     * @throws IOException if the next token isn't a list of integers
+     */
+    public int[] nextIntList() throws IOException {
+        expect(Token.OPEN);
+        int count = 0;
+        while (next() == Token.NUMBER) {
+            if (count == ints.length) {
+                ints = Arrays.copyOf(ints, count * 2);
+            }
+            ints[count++] = intValue;
+        }
+        if (token != Token.CLOSE) {
+            throw error("Expected a number or " + Token.CLOSE);
+        }
+        return Arrays.copyOf(ints, count);
+    }
+
+    /**
+     * Read a list of strings.
+     *
+     * @return the strings
+     * @throws IOException if the next token isn't a list of strings
+     */
+    public List<String> nextStringList() throws IOException {
+        expect(Token.OPEN);
+        final List<String> strings = new ArrayList<>();
+        while (next() == Token.STRING) {
+            strings.add(text());
+        }
+        if (token != Token.CLOSE) {
+            throw error("Expected a string or " + Token.CLOSE);
+        }
+        return strings;
+    }
+
+    /**
+     * Make an exception that says what's wrong with the current token and where it is.
+     *
+     * @param message what's wrong
+     * @return the exception
+     */
+    public IOException error(String message) {
+        return new IOException(message + ", got " + token + describeToken() + " before offset " + pos);
+    }
+
+    private String describeToken() {
+        return switch (token) {
+            case ATOM, STRING -> " " + text();
+            case NUMBER -> " " + intValue;
+            default -> "";
+        };
+    }
+
+    private Token scanString() throws IOException {
+        // skip the opening quote
+        pos++;
+        textStart = pos;
+        while (pos < limit) {
+            final byte b = input.get(pos);
+            if (b == '"') {
+                textEnd = pos++;
+                return Token.STRING;
+            }
+            pos += b == '\\' ? 2 : 1;
+        }
+        token = Token.EOF;
+        throw error("Unterminated string starting at offset " + (textStart - 1));
+    }
+
+    private Token scanNumber() throws IOException {
+        final boolean negative = input.get(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        long value = 0;
+        while (pos < limit && isDigit(input.get(pos))) {
+            value = value * 10 + (input.get(pos++) - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                token = Token.EOF;
+                throw error("Integer too large");
+            }
+        }
+        if (pos < limit && !isDelimiter(input.get(pos))) {
+            token = Token.EOF;
+            throw error("Expected a digit or delimiter in a number");
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            token = Token.EOF;
+            throw error("Integer too large");
+        }
+        intValue = (int) value;
+        return Token.NUMBER;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return isWhitespace(b) || b == '(' || b == ')' || b == '"';
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.tools;
+
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.io.font.WebFontDescr;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.interlisp.tools.BinaryMetricsWriter.*;
+
+/**
+ * Read, in place, the binary metrics {@link BinaryMetricsWriter} writes.  We check the header and the tables' headers
+ * when we're created; after that, looking up a width is a few offset calculations, a bit count, and a read.
+ */
+public final class BinaryMetricsReader {
+
+    private final ByteBuffer contents;
+
+    private final int charsetCount;
+
+    /**
+     * Read binary metrics from a file, which we memory-map.
+     *
+     * @param file the file
+     * @return the reader
+     * @throws IOException if we can't read the file, or it isn't binary metrics
+     */
+    public static BinaryMetricsReader open(Path file) throws IOException {
+        try {
+            return new BinaryMetricsReader(WebMetricsReader.map(file));
+        } catch (IOException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read binary metrics from a buffer.
+     *
+     * @param contents the bytes, from the buffer's position to its limit
+     * @throws IOException if they aren't binary metrics
+     */
+    public BinaryMetricsReader(ByteBuffer contents) throws IOException {
+        this.contents = contents.slice().order(ByteOrder.LITTLE_ENDIAN);
+        final int length = this.contents.limit();
+        if (length < NAME_OFFSET || !this.contents.slice(0, MAGIC.length).equals(ByteBuffer.wrap(MAGIC))) {
+            throw new IOException("Not binary metrics");
+        }
+        if (this.contents.getInt(4) != VERSION) {
+            throw new IOException("Expected version " + VERSION + ", got " + this.contents.getInt(4));
+        }
+        final int headerLength = this.contents.getInt(8);
+        charsetCount = this.contents.getInt(36);
+        final int tablesLength = this.contents.getInt(40);
+        final int nameLength = this.contents.getInt(44);
+        if (nameLength < 0 || headerLength < NAME_OFFSET + nameLength || charsetCount < 0 || charsetCount > 256 ||
+                tablesLength < 0 || (long) headerLength + tablesLength != length) {
+            throw new IOException("Inconsistent header");
+        }
+        int present = 0;
+        long tablesEnd = headerLength;
+        for (int charset = 0; charset < 256; charset++) {
+            if (hasCharset(charset)) {
+                present++;
+                // the tables are in charset order, one after another
+                if (table(charset) != tablesEnd) {
+                    throw new IOException("Bad offset for charset " + charset);
+                }
+                tablesEnd += checkTable(charset, length);
+            } else if (table(charset) != 0) {
+                throw new IOException("Offset for missing charset " + charset);
+            }
+        }
+        if (present != charsetCount) {
+            throw new IOException("Expected " + charsetCount + " charsets, found " + present);
+        }
+        if (tablesEnd != length) {
+            throw new IOException("Expected " + length + " bytes, found " + tablesEnd);
+        }
+    }
+
+    /**
+     * Check a charset's table.
+     *
+     * @param charset the charset
+     * @param length  the length of the file
+     * @return the table's length
+     * @throws IOException if the table is inconsistent
+     */
+    private long checkTable(int charset, int length) throws IOException {
+        final int table = table(charset);
+        if (table > length - TABLE_HEADER_LENGTH || contents.getInt(table) != charset) {
+            throw new IOException("Bad table for charset " + charset);
+        }
+        final int widthCount = contents.getInt(table + 16);
+        final int overflowCount = contents.getInt(table + 20);
+        if (widthCount < 0 || widthCount > MAX_WIDTHS || overflowCount < 0 || overflowCount > widthCount) {
+            throw new IOException("Bad width count for charset " + charset);
+        }
+        int stored = 0;
+        for (int word = 0; word < MAX_WIDTHS / 64; word++) {
+            final long bits = contents.getLong(table + TABLE_BITMAP_OFFSET + 8 * word);
+            if ((contents.get(table + TABLE_BASES_OFFSET + word) & 0xFF) != stored) {
+                throw new IOException("Bad rank base for charset " + charset);
+            }
+            stored += Long.bitCount(bits);
+            if (bits != 0 && 64 * word + 63 - Long.numberOfLeadingZeros(bits) >= widthCount) {
+                throw new IOException("Width bitmap of charset " + charset + " goes past its widths");
+            }
+        }
+        final long tableLength = TABLE_HEADER_LENGTH + (2L * stored + 3) / 4 * 4 + 8L * overflowCount;
+        if (table + tableLength > length) {
+            throw new IOException("Table of charset " + charset + " goes past the end");
+        }
+        int overflows = 0;
+        for (int rank = 0; rank < stored; rank++) {
+            if (contents.getChar(table + TABLE_HEADER_LENGTH + 2 * rank) == OVERFLOW) {
+                overflows++;
+            }
+        }
+        if (overflows != overflowCount) {
+            throw new IOException("Expected " + overflowCount + " overflow entries for charset " + charset + ", found " +
+                    overflows);
+        }
+        return tableLength;
+    }
+
+    /**
+     * Return whether we have a charset's metrics.
+     *
+     * @param charset the charset
+     * @return true if so
+     */
+    public boolean hasCharset(int charset) {
+        return charset >= 0 && charset < 256 && (contents.get(BITMAP_OFFSET + charset / 8) & 1 << (charset % 8)) != 0;
+    }
+
+    /**
+     * Return the charsets we have.
+     *
+     * @return the charsets, in order
+     */
+    public List<Integer> charsets() {
+        final List<Integer> result = new ArrayList<>(charsetCount);
+        for (int charset = 0; charset < 256; charset++) {
+            if (hasCharset(charset)) {
+                result.add(charset);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return a width.
+     *
+     * @param charset the charset
+     * @param index   the index in its table
+     * @return the width
+     * @throws IndexOutOfBoundsException if we don't have the charset, or its table has no such index
+     */
+    public int width(int charset, int index) {
+        if (!hasCharset(charset)) {
+            throw new IndexOutOfBoundsException("No charset " + charset);
+        }
+        final int table = table(charset);
+        if (index < 0 || index >= contents.getInt(table + 16)) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return tableWidth(table, index);
+    }
+
+    private int tableWidth(int table, int index) {
+        final int word = index >>> 6;
+        final long bits = contents.getLong(table + TABLE_BITMAP_OFFSET + 8 * word);
+        if ((bits & 1L << index) == 0) {
+            return 0;
+        }
+        // the width's rank is the number of widths stored before it
+        final int rank = (contents.get(table + TABLE_BASES_OFFSET + word) & 0xFF) +
+                Long.bitCount(bits & ((1L << index) - 1));
+        final int width = contents.getChar(table + TABLE_HEADER_LENGTH + 2 * rank);
+        return width == OVERFLOW ? overflowWidth(table, index) : width;
+    }
+
+    private int overflowWidth(int table, int index) {
+        final int stored = (contents.get(table + TABLE_BASES_OFFSET + 3) & 0xFF) +
+                Long.bitCount(contents.getLong(table + TABLE_BITMAP_OFFSET + 24));
+        final int overflow = table + TABLE_HEADER_LENGTH + (2 * stored + 3) / 4 * 4;
+        for (int entry = 0; entry < contents.getInt(table + 20); entry++) {
+            if (contents.getInt(overflow + 8 * entry) == index) {
+                return contents.getInt(overflow + 8 * entry + 4);
+            }
+        }
+        throw new IllegalStateException("No overflow entry for width " + index);
+    }
+
+    /**
+     * Return a charset's metrics.
+     *
+     * @param charset the charset
+     * @return the metrics, or null if we don't have them
+     */
+    public WebCharsetMetrics charsetMetrics(int charset) {
+        if (!hasCharset(charset)) {
+            return null;
+        }
+        final int table = table(charset);
+        final int[] widths = new int[contents.getInt(table + 16)];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = tableWidth(table, i);
+        }
+        return new WebCharsetMetrics(charset, contents.getInt(table + 4), contents.getInt(table + 8),
+                contents.getInt(table + 12), widths);
+    }
+
+    /**
+     * Return the font's metrics.
+     *
+     * @return the metrics
+     */
+    public WebFontDescr fontDescr() {
+        final byte[] name = new byte[contents.getInt(44)];
+        contents.get(NAME_OFFSET, name);
+        return new WebFontDescr(new String(name, StandardCharsets.UTF_8), contents.getInt(12), contents.getInt(20),
+                contents.getInt(16), contents.getInt(24), contents.getInt(28), contents.getInt(32), charsets());
+    }
+
+    /**
+     * Return the metrics of all our charsets.
+     *
+     * @return the metrics, in charset order
+     */
+    public List<WebCharsetMetrics> allCharsetMetrics() {
+        return charsets().stream().map(this::charsetMetrics).toList();
+    }
+
+    private int table(int charset) {
+        return contents.getInt(OFFSETS_OFFSET + 4 * charset);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.tools;
+
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.io.font.WebFontDescr;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Write a font's metrics and those of all its charsets in a binary form a reader can memory-map and use in place.
+ * Every field is a little-endian 32-bit int unless noted.
+ * <pre>
+ *    0  magic, the ASCII bytes <tt>WFMB</tt>
+ *    4  format version, {@value #VERSION}
+ *    8  header length: where the charset tables start
+ *   12  size
+ *   16  style, see {@link java.awt.Font#getStyle()}
+ *   20  height
+ *   24  max ascent
+ *   28  max descent
+ *   32  slug width
+ *   36  number of charsets
+ *   40  the length of all the charset tables
+ *   44  name length, in bytes
+ *   48  charset bitmap: 32 bytes, in which bit <i>c</i> % 8 of byte <i>c</i> / 8 is set if charset <i>c</i> is here
+ *   80  charset offsets: 256 of them, the offset in the file of each charset's table (and 0 for those not here)
+ * 1104  the name, in UTF-8, padded with zeros to a multiple of 4 bytes
+ * </pre>
+ * Then come the charset tables, in the order of their charsets.  Most of a table's widths are zero, for codes the
+ * charset doesn't have or no font displays, so, like {@link org.interlisp.graphics.WidthStore}, we keep a bitmap of
+ * the widths that aren't, and store only those, as unsigned 16-bit ints.  Each table:
+ * <pre>
+ *    0  charset
+ *    4  max ascent
+ *    8  max descent
+ *   12  max height
+ *   16  number of widths, at most 256
+ *   20  number of overflow entries
+ *   24  width bitmap: 32 bytes, in which bit <i>i</i> % 8 of byte <i>i</i> / 8 is set if the width at <i>i</i> is
+ *       stored; the others are 0.  Read as four little-endian 64-bit words, bit <i>i</i> % 64 of word <i>i</i> / 64.
+ *   56  rank bases: 4 unsigned bytes, the number of widths stored before each 64-bit word of the bitmap
+ *   60  the stored widths, in order, as unsigned 16-bit ints, {@value #OVERFLOW} for one in the overflow entries;
+ *       then zeros, to a multiple of 4 bytes
+ *       the overflow entries, in order of index: each an index and its width
+ * </pre>
+ * So the width at <i>index</i> in a table at <i>t</i>, if its bit is set, is the 16-bit int at
+ * <tt>t + 60 + 2 * (base[index / 64] + bitCount(word[index / 64] &amp; ((1L &lt;&lt; index) - 1)))</tt>.
+ */
+public class BinaryMetricsWriter {
+
+    /**
+     * The bytes every file starts with.
+     */
+    public static final byte[] MAGIC = "WFMB".getBytes(StandardCharsets.US_ASCII);
+
+    public static final int VERSION = 1;
+
+    /**
+     * A stored width that's in the overflow entries: negative, or too big for 16 bits.
+     */
+    public static final int OVERFLOW = 0xFFFF;
+
+    static final int BITMAP_OFFSET = 48;
+
+    static final int OFFSETS_OFFSET = BITMAP_OFFSET + 32;
+
+    static final int NAME_OFFSET = OFFSETS_OFFSET + 4 * 256;
+
+    static final int TABLE_BITMAP_OFFSET = 24;
+
+    static final int TABLE_BASES_OFFSET = TABLE_BITMAP_OFFSET + 32;
+
+    static final int TABLE_HEADER_LENGTH = TABLE_BASES_OFFSET + 4;
+
+    static final int MAX_WIDTHS = 256;
+
+    private BinaryMetricsWriter() {
+    }
+
+    /**
+     * Return the binary form of a font's metrics.
+     *
+     * @param font     the font's metrics
+     * @param charsets the metrics of its charsets; they must be the charsets the font lists
+     * @return the bytes, from position 0 to the limit
+     * @throws IllegalArgumentException if the charsets aren't the ones the font lists, or one has more than 256 widths
+     */
+    public static ByteBuffer write(WebFontDescr font, List<WebCharsetMetrics> charsets) {
+        final Map<Integer, WebCharsetMetrics> byCharset = new TreeMap<>();
+        for (WebCharsetMetrics metrics : charsets) {
+            if (metrics.charset() < 0 || metrics.charset() > 255 || byCharset.put(metrics.charset(), metrics) != null) {
+                throw new IllegalArgumentException("Bad or repeated charset " + metrics.charset());
+            }
+            if (metrics.widths().length > MAX_WIDTHS) {
+                throw new IllegalArgumentException("Charset " + metrics.charset() + " has " +
+                        metrics.widths().length + " widths");
+            }
+        }
+        if (!byCharset.keySet().equals(font.getCharsets())) {
+            throw new IllegalArgumentException("The font lists charsets " + font.getCharsets() + ", but we have " +
+                    byCharset.keySet());
+        }
+        final List<WebCharsetMetrics> tables = new ArrayList<>(byCharset.values());
+        final int tablesLength = tables.stream().mapToInt(BinaryMetricsWriter::tableLength).sum();
+        final byte[] name = font.getName().getBytes(StandardCharsets.UTF_8);
+        final int headerLength = NAME_OFFSET + (name.length + 3) / 4 * 4;
+
+        final ByteBuffer out = ByteBuffer.allocate(headerLength + tablesLength).order(ByteOrder.LITTLE_ENDIAN);
+        out.put(MAGIC)
+                .putInt(VERSION)
+                .putInt(headerLength)
+                .putInt(font.getSize())
+                .putInt(font.getStyle())
+                .putInt(font.getHeight())
+                .putInt(font.getMaxAscent())
+                .putInt(font.getMaxDescent())
+                .putInt(font.getSlugWidth())
+                .putInt(tables.size())
+                .putInt(tablesLength)
+                .putInt(name.length);
+        out.put(NAME_OFFSET, name);
+        int table = headerLength;
+        for (WebCharsetMetrics metrics : tables) {
+            final int charset = metrics.charset();
+            final int bitmapByte = BITMAP_OFFSET + charset / 8;
+            out.put(bitmapByte, (byte) (out.get(bitmapByte) | 1 << (charset % 8)));
+            out.putInt(OFFSETS_OFFSET + 4 * charset, table);
+            writeTable(out.position(table), metrics);
+            table += tableLength(metrics);
+        }
+        return out.clear();
+    }
+
+    /**
+     * Write a charset's table at the buffer's position.
+     */
+    private static void writeTable(ByteBuffer out, WebCharsetMetrics metrics) {
+        final int table = out.position();
+        final int[] widths = metrics.widths();
+        final long[] bitmap = new long[MAX_WIDTHS / 64];
+        int overflowCount = 0;
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] != 0) {
+                bitmap[i >>> 6] |= 1L << i;
+                if (isOverflow(widths[i])) {
+                    overflowCount++;
+                }
+            }
+        }
+        out.putInt(metrics.charset())
+                .putInt(metrics.maxAscent())
+                .putInt(metrics.maxDescent())
+                .putInt(metrics.maxHeight())
+                .putInt(widths.length)
+                .putInt(overflowCount);
+        int stored = 0;
+        for (long word : bitmap) {
+            out.putLong(word);
+        }
+        for (long word : bitmap) {
+            out.put((byte) stored);
+            stored += Long.bitCount(word);
+        }
+        for (int width : widths) {
+            if (width != 0) {
+                out.putShort((short) (isOverflow(width) ? OVERFLOW : width));
+            }
+        }
+        out.position(table + TABLE_HEADER_LENGTH + (2 * stored + 3) / 4 * 4);
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] != 0 && isOverflow(widths[i])) {
+                out.putInt(i).putInt(widths[i]);
+            }
+        }
+    }
+
+    /**
+     * Return the length of a charset's table.
+     */
+    private static int tableLength(WebCharsetMetrics metrics) {
+        int stored = 0;
+        int overflowCount = 0;
+        for (int width : metrics.widths()) {
+            if (width != 0) {
+                stored++;
+                if (isOverflow(width)) {
+                    overflowCount++;
+                }
+            }
+        }
+        return TABLE_HEADER_LENGTH + (2 * stored + 3) / 4 * 4 + 8 * overflowCount;
+    }
+
+    private static boolean isOverflow(int width) {
+        return width < 0 || width >= OVERFLOW;
+    }
+}
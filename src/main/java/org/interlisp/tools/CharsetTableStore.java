@@ -0,0 +1,123 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.tools;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Keeps track of the charset tables written in the {@link MetricsProcessor.Layout#DEDUP} layout.  Many tables are
+ * the same byte for byte: a charset served entirely by a fallback font shared between stacks, a charset in a font
+ * whose bold face is its regular one, or a charset with no characters we can display.  So we name each table's file
+ * by the SHA-256 digest of its contents, write each distinct table once, and count what we saved.
+ * <p>
+ * Share one store between all the processors of a run, so they share tables.  A store is thread-safe.
+ */
+public class CharsetTableStore {
+
+    private final Set<String> stored = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder tables = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final LongAdder storedBytes = new LongAdder();
+
+    /**
+     * Return the SHA-256 digest of a table.
+     *
+     * @param table the serialized table, from its position to its limit, which we leave as they are
+     * @return the digest, in lower-case hex
+     */
+    public static String digest(ByteBuffer table) {
+        try {
+            final MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(table.duplicate());
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Return the name of the file that holds a table.
+     *
+     * @param digest the table's digest
+     * @return the file name
+     */
+    public static String fileName(String digest) {
+        return digest + "." + MetricsProcessor.WEB_CHARSET_METRICS_EXT;
+    }
+
+    /**
+     * Count a table, and say whether it's new.
+     *
+     * @param digest the table's digest
+     * @param length its length, in bytes
+     * @return true if we haven't seen it before, so the caller must write it
+     */
+    public boolean add(String digest, int length) {
+        tables.increment();
+        bytes.add(length);
+        if (stored.add(digest)) {
+            storedBytes.add(length);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Return the number of tables we've counted.
+     *
+     * @return the number
+     */
+    public long getTables() {
+        return tables.sum();
+    }
+
+    /**
+     * Return the number of distinct tables, the ones written.
+     *
+     * @return the number
+     */
+    public int getStoredTables() {
+        return stored.size();
+    }
+
+    /**
+     * Return the bytes in all the tables we've counted.
+     *
+     * @return the number of bytes
+     */
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * Return the bytes in the distinct tables.
+     *
+     * @return the number of bytes
+     */
+    public long getStoredBytes() {
+        return storedBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        final long total = getBytes();
+        final long saved = total - getStoredBytes();
+        return format("%d charset tables stored as %d distinct tables; %d of %d bytes (%.1f%%) saved",
+                getTables(), getStoredTables(), saved, total, total == 0 ? 0.0 : 100.0 * saved / total);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Write each metrics file to a directory.
+ */
+public class DirectorySink implements MetricsSink {
+
+    private final File dir;
+
+    /**
+     * Create a sink.
+     *
+     * @param dir the directory, which must exist
+     */
+    public DirectorySink(File dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public void write(String name, ByteBuffer content) throws IOException {
+        try (final FileChannel channel = FileChannel.open(new File(dir, name).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return "DirectorySink{" +
+                "dir=" + dir +
+                '}';
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.tools;
+
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.io.font.WebFontDescr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Convert a directory of s-expression metrics, in any layout, to binary metrics files, one per font; see
+ * {@link BinaryMetricsWriter}.  We convert the fonts in parallel.
+ */
+public class MetricsConverter {
+
+    /**
+     * Convert every font in a directory.
+     *
+     * @param fromDir the s-expression files
+     * @param toDir   where to write the binary files
+     * @return the number of fonts we converted
+     * @throws IOException if we can't read or write a file
+     */
+    public int toBinary(Path fromDir, Path toDir) throws IOException {
+        final List<Path> fonts;
+        try (final Stream<Path> all = Files.list(fromDir)) {
+            fonts = all.filter(file -> isFontFile(file.getFileName().toString())).sorted().toList();
+        }
+        Files.createDirectories(toDir);
+        try {
+            fonts.parallelStream().forEach(file -> {
+                try {
+                    convert(file, toDir);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return fonts.size();
+    }
+
+    private static void convert(Path fontFile, Path toDir) throws IOException {
+        final String name = fontFile.getFileName().toString();
+        final String baseName = name.substring(0, name.lastIndexOf('.'));
+        final WebFontDescr font;
+        final List<WebCharsetMetrics> charsets;
+        if (name.endsWith("." + MetricsProcessor.WEB_COMBINED_METRICS_EXT)) {
+            final WebMetricsReader.CombinedMetrics combined = WebMetricsReader.readCombined(WebMetricsReader.map(fontFile));
+            font = combined.font();
+            charsets = combined.charsets();
+        } else {
+            if (!(WebMetricsReader.read(fontFile) instanceof WebFontDescr descr)) {
+                throw new IOException(fontFile + " doesn't hold font metrics");
+            }
+            font = descr;
+            charsets = new ArrayList<>();
+            final List<String> digests = font.getCharsetDigests();
+            int i = 0;
+            for (int charset : font.getCharsets()) {
+                // in the dedup layout, the font names each charset's table by its digest
+                final Path charsetFile = fontFile.resolveSibling(digests.isEmpty() ?
+                        baseName + "-" + charset + "." + MetricsProcessor.WEB_CHARSET_METRICS_EXT :
+                        CharsetTableStore.fileName(digests.get(i++)));
+                if (!(WebMetricsReader.read(charsetFile) instanceof WebCharsetMetrics metrics) ||
+                        metrics.charset() != charset) {
+                    throw new IOException(charsetFile + " doesn't hold the metrics of charset " + charset);
+                }
+                charsets.add(metrics);
+            }
+        }
+        final ByteBuffer bytes = BinaryMetricsWriter.write(font, charsets);
+        try (final FileChannel channel = FileChannel.open(
+                toDir.resolve(baseName + "." + MetricsProcessor.WEB_BINARY_METRICS_EXT),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    private static boolean isFontFile(String name) {
+        return name.endsWith("." + MetricsProcessor.WEB_FONT_METRICS_EXT) ||
+                name.endsWith("." + MetricsProcessor.WEB_COMBINED_METRICS_EXT);
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.tools;
+
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.io.font.WebFontDescr;
+import org.interlisp.io.sexp.CanWriteSExp;
+import org.interlisp.unicode.XccsToUnicode;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * Compare two directories of metrics files, value by value, to see what changed between two runs (e.g., when the
+ * fonts are updated).  We pair the files by name, read each pair with {@link WebMetricsReader} in parallel, and
+ * compare their ascents, descents, heights, slug widths, charsets, and every width.
+ * <p>
+ * Either directory may be in the {@link MetricsProcessor.Layout#DEDUP} layout.  There, we compare each charset table
+ * a font's metrics name by digest under the name it would have in the {@link MetricsProcessor.Layout#FILES} layout,
+ * so a dedup directory compares with another, or with a files directory, charset by charset.
+ * <p>
+ * Either may also be in the {@link MetricsProcessor.Layout#COMBINED} layout.  We compare the font's metrics in each
+ * combined file under the name of its font metrics file in the files layout, and each charset's under the name of its
+ * charset metrics file, so every layout compares with every other.
+ */
+public class MetricsDiff {
+
+    /**
+     * Picks apart a name made by {@link MetricsProcessor}, like <tt>NOTO-SANS-MONO-10-BOLD-ITALIC-REGULAR-33.wcm</tt>.
+     * The family name may contain hyphens, so we match the fields after it.
+     */
+    private static final Pattern FILE_NAME = Pattern.compile("^(.+)-(\\d+)-([A-Z]+)-([A-Z]+)-([A-Z]+)(?:-(\\d+))?\\.(" +
+            MetricsProcessor.WEB_CHARSET_METRICS_EXT + "|" + MetricsProcessor.WEB_FONT_METRICS_EXT + "|" +
+            MetricsProcessor.WEB_COMBINED_METRICS_EXT + ")$");
+
+    private static final String TSV_HEADER = "file\tfamily\tsize\tweight\tslope\tcharset\tstatus\tfield\tindex\txccs\told\tnew";
+
+    /**
+     * What happened to a file.
+     */
+    public enum Status {
+        SAME, CHANGED, ADDED, REMOVED
+    }
+
+    /**
+     * One value that changed.
+     *
+     * @param field    the property, e.g., <tt>XCCS-WIDTHS</tt> or <tt>MAX-ASCENT</tt>
+     * @param index    for widths, the index in the table; for charsets, the charset; otherwise -1
+     * @param xccsCode for widths, the XCCS character whose width it is, if we know it; otherwise -1
+     * @param oldValue the old value, or -1 if there was none
+     * @param newValue the new value, or -1 if there is none
+     */
+    public record Change(String field, int index, int xccsCode, int oldValue, int newValue) {
+
+        public int delta() {
+            return newValue - oldValue;
+        }
+    }
+
+    /**
+     * How a file differs.
+     *
+     * @param name    the file name
+     * @param status  what happened to it
+     * @param changes what changed in it, if it's in both directories
+     */
+    public record FileDiff(String name, Status status, List<Change> changes) {
+
+        public boolean isCharsetMetrics() {
+            return name.endsWith("." + MetricsProcessor.WEB_CHARSET_METRICS_EXT);
+        }
+
+        /**
+         * Return the number of widths that changed.
+         *
+         * @return the number
+         */
+        public long changedWidths() {
+            return changes.stream().filter(change -> change.field().equals("XCCS-WIDTHS")).count();
+        }
+
+        /**
+         * Return the largest change in a width, up or down.
+         *
+         * @return its absolute value
+         */
+        public int maxWidthDelta() {
+            return changes.stream().filter(change -> change.field().equals("XCCS-WIDTHS"))
+                    .mapToInt(change -> Math.abs(change.delta())).max().orElse(0);
+        }
+    }
+
+    /**
+     * The differences between two directories.
+     *
+     * @param files every file in either directory, sorted by name
+     */
+    public record Result(List<FileDiff> files) {
+
+        public long count(Status status) {
+            return files.stream().filter(file -> file.status() == status).count();
+        }
+
+        /**
+         * Write a compact summary.
+         *
+         * @param writer where to write it
+         * @param top    how many of the most-changed files to list
+         */
+        public void writeSummary(PrintWriter writer, int top) {
+            writer.print(format("Compared %d files: %d same, %d changed, %d added, %d removed\n", files.size(),
+                    count(Status.SAME), count(Status.CHANGED), count(Status.ADDED), count(Status.REMOVED)));
+            final List<FileDiff> changed = files.stream().filter(file -> file.status() == Status.CHANGED).toList();
+            if (changed.isEmpty()) {
+                return;
+            }
+            final Map<String, Long> changesByField = new TreeMap<>();
+            for (FileDiff file : changed) {
+                for (Change change : file.changes()) {
+                    changesByField.merge(change.field(), 1L, Long::sum);
+                }
+            }
+            writer.print(format("Changed values: %s\n", changesByField));
+            writer.print(format("Largest width change: %d\n",
+                    changed.stream().mapToInt(FileDiff::maxWidthDelta).max().orElse(0)));
+            writer.print("Most-changed charset tables:\n");
+            changed.stream().filter(FileDiff::isCharsetMetrics)
+                    .sorted(Comparator.comparingLong(FileDiff::changedWidths).reversed()
+                            .thenComparing(Comparator.comparingInt(FileDiff::maxWidthDelta).reversed()))
+                    .limit(top)
+                    .forEach(file -> writer.print(format("  %s: %d widths, largest change %d\n", file.name(),
+                            file.changedWidths(), file.maxWidthDelta())));
+        }
+
+        /**
+         * Write a tab-separated report, with a line for each file added or removed and for each value that changed.
+         *
+         * @param writer where to write it
+         */
+        public void writeReport(PrintWriter writer) {
+            writer.print(TSV_HEADER);
+            writer.print('\n');
+            for (FileDiff file : files) {
+                final Matcher matcher = FILE_NAME.matcher(file.name());
+                final String fields = matcher.matches() ?
+                        String.join("\t", matcher.group(1), matcher.group(2), matcher.group(3), matcher.group(4),
+                                matcher.group(6) == null ? "" : matcher.group(6)) :
+                        "\t\t\t\t";
+                switch (file.status()) {
+                    case SAME -> {
+                    }
+                    case ADDED, REMOVED ->
+                            writer.print(format("%s\t%s\t%s\t\t\t\t\t\n", file.name(), fields, file.status()));
+                    case CHANGED -> {
+                        for (Change change : file.changes()) {
+                            writer.print(format("%s\t%s\t%s\t%s\t%s\t%s\t%d\t%d\n", file.name(), fields,
+                                    file.status(), change.field(),
+                                    change.index() < 0 ? "" : Integer.toString(change.index()),
+                                    change.xccsCode() < 0 ? "" : format("0x%04X", change.xccsCode()),
+                                    change.oldValue(), change.newValue()));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the metrics we compare under one name, from wherever they are.
+     */
+    @FunctionalInterface
+    private interface MetricsLoader {
+        CanWriteSExp load() throws IOException;
+    }
+
+    private final XccsToUnicode xccsToUnicode;
+
+    /**
+     * The XCCS codes of each charset's members, in the order of its width table.
+     */
+    private final Map<Integer, int[]> membersByCharset = new ConcurrentHashMap<>();
+
+    /**
+     * Create a diff.
+     *
+     * @param xccsToUnicode the mapping that tells us which character each width belongs to, or null to report only
+     *                      the index of each width
+     */
+    public MetricsDiff(XccsToUnicode xccsToUnicode) {
+        this.xccsToUnicode = xccsToUnicode;
+    }
+
+    /**
+     * Compare the metrics files in two directories.
+     *
+     * @param oldDir the old files
+     * @param newDir the new files
+     * @return how they differ
+     * @throws IOException if we can't read a directory or a file
+     */
+    public Result diff(Path oldDir, Path newDir) throws IOException {
+        final Map<String, MetricsLoader> oldFiles = metricsFiles(oldDir);
+        final Map<String, MetricsLoader> newFiles = metricsFiles(newDir);
+        final SortedSet<String> names = new TreeSet<>(oldFiles.keySet());
+        names.addAll(newFiles.keySet());
+        try {
+            return new Result(names.parallelStream().map(name -> {
+                try {
+                    return diffFile(name, oldFiles.get(name), newFiles.get(name));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private FileDiff diffFile(String name, MetricsLoader oldFile, MetricsLoader newFile) throws IOException {
+        if (oldFile == null) {
+            return new FileDiff(name, Status.ADDED, List.of());
+        }
+        if (newFile == null) {
+            return new FileDiff(name, Status.REMOVED, List.of());
+        }
+        final CanWriteSExp oldMetrics = oldFile.load();
+        final CanWriteSExp newMetrics = newFile.load();
+        final List<Change> changes = new ArrayList<>();
+        if (oldMetrics instanceof WebCharsetMetrics oldCharset && newMetrics instanceof WebCharsetMetrics newCharset) {
+            diffCharsetMetrics(oldCharset, newCharset, changes);
+        } else if (oldMetrics instanceof WebFontDescr oldFont && newMetrics instanceof WebFontDescr newFont) {
+            diffFontDescr(oldFont, newFont, changes);
+        } else {
+            throw new IOException(name + " holds different kinds of metrics");
+        }
+        return new FileDiff(name, changes.isEmpty() ? Status.SAME : Status.CHANGED, changes);
+    }
+
+    private void diffCharsetMetrics(WebCharsetMetrics oldMetrics, WebCharsetMetrics newMetrics, List<Change> changes) {
+        diffValue("CHARSET", oldMetrics.charset(), newMetrics.charset(), changes);
+        diffValue("MAX-ASCENT", oldMetrics.maxAscent(), newMetrics.maxAscent(), changes);
+        diffValue("MAX-DESCENT", oldMetrics.maxDescent(), newMetrics.maxDescent(), changes);
+        final int[] oldWidths = oldMetrics.widths();
+        final int[] newWidths = newMetrics.widths();
+        final int[] members = members(newMetrics.charset());
+        for (int i = 0; i < Math.max(oldWidths.length, newWidths.length); i++) {
+            final int oldWidth = i < oldWidths.length ? oldWidths[i] : -1;
+            final int newWidth = i < newWidths.length ? newWidths[i] : -1;
+            if (oldWidth != newWidth) {
+                changes.add(new Change("XCCS-WIDTHS", i, i < members.length ? members[i] : -1, oldWidth, newWidth));
+            }
+        }
+    }
+
+    private static void diffFontDescr(WebFontDescr oldDescr, WebFontDescr newDescr, List<Change> changes) {
+        diffValue("SIZE", oldDescr.getSize(), newDescr.getSize(), changes);
+        diffValue("HEIGHT", oldDescr.getHeight(), newDescr.getHeight(), changes);
+        diffValue("MAX-ASCENT", oldDescr.getMaxAscent(), newDescr.getMaxAscent(), changes);
+        diffValue("MAX-DESCENT", oldDescr.getMaxDescent(), newDescr.getMaxDescent(), changes);
+        diffValue("SLUG-WIDTH", oldDescr.getSlugWidth(), newDescr.getSlugWidth(), changes);
+        // we compare the tables the charset digests name as charset files, not the digests themselves
+        final SortedSet<Integer> charsets = new TreeSet<>(oldDescr.getCharsets());
+        charsets.addAll(newDescr.getCharsets());
+        for (int charset : charsets) {
+            final boolean inOld = oldDescr.getCharsets().contains(charset);
+            final boolean inNew = newDescr.getCharsets().contains(charset);
+            if (inOld != inNew) {
+                changes.add(new Change("CHARSETS", charset, -1, inOld ? 1 : 0, inNew ? 1 : 0));
+            }
+        }
+    }
+
+    private static void diffValue(String field, int oldValue, int newValue, List<Change> changes) {
+        if (oldValue != newValue) {
+            changes.add(new Change(field, -1, -1, oldValue, newValue));
+        }
+    }
+
+    /**
+     * Return the XCCS codes of a charset's members, in the order of its width table.
+     */
+    private int[] members(int charset) {
+        // look in the cache first: charsets() copies the whole set of charsets
+        final int[] members = membersByCharset.get(charset);
+        if (members != null) {
+            return members;
+        }
+        if (xccsToUnicode == null || !xccsToUnicode.charsets().contains(charset)) {
+            return new int[0];
+        }
+        return membersByCharset.computeIfAbsent(charset,
+                c -> xccsToUnicode.charsetMembers(c).stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Return the metrics in a directory, by the names we compare them under: a file's own, or for a charset table in
+     * the dedup layout, the name it would have in the files layout.  The tables' own names, their digests, we leave
+     * out.  A combined file we split into its font's metrics and each charset's, under their names in the files
+     * layout.
+     *
+     * @param dir the directory
+     * @return how to read each name's metrics
+     * @throws IOException if we can't read the directory, a font's metrics, or a combined file's header, a font names a
+     *                     table that isn't there, or two files hold the metrics for one name
+     */
+    private static Map<String, MetricsLoader> metricsFiles(Path dir) throws IOException {
+        final Map<String, MetricsLoader> result = new TreeMap<>();
+        for (String name : metricsFileNames(dir)) {
+            final Path file = dir.resolve(name);
+            if (name.endsWith("." + MetricsProcessor.WEB_COMBINED_METRICS_EXT)) {
+                addCombined(result, file,
+                        name.substring(0, name.length() - MetricsProcessor.WEB_COMBINED_METRICS_EXT.length() - 1));
+                continue;
+            }
+            add(result, name, () -> WebMetricsReader.read(file), file);
+            if (!name.endsWith("." + MetricsProcessor.WEB_FONT_METRICS_EXT) ||
+                    !(WebMetricsReader.read(file) instanceof WebFontDescr descr) ||
+                    descr.getCharsetDigests().isEmpty()) {
+                continue;
+            }
+            final List<String> digests = descr.getCharsetDigests();
+            if (digests.size() != descr.getCharsets().size()) {
+                throw new IOException(file + " lists " + descr.getCharsets().size() + " charsets but " +
+                        digests.size() + " digests");
+            }
+            final String prefix = name.substring(0, name.length() - MetricsProcessor.WEB_FONT_METRICS_EXT.length() - 1);
+            int i = 0;
+            for (int charset : descr.getCharsets()) {
+                final Path table = dir.resolve(CharsetTableStore.fileName(digests.get(i++)));
+                if (!Files.exists(table)) {
+                    throw new IOException(file + " names table " + table.getFileName() + " for charset " + charset +
+                            ", which isn't there");
+                }
+                add(result, prefix + "-" + charset + "." + MetricsProcessor.WEB_CHARSET_METRICS_EXT,
+                        () -> WebMetricsReader.read(table), file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add the font's and each charset's metrics in a combined file.  We read its header now, and each section only
+     * when we compare it.
+     *
+     * @param metrics where to add them
+     * @param file    the file
+     * @param prefix  its name, less the extension
+     * @throws IOException if we can't read the header, or another file holds the metrics for one of the names
+     */
+    private static void addCombined(Map<String, MetricsLoader> metrics, Path file, String prefix) throws IOException {
+        final ByteBuffer contents = WebMetricsReader.map(file);
+        final WebMetricsReader.CombinedIndex index;
+        try {
+            index = WebMetricsReader.readCombinedIndex(contents);
+        } catch (IOException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+        add(metrics, prefix + "." + MetricsProcessor.WEB_FONT_METRICS_EXT,
+                () -> WebMetricsReader.readCombinedFont(contents, index), file);
+        final int[] charsetIndex = index.charsetIndex();
+        for (int i = 0; i < charsetIndex.length; i += 3) {
+            final int charset = charsetIndex[i];
+            add(metrics, prefix + "-" + charset + "." + MetricsProcessor.WEB_CHARSET_METRICS_EXT,
+                    () -> WebMetricsReader.readCombinedCharset(contents, index, charset), file);
+        }
+    }
+
+    private static void add(Map<String, MetricsLoader> metrics, String name, MetricsLoader loader, Path file)
+            throws IOException {
+        if (metrics.putIfAbsent(name, loader) != null) {
+            throw new IOException(file + " holds the metrics for " + name + ", which another file already has");
+        }
+    }
+
+    private static List<String> metricsFileNames(Path dir) throws IOException {
+        try (final Stream<Path> all = Files.list(dir)) {
+            return all.map(file -> file.getFileName().toString())
+                    .filter(name -> FILE_NAME.matcher(name).matches())
+                    .toList();
+        }
+    }
+}
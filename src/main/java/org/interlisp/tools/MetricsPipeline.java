@@ -0,0 +1,260 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.tools;
+
+import org.interlisp.graphics.FontStack;
+import org.interlisp.graphics.WidthStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Generate the metrics for a series of font stacks in stages, each on its own virtual thread, so that loading the
+ * next stack, measuring the current one, and writing its files all happen at once:
+ * <ol>
+ *     <li><b>fetch</b>: load (download and parse) each stack's fonts</li>
+ *     <li><b>resolve</b>: work out which font displays each XCCS character (its
+ *     {@link org.interlisp.graphics.ResolutionPlan})</li>
+ *     <li><b>measure</b>: measure each (stack, style) at all sizes, serializing each file as soon as we have what
+ *     goes in it, just as {@link MetricsProcessor#writeStackMetrics()} does</li>
+ *     <li><b>write</b>: write the files</li>
+ * </ol>
+ * The stages are connected by bounded queues, so a fast stage waits for a slow one rather than piling up work.
+ */
+public class MetricsPipeline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsPipeline.class);
+
+    /**
+     * By default, let this many items wait between each pair of stages.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 2;
+
+    private final MetricsSink sink;
+
+    private final int fontScale;
+
+    private final List<Integer> sizes;
+
+    private final int queueCapacity;
+
+    private MetricsProcessor.Layout layout = MetricsProcessor.Layout.FILES;
+
+    /**
+     * Shared by all the stacks' processors, so they share charset tables.
+     */
+    private final CharsetTableStore tableStore = new CharsetTableStore();
+
+    private WidthStore widthStore;
+
+    /**
+     * A metrics file, ready to write.
+     *
+     * @param name    the file name
+     * @param content what goes in it
+     */
+    private record MetricsFile(String name, byte[] content) {
+    }
+
+    /**
+     * Create a pipeline.
+     *
+     * @param dir           where to write the metrics files
+     * @param fontScale     scale the font sizes by this factor
+     * @param sizes         the font sizes, in points
+     * @param queueCapacity how many items may wait between each pair of stages
+     */
+    public MetricsPipeline(File dir, int fontScale, List<Integer> sizes, int queueCapacity) {
+        this(new DirectorySink(dir), fontScale, sizes, queueCapacity);
+    }
+
+    /**
+     * Create a pipeline that writes the files to a sink, such as an archive.
+     *
+     * @param sink          where to write the metrics files
+     * @param fontScale     scale the font sizes by this factor
+     * @param sizes         the font sizes, in points
+     * @param queueCapacity how many items may wait between each pair of stages
+     */
+    public MetricsPipeline(MetricsSink sink, int fontScale, List<Integer> sizes, int queueCapacity) {
+        this.sink = sink;
+        this.fontScale = fontScale;
+        this.sizes = sizes;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Create a pipeline with the default queue capacity.
+     *
+     * @param dir       where to write the metrics files
+     * @param fontScale scale the font sizes by this factor
+     * @param sizes     the font sizes, in points
+     */
+    public MetricsPipeline(File dir, int fontScale, List<Integer> sizes) {
+        this(dir, fontScale, sizes, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Set how we lay out the files.
+     *
+     * @param layout the layout
+     */
+    public void setLayout(MetricsProcessor.Layout layout) {
+        this.layout = Objects.requireNonNull(layout);
+    }
+
+    /**
+     * Return the store of the charset tables we've written in the {@link MetricsProcessor.Layout#DEDUP} layout.
+     *
+     * @return the store
+     */
+    public CharsetTableStore getTableStore() {
+        return tableStore;
+    }
+
+    /**
+     * Also keep the metrics we write in the given store.
+     *
+     * @param widthStore the store, or null to keep nothing
+     * @see MetricsProcessor#setWidthStore
+     */
+    public void setWidthStore(WidthStore widthStore) {
+        this.widthStore = widthStore;
+    }
+
+    /**
+     * Load, measure, and write the metrics of each stack.  We call the loaders one after another, in order, so a
+     * loader may use a stack an earlier one loaded (as a fallback, say).
+     *
+     * @param stackLoaders the loaders of the stacks
+     * @throws IOException if any stage fails
+     */
+    public void run(List<Callable<FontStack>> stackLoaders) throws IOException {
+        final BlockingQueue<Optional<FontStack>> loaded = new ArrayBlockingQueue<>(queueCapacity);
+        final BlockingQueue<Optional<MetricsProcessor>> resolved = new ArrayBlockingQueue<>(queueCapacity);
+        final BlockingQueue<Optional<MetricsFile>> serialized = new ArrayBlockingQueue<>(queueCapacity);
+
+        try (final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final CompletionService<Void> stages = new ExecutorCompletionService<>(executor);
+            stages.submit(() -> {
+                for (Callable<FontStack> loader : stackLoaders) {
+                    final FontStack stack = loader.call();
+                    LOG.info("Fetched {}", stack);
+                    loaded.put(Optional.of(stack));
+                }
+                loaded.put(Optional.empty());
+                return null;
+            });
+            stages.submit(() -> {
+                for (Optional<FontStack> stack = loaded.take(); stack.isPresent(); stack = loaded.take()) {
+                    stack.get().getResolutionPlan();
+                    final MetricsProcessor processor = new MetricsProcessor(sink, stack.get(), fontScale, sizes);
+                    processor.setLayout(layout);
+                    processor.setTableStore(tableStore);
+                    processor.setWidthStore(widthStore);
+                    resolved.put(Optional.of(processor));
+                }
+                resolved.put(Optional.empty());
+                return null;
+            });
+            stages.submit(() -> {
+                final MetricsSink toWriter = queueSink(serialized);
+                for (Optional<MetricsProcessor> processor = resolved.take(); processor.isPresent(); processor = resolved.take()) {
+                    for (int style : MetricsProcessor.STYLES) {
+                        processor.get().writeStyleMetrics(style, toWriter);
+                    }
+                    processor.get().logStatistics();
+                }
+                serialized.put(Optional.empty());
+                return null;
+            });
+            stages.submit(() -> {
+                for (Optional<MetricsFile> file = serialized.take(); file.isPresent(); file = serialized.take()) {
+                    sink.write(file.get().name(), ByteBuffer.wrap(file.get().content()));
+                }
+                return null;
+            });
+
+            awaitStages(stages, 4, executor);
+        }
+    }
+
+    /**
+     * Return a sink that copies each file onto a queue, waiting for room if it's full.
+     *
+     * @param queue the queue
+     * @return the sink
+     */
+    private static MetricsSink queueSink(BlockingQueue<Optional<MetricsFile>> queue) {
+        return new MetricsSink() {
+            @Override
+            public void write(String name, ByteBuffer content) throws IOException {
+                final byte[] bytes = new byte[content.remaining()];
+                content.get(bytes);
+                try {
+                    queue.put(Optional.of(new MetricsFile(name, bytes)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted writing " + name);
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Wait for all the stages to finish.  If one fails, stop the others, which may be waiting on it forever, and throw
+     * its exception.
+     *
+     * @param stages   the stages
+     * @param count    how many there are
+     * @param executor what they run on
+     * @throws IOException if a stage failed
+     */
+    private static void awaitStages(CompletionService<Void> stages, int count, ExecutorService executor) throws IOException {
+        try {
+            for (int i = 0; i < count; i++) {
+                stages.take().get();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
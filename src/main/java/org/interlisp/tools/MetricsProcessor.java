@@ -5,21 +5,25 @@
  */
 package org.interlisp.tools;
 
+import org.interlisp.graphics.CharsetMetricsVisitor;
 import org.interlisp.graphics.FontMetricsExtractor;
 import org.interlisp.graphics.FontStack;
 import org.interlisp.graphics.FontUtils;
+import org.interlisp.graphics.WidthStore;
 import org.interlisp.io.font.ConvertToLisp;
 import org.interlisp.io.font.WebCharsetMetrics;
 import org.interlisp.io.font.WebFontDescr;
+import org.interlisp.io.sexp.CanWriteSExp;
+import org.interlisp.io.sexp.SExpEmitter;
 import org.interlisp.unicode.XccsToUnicode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import static java.awt.Font.*;
 
@@ -31,7 +35,40 @@ public class MetricsProcessor {
 
     public static final String WEB_CHARSET_METRICS_EXT = "wcm";
 
-    private static final int[] STYLES = new int[]{PLAIN, BOLD, ITALIC, BOLD + ITALIC};
+    public static final String WEB_COMBINED_METRICS_EXT = "wfc";
+
+    /**
+     * The extension of the binary files {@link MetricsConverter} writes.
+     */
+    public static final String WEB_BINARY_METRICS_EXT = "wfb";
+
+    /**
+     * How we lay out the metrics files.
+     */
+    public enum Layout {
+        /**
+         * A font metrics file for each font, and a charset metrics file for each of its charsets.
+         */
+        FILES,
+        /**
+         * One combined file for each font, with an index of its charsets; see
+         * {@link WebMetricsWriter#writeCombinedFile}.
+         * <p>
+         * The file starts with its index, which gives the length of the font metrics, and we don't have those until
+         * we've measured every charset.  Our sinks can't seek back (an archive can't), so we keep all of a style's
+         * charset metrics, at every size, until we've measured the style, rather than writing each charset as it's
+         * measured as the other layouts do.  We keep them in our {@link WidthStore}, two bytes per character XCCS
+         * maps, and write the files from there; if we weren't given a store, we make our own for the stack.
+         */
+        COMBINED,
+        /**
+         * A font metrics file for each font, which names its charsets' tables by their digests, and a file for each
+         * distinct table; see {@link CharsetTableStore}.
+         */
+        DEDUP
+    }
+
+    static final int[] STYLES = new int[]{PLAIN, BOLD, ITALIC, BOLD + ITALIC};
 
     public static final String NO_EXPANSION = "REGULAR";
 
@@ -43,12 +80,40 @@ public class MetricsProcessor {
 
     private final List<Integer> sizes;
 
-    private final File dir;
+    private final MetricsSink sink;
 
     private final int fontScale;
 
+    private WidthStore widthStore;
+
+    /**
+     * Our stack's index in {@link #widthStore}.
+     */
+    private int storeIndex = -1;
+
+    private Layout layout = Layout.FILES;
+
+    private CharsetTableStore tableStore = new CharsetTableStore();
+
+    /**
+     * Serializes the files we write.  Guarded by <tt>this</tt>.
+     */
+    private final SExpEmitter emitter = new SExpEmitter();
+
     public MetricsProcessor(File dir, FontStack stack, int fontScale, List<Integer> sizes) {
-        this.dir = dir;
+        this(new DirectorySink(dir), stack, fontScale, sizes);
+    }
+
+    /**
+     * Create a processor that writes its files to a sink, such as an archive.
+     *
+     * @param sink      where to write the files
+     * @param stack     the stack to measure
+     * @param fontScale scale the font sizes by this factor
+     * @param sizes     the font sizes, in points
+     */
+    public MetricsProcessor(MetricsSink sink, FontStack stack, int fontScale, List<Integer> sizes) {
+        this.sink = sink;
         this.stack = stack;
         this.fontScale = fontScale;
         this.sizes = sizes;
@@ -62,12 +127,13 @@ public class MetricsProcessor {
      * @param weight    the font's weight
      * @param slope     its slope
      * @param expansion its expansion
+     * @param extension the file's extension, {@link #WEB_FONT_METRICS_EXT} or {@link #WEB_COMBINED_METRICS_EXT}
      * @return the file name
      */
     private String makeLispFontMetricsFileName(String family, int size, String weight,
-                                               String slope, String expansion) {
+                                               String slope, String expansion, String extension) {
         return String.format("%s-%d-%s-%s-%s.%s", cvt.makeLispFamilyNameStr(family),
-                size, weight, slope, expansion, WEB_FONT_METRICS_EXT);
+                size, weight, slope, expansion, extension);
     }
 
     /**
@@ -87,49 +153,237 @@ public class MetricsProcessor {
                 size, weight, slope, expansion, charsetNum, WEB_CHARSET_METRICS_EXT);
     }
 
+    /**
+     * Also keep the metrics we write in the given store, whether we write them ourselves or through a
+     * {@link MetricsPipeline}.  Call this once per processor: each call adds our stack to the store.  In the
+     * {@link Layout#COMBINED} layout, we write the files from the store.
+     *
+     * @param widthStore the store, or null to keep nothing (but the combined layout's own store)
+     */
+    public void setWidthStore(WidthStore widthStore) {
+        this.widthStore = widthStore;
+        storeIndex = widthStore == null ? -1 : widthStore.addStack(stack.getFamilyName());
+    }
+
+    /**
+     * Set how we lay out the files.
+     *
+     * @param layout the layout
+     */
+    public void setLayout(Layout layout) {
+        this.layout = Objects.requireNonNull(layout);
+    }
+
+    /**
+     * Share a store of charset tables with other processors, for the {@link Layout#DEDUP} layout.  By default we have
+     * our own.
+     *
+     * @param tableStore the store
+     */
+    public void setTableStore(CharsetTableStore tableStore) {
+        this.tableStore = Objects.requireNonNull(tableStore);
+    }
+
+    /**
+     * Return the stack we process.
+     *
+     * @return the stack
+     */
+    public FontStack getStack() {
+        return stack;
+    }
+
     /**
      * Write the font and charset metrics files for the stack.
      *
      * @throws IOException if there's an I/O problem
      */
     public void writeStackMetrics() throws IOException {
+        for (int style : STYLES) {
+            writeStyleMetrics(style, sink);
+        }
+        logStatistics();
+    }
 
-        for (int size : sizes) {
-            final int scaledFontSize = size * fontScale;
+    /**
+     * Measure the stack in one style at all our sizes, and write its files as we go: each charset's file as soon as
+     * it's measured, and the font files once we have the line measurements.  {@link MetricsPipeline} passes a sink
+     * that hands the files to its write stage.
+     *
+     * @param style the style, see {@link java.awt.Font#getStyle()}
+     * @param out   where to write the files
+     * @throws IOException if there's an I/O problem
+     */
+    void writeStyleMetrics(int style, MetricsSink out) throws IOException {
+        final List<Integer> scaledFontSizes = sizes.stream().map(size -> size * fontScale).toList();
+        if (layout == Layout.COMBINED && widthStore == null) {
+            setWidthStore(new WidthStore(sizes, xccsToUnicode));
+        }
+        final CharsetMetricsVisitor recorder = widthStore == null ? null : widthStore.recorder(storeIndex, style);
+        stack.visitCharsetMetrics(scaledFontSizes, style, new CharsetMetricsVisitor() {
+            private final WebCharsetMetrics[] charset0Metrics = new WebCharsetMetrics[sizes.size()];
 
-            for (int style : STYLES) {
-                final FontMetricsExtractor.FontMeasurements lineMeasurements = new FontMetricsExtractor.FontMeasurements();
+            /**
+             * For the dedup layout, the digests of each size's charset tables.
+             */
+            private final List<List<String>> charsetDigests =
+                    sizes.stream().<List<String>>map(size -> new ArrayList<>()).toList();
 
-                final String familyName = stack.getFamilyName();
-                final String weight = FontUtils.weight(style);
-                final String slope = FontUtils.slope(style);
+            @Override
+            public void visitCharset(int sizeIndex, WebCharsetMetrics metrics) throws IOException {
+                if (charset0Metrics[sizeIndex] == null) {
+                    charset0Metrics[sizeIndex] = metrics;
+                }
+                if (recorder != null) {
+                    recorder.visitCharset(sizeIndex, metrics);
+                }
+                // the combined layout writes the charsets the recorder has stored in visitEnd
+                if (layout == Layout.DEDUP) {
+                    charsetDigests.get(sizeIndex).add(writeTable(out, metrics));
+                } else if (layout == Layout.FILES) {
+                    write(out, charsetMetricsFileName(style, sizes.get(sizeIndex), metrics.charset()), metrics);
+                }
+            }
 
-                // naughty, naughty: we side-effect the lineMeasurements object
-                final List<WebCharsetMetrics> allCharsetMetrics =
-                        stack.getAllCharsetMetrics(scaledFontSize, style, lineMeasurements);
-                for (WebCharsetMetrics wcm : allCharsetMetrics) {
-                    final String webMetricsFileName = makeLispCharsetMetricsFileName(familyName, size, weight, slope, NO_EXPANSION, wcm.charset());
-                    try (final Writer writer = new FileWriter(new File(dir, webMetricsFileName))) {
-                        final WebMetricsWriter charsetMetricsFileWriter = new WebMetricsWriter(writer, wcm);
-                        charsetMetricsFileWriter.writeMetricsFile();
+            @Override
+            public void visitEnd(List<FontMetricsExtractor.FontMeasurements> measurements) throws IOException {
+                if (recorder != null) {
+                    recorder.visitEnd(measurements);
+                }
+                for (int sizeIndex = 0; sizeIndex < sizes.size(); sizeIndex++) {
+                    final int size = sizes.get(sizeIndex);
+                    final WebFontDescr descr = fontDescr(style, size,
+                            Objects.requireNonNull(charset0Metrics[sizeIndex], "No charsets"),
+                            measurements.get(sizeIndex), charsetDigests.get(sizeIndex));
+                    if (layout == Layout.COMBINED) {
+                        writeCombined(out, style, descr, storedCharsetMetrics(sizeIndex, style));
+                    } else {
+                        write(out, fontMetricsFileName(style, size), descr);
                     }
                 }
+            }
+        });
+    }
 
-                final WebCharsetMetrics charset0Metrics = allCharsetMetrics.getFirst();
+    /**
+     * Return the metrics of each charset of the stack at one size and style, from our {@link WidthStore}.
+     *
+     * @param sizeIndex the size's index
+     * @param style     the style, see {@link java.awt.Font#getStyle()}
+     * @return the metrics, in charset order
+     */
+    private List<WebCharsetMetrics> storedCharsetMetrics(int sizeIndex, int style) {
+        final List<WebCharsetMetrics> result = new ArrayList<>();
+        for (int charset : xccsToUnicode.charsets()) {
+            final WebCharsetMetrics metrics = widthStore.get(storeIndex, sizeIndex, style, charset);
+            if (metrics != null) {
+                result.add(metrics);
+            }
+        }
+        return result;
+    }
 
-                // base the font ascent, descent, and height on the charset 0 metrics
-                final WebFontDescr fontMetricsForFile =
-                        new WebFontDescr(familyName, size, charset0Metrics.maxHeight(),
-                                style, charset0Metrics.maxAscent(), charset0Metrics.maxDescent(),
-                                lineMeasurements.getSlugWidth(), xccsToUnicode.charsets());
+    /**
+     * Return the name of the metrics file for one charset of the stack at one style and size.
+     *
+     * @param style   the style, see {@link java.awt.Font#getStyle()}
+     * @param size    the size, in points
+     * @param charset the charset
+     * @return the file name
+     */
+    private String charsetMetricsFileName(int style, int size, int charset) {
+        return makeLispCharsetMetricsFileName(stack.getFamilyName(), size,
+                FontUtils.weight(style), FontUtils.slope(style), NO_EXPANSION, charset);
+    }
 
-                final String fontMetricsFileName =
-                        makeLispFontMetricsFileName(familyName, size, weight, slope, NO_EXPANSION);
-                try (final Writer writer = new FileWriter(new File(dir, fontMetricsFileName))) {
-                    final WebMetricsWriter fontMetricsFileWriter = new WebMetricsWriter(writer, fontMetricsForFile);
-                    fontMetricsFileWriter.writeMetricsFile();
-                }
-            }
+    /**
+     * Return the name of the font metrics file for the stack at one style and size.
+     *
+     * @param style the style, see {@link java.awt.Font#getStyle()}
+     * @param size  the size, in points
+     * @return the file name
+     */
+    private String fontMetricsFileName(int style, int size) {
+        return makeLispFontMetricsFileName(stack.getFamilyName(), size,
+                FontUtils.weight(style), FontUtils.slope(style), NO_EXPANSION, WEB_FONT_METRICS_EXT);
+    }
+
+    /**
+     * Return the font metrics for the stack at one style and size.
+     *
+     * @param style            the style, see {@link java.awt.Font#getStyle()}
+     * @param size             the size, in points
+     * @param charset0Metrics  the metrics of charset 0
+     * @param lineMeasurements the line measurements of the font
+     * @param charsetDigests   the digests of the charset tables, for the {@link Layout#DEDUP} layout, or an empty list
+     * @return the font metrics
+     */
+    private WebFontDescr fontDescr(int style, int size, WebCharsetMetrics charset0Metrics,
+                                   FontMetricsExtractor.FontMeasurements lineMeasurements,
+                                   List<String> charsetDigests) {
+        // base the font ascent, descent, and height on the charset 0 metrics
+        return new WebFontDescr(stack.getFamilyName(), size, charset0Metrics.maxHeight(),
+                style, charset0Metrics.maxAscent(), charset0Metrics.maxDescent(),
+                lineMeasurements.getSlugWidth(), xccsToUnicode.charsets(), charsetDigests);
+    }
+
+    /**
+     * Write metrics to a file in a sink, through our reusable emitter.
+     *
+     * @param out     the sink
+     * @param name    the file name
+     * @param metrics the metrics
+     * @throws IOException if there's an I/O problem
+     */
+    private synchronized void write(MetricsSink out, String name, CanWriteSExp metrics) throws IOException {
+        WebMetricsWriter.writeMetricsFile(emitter.reset(), metrics);
+        out.write(name, emitter.asByteBuffer());
+    }
+
+    /**
+     * Write a charset's table to a sink, through our reusable emitter, unless the table store says it's been written.
+     *
+     * @param out     the sink
+     * @param metrics the charset's metrics
+     * @return the digest of the table
+     * @throws IOException if there's an I/O problem
+     */
+    private synchronized String writeTable(MetricsSink out, WebCharsetMetrics metrics) throws IOException {
+        WebMetricsWriter.writeMetricsFile(emitter.reset(), metrics);
+        final String digest = CharsetTableStore.digest(emitter.asByteBuffer());
+        if (tableStore.add(digest, emitter.size())) {
+            out.write(CharsetTableStore.fileName(digest), emitter.asByteBuffer());
+        }
+        return digest;
+    }
+
+    /**
+     * Write a combined metrics file to a sink, through our reusable emitter.
+     *
+     * @param out      the sink
+     * @param style    the style, see {@link java.awt.Font#getStyle()}
+     * @param descr    the font metrics
+     * @param charsets the metrics of each charset
+     * @throws IOException if there's an I/O problem
+     */
+    private synchronized void writeCombined(MetricsSink out, int style, WebFontDescr descr,
+                                            List<WebCharsetMetrics> charsets) throws IOException {
+        final String name = makeLispFontMetricsFileName(stack.getFamilyName(), descr.getSize(),
+                FontUtils.weight(style), FontUtils.slope(style), NO_EXPANSION, WEB_COMBINED_METRICS_EXT);
+        WebMetricsWriter.writeCombinedFile(emitter.reset(), descr, charsets);
+        out.write(name, emitter.asByteBuffer());
+    }
+
+    /**
+     * Log what measuring the stack has cost.
+     */
+    void logStatistics() {
+        final String familyName = stack.getFamilyName();
+        final FontMetricsExtractor fme = stack.getMetricsExtractor();
+        log.info("Stack '{}': {} font metrics cache hits, {} misses", familyName, fme.getCacheHits(), fme.getCacheMisses());
+        log.info("Stack '{}': {}", familyName, stack.getMeasurementStats());
+        if (!stack.getMissingMembers().isEmpty()) {
+            log.warn("Stack '{}' is missing members {}", familyName, stack.getMissingMembers());
         }
     }
 
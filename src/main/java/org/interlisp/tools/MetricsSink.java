@@ -0,0 +1,78 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Where {@link MetricsProcessor} and {@link MetricsPipeline} put the metrics files they make: a directory
+ * ({@link DirectorySink}), or a single archive ({@link ZipSink}, {@link TarGzSink}) that we write entry by entry as
+ * the files are made, to a file or to a stream like standard output.
+ * <p>
+ * Sinks are safe to use from several threads; each file is written whole.  Close the sink to finish the archive.
+ */
+public interface MetricsSink extends Closeable {
+
+    /**
+     * The kinds of archive we can write.
+     */
+    enum Format {
+        ZIP, TGZ;
+
+        /**
+         * Guess an archive's format from its file name.
+         *
+         * @param name the file name
+         * @return the format; {@link #TGZ} unless the name ends in <tt>.zip</tt>
+         */
+        public static Format forName(String name) {
+            return name.toLowerCase().endsWith(".zip") ? ZIP : TGZ;
+        }
+    }
+
+    /**
+     * Write a file.
+     *
+     * @param name    the file's name
+     * @param content its contents, from the buffer's position to its limit, which we consume
+     * @throws IOException if there's an I/O problem
+     */
+    void write(String name, ByteBuffer content) throws IOException;
+
+    /**
+     * Return a sink that writes an archive to a stream.  Closing the sink closes the stream.
+     *
+     * @param out    the stream
+     * @param format the archive's format
+     * @return the sink
+     * @throws IOException if we can't start the archive
+     */
+    static MetricsSink archive(OutputStream out, Format format) throws IOException {
+        final OutputStream buffered = new BufferedOutputStream(out, 1 << 16);
+        return switch (format) {
+            case ZIP -> new ZipSink(buffered);
+            case TGZ -> new TarGzSink(buffered);
+        };
+    }
+
+    /**
+     * Return a sink that writes an archive file.
+     *
+     * @param file   the file
+     * @param format the archive's format
+     * @return the sink
+     * @throws IOException if we can't create the file
+     */
+    static MetricsSink archive(File file, Format format) throws IOException {
+        return archive(new FileOutputStream(file), format);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.tools;
+
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.io.sexp.CanWriteSExp;
+import org.interlisp.io.sexp.SExpEmitter;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Check a directory of metrics files by reading each one with {@link WebMetricsReader} and writing it again: the
+ * bytes must come out the same.  We check the files in parallel, each memory-mapped.
+ */
+public class MetricsValidator {
+
+    private final ThreadLocal<SExpEmitter> emitters = ThreadLocal.withInitial(SExpEmitter::new);
+
+    /**
+     * What we found.
+     *
+     * @param charsetFiles  the number of charset metrics files we checked
+     * @param fontFiles     the number of font metrics files we checked
+     * @param combinedFiles the number of combined metrics files we checked
+     * @param bytes         their total size
+     * @param failures      what's wrong with the ones that didn't check out, sorted by file name
+     */
+    public record Result(long charsetFiles, long fontFiles, long combinedFiles, long bytes, List<String> failures) {
+
+        public boolean isValid() {
+            return failures.isEmpty();
+        }
+    }
+
+    /**
+     * Check all the metrics files in a directory.
+     *
+     * @param dir the directory
+     * @return what we found
+     * @throws IOException if we can't list the directory
+     */
+    public Result validate(Path dir) throws IOException {
+        final List<Path> files;
+        try (final Stream<Path> all = Files.list(dir)) {
+            files = all.filter(MetricsValidator::isMetricsFile).sorted().toList();
+        }
+        final LongAdder charsetFiles = new LongAdder();
+        final LongAdder fontFiles = new LongAdder();
+        final LongAdder combinedFiles = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final Queue<String> failures = new ConcurrentLinkedQueue<>();
+        files.parallelStream().forEach(file -> {
+            try {
+                final MappedByteBuffer contents = WebMetricsReader.map(file);
+                final SExpEmitter emitter = emitters.get().reset();
+                if (file.getFileName().toString().endsWith("." + MetricsProcessor.WEB_COMBINED_METRICS_EXT)) {
+                    final WebMetricsReader.CombinedMetrics metrics = WebMetricsReader.readCombined(contents);
+                    combinedFiles.increment();
+                    WebMetricsWriter.writeCombinedFile(emitter, metrics.font(), metrics.charsets());
+                } else {
+                    final CanWriteSExp metrics = WebMetricsReader.read(contents);
+                    (metrics instanceof WebCharsetMetrics ? charsetFiles : fontFiles).increment();
+                    WebMetricsWriter.writeMetricsFile(emitter, metrics);
+                }
+                bytes.add(contents.limit());
+                if (!emitter.contentEquals(contents)) {
+                    failures.add(file.getFileName() + ": writing what we read gives different bytes");
+                }
+            } catch (IOException e) {
+                failures.add(file.getFileName() + ": " + e.getMessage());
+            }
+        });
+        return new Result(charsetFiles.sum(), fontFiles.sum(), combinedFiles.sum(), bytes.sum(), failures.stream().sorted().toList());
+    }
+
+    private static boolean isMetricsFile(Path file) {
+        final String name = file.getFileName().toString();
+        return name.endsWith("." + MetricsProcessor.WEB_CHARSET_METRICS_EXT) ||
+                name.endsWith("." + MetricsProcessor.WEB_FONT_METRICS_EXT) ||
+                name.endsWith("." + MetricsProcessor.WEB_COMBINED_METRICS_EXT);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.tools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Write the metrics files, as they're made, into a gzipped tar archive.  Each file gets a POSIX <tt>ustar</tt> header;
+ * our file names are short and plain, so we need nothing fancier.
+ */
+public class TarGzSink implements MetricsSink {
+
+    private static final int BLOCK = 512;
+
+    private static final int MAX_NAME_LENGTH = 100;
+
+    private final GZIPOutputStream out;
+
+    /**
+     * When the archive was made, in seconds since the epoch, which we give every file.
+     */
+    private final long mtime = System.currentTimeMillis() / 1000;
+
+    /**
+     * Guarded by <tt>this</tt>.
+     */
+    private final byte[] header = new byte[BLOCK];
+
+    /**
+     * Where we copy a direct buffer's contents.  Guarded by <tt>this</tt>.
+     */
+    private final byte[] scratch = new byte[8192];
+
+    /**
+     * Create a sink.  Closing it closes the stream.
+     *
+     * @param out where to write the archive
+     * @throws IOException if we can't write the gzip header
+     */
+    public TarGzSink(OutputStream out) throws IOException {
+        this.out = new GZIPOutputStream(out, 1 << 16);
+    }
+
+    @Override
+    public synchronized void write(String name, ByteBuffer content) throws IOException {
+        final int size = content.remaining();
+        writeHeader(name, size);
+        if (content.hasArray()) {
+            out.write(content.array(), content.arrayOffset() + content.position(), size);
+            content.position(content.limit());
+        } else {
+            while (content.hasRemaining()) {
+                final int n = Math.min(scratch.length, content.remaining());
+                content.get(scratch, 0, n);
+                out.write(scratch, 0, n);
+            }
+        }
+        final int padding = (BLOCK - size % BLOCK) % BLOCK;
+        Arrays.fill(scratch, 0, padding, (byte) 0);
+        out.write(scratch, 0, padding);
+    }
+
+    private void writeHeader(String name, long size) throws IOException {
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > MAX_NAME_LENGTH) {
+            throw new IOException("File name too long for a tar archive: " + name);
+        }
+        Arrays.fill(header, (byte) 0);
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        octal(0644, 100, 8);
+        octal(0, 108, 8);
+        octal(0, 116, 8);
+        octal(size, 124, 12);
+        octal(mtime, 136, 12);
+        header[156] = '0';
+        ascii("ustar", 257);
+        ascii("00", 263);
+        // the checksum is of the header with spaces in the checksum field
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xFF;
+        }
+        octal(checksum, 148, 7);
+        header[155] = ' ';
+        out.write(header);
+    }
+
+    /**
+     * Put a number in the header, in octal, zero-padded and NUL-terminated.
+     */
+    private void octal(long value, int offset, int length) {
+        final String digits = Long.toOctalString(value);
+        final int pad = length - 1 - digits.length();
+        for (int i = 0; i < pad; i++) {
+            header[offset + i] = '0';
+        }
+        ascii(digits, offset + pad);
+        header[offset + length - 1] = 0;
+    }
+
+    private void ascii(String s, int offset) {
+        for (int i = 0; i < s.length(); i++) {
+            header[offset + i] = (byte) s.charAt(i);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        // the end of the archive is two empty blocks
+        out.write(new byte[2 * BLOCK]);
+        out.close();
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.tools;
+
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.io.font.WebFontDescr;
+import org.interlisp.io.sexp.CanWriteSExp;
+import org.interlisp.io.sexp.SExpScanner;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read back the metrics files {@link WebMetricsWriter} writes.  We check the <tt>:FORMAT</tt> version, then turn the
+ * property list that follows into a {@link WebCharsetMetrics} (a <tt>.wcm</tt> file) or a {@link WebFontDescr} (a
+ * <tt>.wfm</tt> file).  We read a combined <tt>.wfc</tt> file's header with {@link #readCombinedIndex(ByteBuffer)},
+ * and then whichever of its charsets we need.
+ * <p>
+ * A charset metrics file doesn't record the charset's height, so the {@link WebCharsetMetrics#maxHeight()} we return
+ * is the sum of its ascent and descent.  A font metrics file records the font's name in its Lisp form, e.g.,
+ * <tt>NOTO-SANS</tt>, so that's the {@link WebFontDescr#getName()} we return.  Either way, writing what we read gives
+ * back the same bytes.
+ */
+public class WebMetricsReader {
+
+    private static final int FORMAT_VERSION = 2;
+
+    private WebMetricsReader() {
+    }
+
+    /**
+     * Map a file into memory.
+     *
+     * @param file the file
+     * @return its contents
+     * @throws IOException if we can't read it
+     */
+    public static MappedByteBuffer map(Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Read a charset or font metrics file.
+     *
+     * @param file the file
+     * @return a {@link WebCharsetMetrics} or a {@link WebFontDescr}
+     * @throws IOException if we can't read or parse it
+     */
+    public static CanWriteSExp read(Path file) throws IOException {
+        try {
+            return read(map(file));
+        } catch (IOException e) {
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the contents of a charset or font metrics file.
+     *
+     * @param contents the contents
+     * @return a {@link WebCharsetMetrics} or a {@link WebFontDescr}
+     * @throws IOException if we can't parse them
+     */
+    public static CanWriteSExp read(ByteBuffer contents) throws IOException {
+        final SExpScanner scanner = new SExpScanner(contents);
+        readFormatVersion(scanner);
+        return readMetrics(scanner);
+    }
+
+    /**
+     * The header of a combined metrics file, written by {@link WebMetricsWriter#writeCombinedFile}.
+     *
+     * @param headerLength the length of the header, from which the offsets count
+     * @param fontOffset   where the font's metrics start
+     * @param fontLength   how long they are
+     * @param charsetIndex a triple of charset, offset, and length for each charset
+     */
+    public record CombinedIndex(int headerLength, int fontOffset, int fontLength, int[] charsetIndex) {
+
+        /**
+         * Return the number of charsets in the file.
+         *
+         * @return the number
+         */
+        public int charsetCount() {
+            return charsetIndex.length / 3;
+        }
+
+        /**
+         * Return where a charset's triple is in the {@link #charsetIndex()}.
+         *
+         * @param charset the charset
+         * @return the index of its triple, or -1 if the file doesn't have it
+         */
+        public int find(int charset) {
+            for (int i = 0; i < charsetIndex.length; i += 3) {
+                if (charsetIndex[i] == charset) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * The contents of a combined metrics file.
+     *
+     * @param font     the font's metrics
+     * @param charsets the metrics of its charsets, in the order they're in the file
+     */
+    public record CombinedMetrics(WebFontDescr font, List<WebCharsetMetrics> charsets) {
+    }
+
+    /**
+     * Read the header of a combined metrics file.
+     *
+     * @param contents the contents of the file
+     * @return the header
+     * @throws IOException if we can't parse it
+     */
+    public static CombinedIndex readCombinedIndex(ByteBuffer contents) throws IOException {
+        final SExpScanner scanner = new SExpScanner(contents);
+        readFormatVersion(scanner);
+        scanner.expect(SExpScanner.Token.OPEN);
+        scanner.expectAtom(":FONT");
+        final int[] font = scanner.nextIntList();
+        if (font.length != 2) {
+            throw scanner.error("Expected an offset and length");
+        }
+        scanner.expectAtom(":CHARSETS");
+        final int[] charsetIndex = scanner.nextIntList();
+        if (charsetIndex.length % 3 != 0) {
+            throw scanner.error("Expected triples of charset, offset, and length");
+        }
+        scanner.expect(SExpScanner.Token.CLOSE);
+        final int end = scanner.position();
+        if (end >= contents.limit() || contents.get(end) != '\n') {
+            throw scanner.error("Expected a newline after the header");
+        }
+        return new CombinedIndex(end + 1 - contents.position(), font[0], font[1], charsetIndex);
+    }
+
+    /**
+     * Read a font's metrics from a combined metrics file.
+     *
+     * @param contents the contents of the file
+     * @param index    its header
+     * @return the font's metrics
+     * @throws IOException if we can't parse them
+     */
+    public static WebFontDescr readCombinedFont(ByteBuffer contents, CombinedIndex index) throws IOException {
+        if (readSection(contents, index, index.fontOffset(), index.fontLength()) instanceof WebFontDescr descr) {
+            return descr;
+        }
+        throw new IOException("Not font metrics");
+    }
+
+    /**
+     * Read one charset's metrics from a combined metrics file, without reading any others.
+     *
+     * @param contents the contents of the file
+     * @param index    its header
+     * @param charset  the charset
+     * @return the charset's metrics, or null if the file doesn't have them
+     * @throws IOException if we can't parse them
+     */
+    public static WebCharsetMetrics readCombinedCharset(ByteBuffer contents, CombinedIndex index, int charset)
+            throws IOException {
+        final int at = index.find(charset);
+        if (at < 0) {
+            return null;
+        }
+        final int[] charsetIndex = index.charsetIndex();
+        if (readSection(contents, index, charsetIndex[at + 1], charsetIndex[at + 2])
+                instanceof WebCharsetMetrics metrics && metrics.charset() == charset) {
+            return metrics;
+        }
+        throw new IOException("Not the metrics of charset " + charset);
+    }
+
+    /**
+     * Read all of a combined metrics file.
+     *
+     * @param contents the contents of the file
+     * @return the font's and charsets' metrics
+     * @throws IOException if we can't parse them
+     */
+    public static CombinedMetrics readCombined(ByteBuffer contents) throws IOException {
+        final CombinedIndex index = readCombinedIndex(contents);
+        final List<WebCharsetMetrics> charsets = new ArrayList<>(index.charsetCount());
+        final int[] charsetIndex = index.charsetIndex();
+        for (int i = 0; i < charsetIndex.length; i += 3) {
+            charsets.add(readCombinedCharset(contents, index, charsetIndex[i]));
+        }
+        return new CombinedMetrics(readCombinedFont(contents, index), charsets);
+    }
+
+    private static CanWriteSExp readSection(ByteBuffer contents, CombinedIndex index, int offset, int length)
+            throws IOException {
+        final int start = contents.position() + index.headerLength() + offset;
+        if (offset < 0 || length < 0 || start + length > contents.limit()) {
+            throw new IOException("Section at offset " + offset + ", length " + length + " is outside the file");
+        }
+        return readMetrics(new SExpScanner(contents.slice(start, length)));
+    }
+
+    /**
+     * Read a charset's or font's metrics, which must be all that's left of the input.
+     */
+    private static CanWriteSExp readMetrics(SExpScanner scanner) throws IOException {
+        scanner.expect(SExpScanner.Token.OPEN);
+        scanner.next();
+        final CanWriteSExp result;
+        if (scanner.atomIs(":CHARSET")) {
+            result = readCharsetMetrics(scanner);
+        } else if (scanner.atomIs(":NAME")) {
+            result = readFontDescr(scanner);
+        } else {
+            throw scanner.error("Expected :CHARSET or :NAME");
+        }
+        scanner.expect(SExpScanner.Token.EOF);
+        return result;
+    }
+
+    /**
+     * Read the contents of a charset metrics file.
+     *
+     * @param contents the contents
+     * @return the metrics
+     * @throws IOException if we can't parse them, or they're font metrics
+     */
+    public static WebCharsetMetrics readCharsetMetrics(ByteBuffer contents) throws IOException {
+        if (read(contents) instanceof WebCharsetMetrics metrics) {
+            return metrics;
+        }
+        throw new IOException("Not charset metrics");
+    }
+
+    /**
+     * Read the contents of a font metrics file.
+     *
+     * @param contents the contents
+     * @return the metrics
+     * @throws IOException if we can't parse them, or they're charset metrics
+     */
+    public static WebFontDescr readFontDescr(ByteBuffer contents) throws IOException {
+        if (read(contents) instanceof WebFontDescr descr) {
+            return descr;
+        }
+        throw new IOException("Not font metrics");
+    }
+
+    private static void readFormatVersion(SExpScanner scanner) throws IOException {
+        scanner.expect(SExpScanner.Token.OPEN);
+        scanner.expectAtom(":FORMAT");
+        if (scanner.nextInt() != FORMAT_VERSION) {
+            throw scanner.error("Expected format " + FORMAT_VERSION);
+        }
+        scanner.expect(SExpScanner.Token.CLOSE);
+    }
+
+    /**
+     * Read the rest of a charset metrics property list.  We've read <tt>:CHARSET</tt>.
+     */
+    private static WebCharsetMetrics readCharsetMetrics(SExpScanner scanner) throws IOException {
+        final int charset = scanner.nextInt();
+        scanner.expectAtom(":MAX-ASCENT");
+        final int maxAscent = scanner.nextInt();
+        scanner.expectAtom(":MAX-DESCENT");
+        final int maxDescent = scanner.nextInt();
+        scanner.expectAtom(":XCCS-WIDTHS");
+        final int[] widths = scanner.nextIntList();
+        scanner.expect(SExpScanner.Token.CLOSE);
+        return new WebCharsetMetrics(charset, maxAscent, maxDescent, maxAscent + maxDescent, widths);
+    }
+
+    /**
+     * Read the rest of a font metrics property list.  We've read <tt>:NAME</tt>.
+     */
+    private static WebFontDescr readFontDescr(SExpScanner scanner) throws IOException {
+        scanner.expect(SExpScanner.Token.ATOM);
+        final String name = scanner.text();
+        scanner.expectAtom(":FACE");
+        final int style = readFaceTriple(scanner);
+        scanner.expectAtom(":SIZE");
+        final int size = scanner.nextInt();
+        scanner.expectAtom(":HEIGHT");
+        final int height = scanner.nextInt();
+        scanner.expectAtom(":MAX-ASCENT");
+        final int maxAscent = scanner.nextInt();
+        scanner.expectAtom(":MAX-DESCENT");
+        final int maxDescent = scanner.nextInt();
+        scanner.expectAtom(":SLUG-WIDTH");
+        final int slugWidth = scanner.nextInt();
+        scanner.expectAtom(":CHARSETS");
+        final int[] charsets = scanner.nextIntList();
+        // only in the DEDUP layout
+        List<String> charsetDigests = List.of();
+        scanner.next();
+        if (scanner.atomIs(":CHARSET-DIGESTS")) {
+            charsetDigests = scanner.nextStringList();
+            if (charsetDigests.size() != charsets.length) {
+                throw scanner.error("Expected a digest for each of " + charsets.length + " charsets");
+            }
+            scanner.next();
+        }
+        if (scanner.token() != SExpScanner.Token.CLOSE) {
+            throw scanner.error("Expected :CHARSET-DIGESTS or " + SExpScanner.Token.CLOSE);
+        }
+        final List<Integer> charsetList = new ArrayList<>(charsets.length);
+        for (int charset : charsets) {
+            charsetList.add(charset);
+        }
+        return new WebFontDescr(name, size, height, style, maxAscent, maxDescent, slugWidth, charsetList,
+                charsetDigests);
+    }
+
+    /**
+     * Read a face triple like <tt>(BOLD ITALIC REGULAR)</tt>.
+     *
+     * @return the style, see {@link Font#getStyle()}
+     */
+    private static int readFaceTriple(SExpScanner scanner) throws IOException {
+        scanner.expect(SExpScanner.Token.OPEN);
+        int style = Font.PLAIN;
+        scanner.next();
+        if (scanner.atomIs("BOLD")) {
+            style |= Font.BOLD;
+        } else if (!scanner.atomIs("MEDIUM")) {
+            throw scanner.error("Expected BOLD or MEDIUM");
+        }
+        scanner.next();
+        if (scanner.atomIs("ITALIC")) {
+            style |= Font.ITALIC;
+        } else if (!scanner.atomIs("REGULAR")) {
+            throw scanner.error("Expected ITALIC or REGULAR");
+        }
+        scanner.expectAtom(MetricsProcessor.NO_EXPANSION);
+        scanner.expect(SExpScanner.Token.CLOSE);
+        return style;
+    }
+}
@@ -5,11 +5,15 @@
  */
 package org.interlisp.tools;
 
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.io.font.WebFontDescr;
 import org.interlisp.io.sexp.CanWriteSExp;
 import org.interlisp.io.sexp.LispList;
+import org.interlisp.io.sexp.SExpEmitter;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.List;
 
 import static org.interlisp.io.sexp.Litatom.atom;
 
@@ -53,4 +57,48 @@ public class WebMetricsWriter {
         writeFormatVersion();
         writeMetrics();
     }
+
+    /**
+     * Write the same metrics file as {@link #writeMetricsFile()} into an emitter.
+     *
+     * @param emitter the emitter
+     * @param metrics the metrics
+     */
+    public static void writeMetricsFile(SExpEmitter emitter, CanWriteSExp metrics) {
+        emitter.beginList().atom(":FORMAT").num(FORMAT_VERSION).endList();
+        metrics.write(emitter);
+    }
+
+    /**
+     * Write a combined metrics file, holding a font's metrics and those of all its charsets, into an emitter.
+     * The file starts with a header of two lists and a newline:
+     * <pre>
+     * (:FORMAT 2 )(:FONT (0 <i>length</i> ) :CHARSETS (<i>charset offset length</i> ...) )
+     * </pre>
+     * The offsets are from the end of the header, so a reader can read the header and then seek straight to the
+     * one charset it needs.  After the header come the font's metrics, as in a font metrics file, then each
+     * charset's, as in a charset metrics file, each without the <tt>:FORMAT</tt>.
+     *
+     * @param emitter  the emitter
+     * @param font     the font's metrics
+     * @param charsets the metrics of its charsets
+     */
+    public static void writeCombinedFile(SExpEmitter emitter, WebFontDescr font, List<WebCharsetMetrics> charsets) {
+        final SExpEmitter body = new SExpEmitter();
+        font.write(body);
+        final int fontLength = body.size();
+        final int[] index = new int[3 * charsets.size()];
+        int i = 0;
+        for (WebCharsetMetrics metrics : charsets) {
+            final int start = body.size();
+            metrics.write(body);
+            index[i++] = metrics.charset();
+            index[i++] = start;
+            index[i++] = body.size() - start;
+        }
+        emitter.beginList().atom(":FORMAT").num(FORMAT_VERSION).endList()
+                .beginList().atom(":FONT").list(new int[]{0, fontLength}).atom(":CHARSETS").list(index).endList()
+                .newline()
+                .append(body);
+    }
 }
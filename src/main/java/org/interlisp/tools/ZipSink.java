@@ -0,0 +1,55 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.tools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Write the metrics files, as they're made, into a zip archive.
+ */
+public class ZipSink implements MetricsSink {
+
+    private final ZipOutputStream out;
+
+    /**
+     * Where we copy a direct buffer's contents.  Guarded by <tt>this</tt>.
+     */
+    private byte[] scratch = new byte[8192];
+
+    /**
+     * Create a sink.  Closing it closes the stream.
+     *
+     * @param out where to write the archive
+     */
+    public ZipSink(OutputStream out) {
+        this.out = new ZipOutputStream(out);
+    }
+
+    @Override
+    public synchronized void write(String name, ByteBuffer content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        if (content.hasArray()) {
+            out.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+            content.position(content.limit());
+        } else {
+            while (content.hasRemaining()) {
+                final int n = Math.min(scratch.length, content.remaining());
+                content.get(scratch, 0, n);
+                out.write(scratch, 0, n);
+            }
+        }
+        out.closeEntry();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -161,6 +161,15 @@ public class XccsToUnicode {
         return xccsToUnicode.get(xccs);
     }
 
+    /**
+     * Return the distinct Unicode characters that XCCS characters map to.
+     *
+     * @return the Unicode characters, sorted
+     */
+    public int[] unicodeCharacters() {
+        return xccsToUnicode.values().stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+    }
+
     /**
      * For a given XCCS charset, return the XCCS characters that belong to it (that map to Unicode).
      *
@@ -0,0 +1,184 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A stand-in for the Google Fonts service that serves the fixture fonts in <tt>src/main/resources</tt>.
+ * <tt>/css2?family=A&family=B</tt> returns a CSS document with an <tt>@font-face</tt> stanza for each family,
+ * pointing at <tt>/fonts/...</tt>.
+ * <p>
+ * Every response carries an <tt>ETag</tt> derived from its content, and a matching <tt>If-None-Match</tt> gets a
+ * <tt>304 Not Modified</tt>.
+ */
+public class LocalFontServer implements AutoCloseable {
+
+    static final File RESOURCES = new File("src/main/resources");
+
+    /**
+     * Families we can serve, and the files that hold them.
+     */
+    static final Map<String, File> FAMILIES = new LinkedHashMap<>();
+
+    /**
+     * Families whose files we've replaced, as if upstream had updated them.
+     */
+    private final Map<String, File> replacements = new ConcurrentHashMap<>();
+
+    /**
+     * Names we answer to with a different family name, as Google does for some families.
+     */
+    static final Map<String, String> ALIASES = Map.of("Noto Runic", "Noto Sans Runic");
+
+    static {
+        FAMILIES.put("Noto Sans Runic", new File(RESOURCES, "Noto Sans/NotoSansRunic-Regular.ttf"));
+        FAMILIES.put("Noto Sans Hebrew", new File(RESOURCES, "Noto Sans/NotoSansHebrew-VariableFont_wdth,wght.ttf"));
+        FAMILIES.put("Noto Sans Armenian", new File(RESOURCES, "Noto Sans/NotoSansArmenian-VariableFont_wdth,wght.ttf"));
+        FAMILIES.put("Noto Sans Georgian", new File(RESOURCES, "Noto Sans/NotoSansGeorgian-VariableFont_wdth,wght.ttf"));
+    }
+
+    private final HttpServer server;
+
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+
+    private final AtomicInteger notModifiedCount = new AtomicInteger();
+
+    public LocalFontServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/css2", this::serveCss);
+        server.createContext("/fonts/", this::serveFont);
+        server.start();
+    }
+
+    /**
+     * Return the base CSS URL, with no query parameters.
+     *
+     * @return the base URL
+     */
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/css2";
+    }
+
+    /**
+     * Return the CSS URL for the given families.
+     *
+     * @param families the family names
+     * @return the URL
+     */
+    public String cssUrl(String... families) {
+        final StringBuilder sb = new StringBuilder(baseUrl());
+        char separator = '?';
+        for (String family : families) {
+            sb.append(separator).append("family=").append(family.replace(' ', '+'));
+            separator = '&';
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return the number of requests we've served for paths beginning with the given prefix.
+     *
+     * @param pathPrefix e.g., "/css2" or "/fonts/"
+     * @return the number of requests
+     */
+    public int requests(String pathPrefix) {
+        return requestCounts.entrySet().stream().filter(e -> e.getKey().startsWith(pathPrefix)).
+                mapToInt(e -> e.getValue().get()).sum();
+    }
+
+    /**
+     * Return the number of <tt>304 Not Modified</tt> responses we've sent.
+     *
+     * @return the number of 304s
+     */
+    public int notModified() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * Serve a different file for the family from now on.
+     *
+     * @param family   the family name
+     * @param fontFile the new file
+     */
+    public void replace(String family, File fontFile) {
+        replacements.put(family, fontFile);
+    }
+
+    private void count(HttpExchange exchange) {
+        requestCounts.computeIfAbsent(exchange.getRequestURI().getPath(), key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private void serveCss(HttpExchange exchange) throws IOException {
+        count(exchange);
+        final StringBuilder css = new StringBuilder();
+        final String query = exchange.getRequestURI().getRawQuery();
+        for (String param : query == null ? new String[0] : query.split("&")) {
+            final String requested = URLDecoder.decode(param.substring(param.indexOf('=') + 1), StandardCharsets.UTF_8);
+            final String family = ALIASES.getOrDefault(requested, requested);
+            if (FAMILIES.containsKey(family)) {
+                css.append("@font-face {\n");
+                css.append("  font-family: '").append(family).append("';\n");
+                css.append("  font-style: normal;\n");
+                css.append("  font-weight: 400;\n");
+                css.append("  src: url(http://").append(server.getAddress().getHostString()).append(':').
+                        append(server.getAddress().getPort()).append("/fonts/").
+                        append(family.replace(' ', '-')).append(".ttf) format('truetype');\n");
+                css.append("}\n");
+            }
+        }
+        respond(exchange, css.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void serveFont(HttpExchange exchange) throws IOException {
+        count(exchange);
+        final String fileName = exchange.getRequestURI().getPath().substring("/fonts/".length());
+        final String family = fileName.substring(0, fileName.length() - ".ttf".length()).replace('-', ' ');
+        final File fontFile = replacements.getOrDefault(family, FAMILIES.get(family));
+        if (fontFile == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        respond(exchange, Files.readAllBytes(fontFile.toPath()));
+    }
+
+    private void respond(HttpExchange exchange, byte[] body) throws IOException {
+        final String etag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModifiedCount.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (final OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.test;
+
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.io.font.WebFontDescr;
+import org.interlisp.io.sexp.CanWriteSExp;
+import org.interlisp.io.sexp.SExpEmitter;
+import org.interlisp.tools.BinaryMetricsReader;
+import org.interlisp.tools.BinaryMetricsWriter;
+import org.interlisp.tools.MetricsConverter;
+import org.interlisp.tools.WebMetricsWriter;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBinaryMetrics {
+
+    private static final List<Integer> CHARSETS = List.of(0, 0x21, 0x22, 0xEF);
+
+    private static List<WebCharsetMetrics> charsetMetrics() {
+        final List<WebCharsetMetrics> result = new ArrayList<>();
+        for (int charset : CHARSETS) {
+            // a short table, and some zero widths, which aren't stored; in charset 0, some negative widths, and in
+            // 0xEF, widths too big for 16 bits, which overflow
+            final int[] widths = new int[charset == 0x22 ? 94 : 256];
+            for (int i = 0; i < widths.length; i++) {
+                widths[i] = i % 3 == 0 ? 0 : charset * 1000 + i - 5;
+            }
+            result.add(new WebCharsetMetrics(charset, 14 + charset, -3, 19, widths));
+        }
+        return result;
+    }
+
+    private static byte[] text(CanWriteSExp metrics) {
+        final SExpEmitter emitter = new SExpEmitter();
+        WebMetricsWriter.writeMetricsFile(emitter, metrics);
+        return emitter.toByteArray();
+    }
+
+    @Test
+    void testReadsWhatWeWrite() throws IOException {
+        final WebFontDescr font = new WebFontDescr("Noto Sans \u00c9", 12, 17, Font.BOLD, 14, 3, 7, CHARSETS);
+        final List<WebCharsetMetrics> charsets = charsetMetrics();
+        final ByteBuffer bytes = BinaryMetricsWriter.write(font, charsets);
+        assertEquals(ByteOrder.LITTLE_ENDIAN, bytes.order());
+        assertEquals('W', bytes.get(0));
+        assertEquals(BinaryMetricsWriter.VERSION, bytes.getInt(4));
+
+        final BinaryMetricsReader reader = new BinaryMetricsReader(bytes);
+        assertEquals(CHARSETS, reader.charsets());
+        assertArrayEquals(text(font), text(reader.fontDescr()));
+        assertEquals(font.getName(), reader.fontDescr().getName());
+        for (WebCharsetMetrics metrics : charsets) {
+            final WebCharsetMetrics read = reader.charsetMetrics(metrics.charset());
+            assertEquals(metrics.maxHeight(), read.maxHeight());
+            assertArrayEquals(text(metrics), text(read));
+            for (int i = 0; i < metrics.widths().length; i++) {
+                assertEquals(metrics.widths()[i], reader.width(metrics.charset(), i));
+            }
+        }
+        assertFalse(reader.hasCharset(1));
+        assertNull(reader.charsetMetrics(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.width(1, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.width(0x22, 94));
+
+        // the table's offset, then the width's rank among those stored
+        final int table = bytes.getInt(80 + 4 * 0x21);
+        final long bits = bytes.getLong(table + 24);
+        final int rank = bytes.get(table + 56) + Long.bitCount(bits & ((1L << 7) - 1));
+        assertEquals(4, rank);
+        assertEquals(0x21 * 1000 + 7 - 5, bytes.getChar(table + 60 + 2 * rank));
+        // no room for zeros
+        assertEquals(0, bits & 1L << 6);
+        assertEquals(60 + 2 * 170 + 8 * 0, bytes.getInt(80 + 4 * 0x22) - table);
+    }
+
+    @Test
+    void testStoresOnlyNonZeroWidths() throws IOException {
+        final int[] widths = new int[256];
+        widths[65] = 600;
+        widths[200] = 70000;
+        final List<WebCharsetMetrics> charsets = List.of(new WebCharsetMetrics(0, 14, 3, 19, widths),
+                new WebCharsetMetrics(1, 0, 0, 0, new int[256]));
+        final ByteBuffer bytes = BinaryMetricsWriter.write(
+                new WebFontDescr("Noto Sans", 12, 17, Font.PLAIN, 14, 3, 7, List.of(0, 1)), charsets);
+        // two tables: one with two widths stored, one of which overflows, and one with none
+        assertEquals(bytes.getInt(8) + (60 + 4 + 8) + 60, bytes.limit());
+        final BinaryMetricsReader reader = new BinaryMetricsReader(bytes);
+        assertEquals(600, reader.width(0, 65));
+        assertEquals(70000, reader.width(0, 200));
+        assertEquals(0, reader.width(0, 66));
+        assertArrayEquals(widths, reader.charsetMetrics(0).widths());
+        assertArrayEquals(new int[256], reader.charsetMetrics(1).widths());
+
+        assertThrows(IllegalArgumentException.class, () -> BinaryMetricsWriter.write(
+                new WebFontDescr("Noto Sans", 12, 17, Font.PLAIN, 14, 3, 7, List.of(0)),
+                List.of(new WebCharsetMetrics(0, 14, 3, 19, new int[257]))));
+    }
+
+    @Test
+    void testRejectsBadInput() {
+        final WebFontDescr font = new WebFontDescr("Noto Sans", 12, 17, Font.PLAIN, 14, 3, 7, List.of(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> BinaryMetricsWriter.write(font, charsetMetrics()));
+
+        final ByteBuffer bytes = BinaryMetricsWriter.write(
+                new WebFontDescr("Noto Sans", 12, 17, Font.PLAIN, 14, 3, 7, CHARSETS), charsetMetrics());
+        final ByteBuffer truncated = bytes.slice(0, bytes.limit() - 4);
+        assertThrows(IOException.class, () -> new BinaryMetricsReader(truncated));
+        final ByteBuffer badMagic = ByteBuffer.allocate(bytes.limit()).put(bytes.duplicate()).put(0, (byte) 'X').clear();
+        assertThrows(IOException.class, () -> new BinaryMetricsReader(badMagic));
+        final ByteBuffer badVersion = ByteBuffer.allocate(bytes.limit()).put(bytes.duplicate()).put(4, (byte) 99).clear();
+        assertThrows(IOException.class, () -> new BinaryMetricsReader(badVersion));
+        final int table = bytes.getInt(80 + 4 * 0x21);
+        final ByteBuffer badBase = ByteBuffer.allocate(bytes.limit()).order(ByteOrder.LITTLE_ENDIAN)
+                .put(bytes.duplicate()).put(table + 57, (byte) 1).clear();
+        assertThrows(IOException.class, () -> new BinaryMetricsReader(badBase));
+        final ByteBuffer badOffset = ByteBuffer.allocate(bytes.limit()).order(ByteOrder.LITTLE_ENDIAN)
+                .put(bytes.duplicate()).putInt(80 + 4 * 0x21, table + 4).clear();
+        assertThrows(IOException.class, () -> new BinaryMetricsReader(badOffset));
+    }
+
+    @Test
+    void testConvertsTextFiles() throws IOException {
+        final Path textDir = Files.createTempDirectory("text");
+        final String baseName = "NOTO-SANS-12-BOLD-REGULAR-REGULAR";
+        final WebFontDescr font = new WebFontDescr("Noto Sans", 12, 17, Font.BOLD, 14, 3, 7, CHARSETS);
+        Files.write(textDir.resolve(baseName + ".wfm"), text(font));
+        for (WebCharsetMetrics metrics : charsetMetrics()) {
+            Files.write(textDir.resolve(baseName + "-" + metrics.charset() + ".wcm"), text(metrics));
+        }
+
+        final Path binaryDir = Files.createTempDirectory("binary");
+        assertEquals(1, new MetricsConverter().toBinary(textDir, binaryDir));
+        final BinaryMetricsReader reader = BinaryMetricsReader.open(binaryDir.resolve(baseName + ".wfb"));
+        assertArrayEquals(Files.readAllBytes(textDir.resolve(baseName + ".wfm")), text(reader.fontDescr()));
+        for (int charset : CHARSETS) {
+            assertArrayEquals(Files.readAllBytes(textDir.resolve(baseName + "-" + charset + ".wcm")),
+                    text(reader.charsetMetrics(charset)));
+        }
+
+        Files.delete(textDir.resolve(baseName + "-33.wcm"));
+        assertThrows(IOException.class, () -> new MetricsConverter().toBinary(textDir, binaryDir));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.test;
+
+import org.interlisp.graphics.FontCache;
+import org.interlisp.graphics.WebFontDownloader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFontCache {
+
+    private LocalFontServer server;
+
+    private File cacheDir;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        server = new LocalFontServer();
+        cacheDir = Files.createTempDirectory("font-cache").toFile();
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        server.close();
+        try (final Stream<java.nio.file.Path> files = Files.walk(cacheDir.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private List<Font> download(FontCache cache, String... families) throws IOException, URISyntaxException, FontFormatException {
+        return new WebFontDownloader(server.cssUrl(families), cache).getFonts();
+    }
+
+    @Test
+    void testSecondRunComesFromCache() throws IOException, URISyntaxException, FontFormatException {
+        final List<Font> first = download(new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.CACHE_FIRST),
+                "Noto Sans Runic", "Noto Sans Hebrew");
+        assertEquals(2, first.size());
+        assertEquals(1, server.requests("/css2"));
+        assertEquals(2, server.requests("/fonts/"));
+
+        // a new cache object over the same directory, as in a later run
+        final List<Font> second = download(new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.CACHE_FIRST),
+                "Noto Sans Runic", "Noto Sans Hebrew");
+        assertEquals(2, second.size());
+        assertEquals(first.get(0).getFontName(), second.get(0).getFontName());
+        assertEquals(first.get(1).getFontName(), second.get(1).getFontName());
+        assertEquals(1, server.requests("/css2"));
+        assertEquals(2, server.requests("/fonts/"));
+    }
+
+    @Test
+    void testOfflineUsesCache() throws IOException, URISyntaxException, FontFormatException {
+        download(new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.CACHE_FIRST), "Noto Sans Runic");
+        server.close();
+
+        final List<Font> fonts = download(new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.OFFLINE),
+                "Noto Sans Runic");
+        assertEquals(1, fonts.size());
+    }
+
+    @Test
+    void testReadFetchesAgainIfEvicted() throws IOException {
+        final FontCache cache = new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.CACHE_FIRST);
+        final AtomicInteger downloads = new AtomicInteger();
+        final FontCache.Downloader downloader = (url, validators) -> {
+            downloads.incrementAndGet();
+            return new FontCache.Download("content".getBytes(StandardCharsets.UTF_8), FontCache.Validators.NONE);
+        };
+        final AtomicInteger reads = new AtomicInteger();
+        final String content = cache.read("http://example.com/font.ttf", downloader, contentFile -> {
+            if (reads.incrementAndGet() == 1) {
+                // as if another thread's store had evicted it
+                Files.delete(contentFile);
+            }
+            return Files.readString(contentFile, StandardCharsets.UTF_8);
+        });
+        assertEquals("content", content);
+        assertEquals(2, reads.get());
+        assertEquals(2, downloads.get());
+
+        // a file that's there but unreadable isn't fetched again
+        assertThrows(IOException.class, () -> cache.read("http://example.com/font.ttf", downloader, contentFile -> {
+            throw new IOException("bad");
+        }));
+        assertEquals(2, downloads.get());
+    }
+
+    @Test
+    void testOfflineMissFails() throws IOException {
+        final FontCache cache = new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.OFFLINE);
+        assertThrows(IOException.class, () -> download(cache, "Noto Sans Runic"));
+        assertEquals(0, server.requests("/"));
+    }
+
+    @Test
+    void testEviction() throws IOException, URISyntaxException, FontFormatException {
+        final long limit = Files.size(LocalFontServer.FAMILIES.get("Noto Sans Armenian").toPath()) +
+                Files.size(LocalFontServer.FAMILIES.get("Noto Sans Georgian").toPath());
+        final FontCache cache = new FontCache(cacheDir, limit, FontCache.Mode.CACHE_FIRST);
+        final List<java.nio.file.Path> evicted = new java.util.ArrayList<>();
+        cache.addEvictionListener(evicted::add);
+        download(cache, "Noto Sans Runic");
+        download(cache, "Noto Sans Armenian");
+        download(cache, "Noto Sans Georgian");
+        assertTrue(cache.size() <= limit, "cache exceeds its limit");
+        assertFalse(evicted.isEmpty());
+        evicted.forEach(file -> assertFalse(Files.exists(file), file.toString()));
+
+        // the most recent font survived, so asking again costs no font download
+        final int fontRequests = server.requests("/fonts/");
+        download(cache, "Noto Sans Georgian");
+        assertEquals(fontRequests, server.requests("/fonts/"));
+    }
+
+    @Test
+    void testRevalidationCostsOne304PerUrl() throws IOException, URISyntaxException, FontFormatException {
+        download(new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.CACHE_FIRST),
+                "Noto Sans Runic", "Noto Sans Hebrew");
+        final int requestsBefore = server.requests("/");
+
+        final List<Font> fonts = download(new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.REVALIDATE),
+                "Noto Sans Runic", "Noto Sans Hebrew");
+        assertEquals(2, fonts.size());
+        // one for the CSS, one for each font, all of them 304s
+        assertEquals(requestsBefore + 3, server.requests("/"));
+        assertEquals(3, server.notModified());
+    }
+
+    @Test
+    void testRevalidationPicksUpChanges() throws IOException, URISyntaxException, FontFormatException {
+        download(new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.CACHE_FIRST), "Noto Sans Runic");
+
+        server.replace("Noto Sans Runic", LocalFontServer.FAMILIES.get("Noto Sans Armenian"));
+        final List<Font> fonts = download(new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.REVALIDATE),
+                "Noto Sans Runic");
+        assertEquals(1, server.notModified());
+        assertTrue(fonts.getFirst().getFamily().startsWith("Noto Sans Armenian"));
+
+        // and the new version is what we've cached
+        final List<Font> offline = download(new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.OFFLINE),
+                "Noto Sans Runic");
+        assertTrue(offline.getFirst().getFamily().startsWith("Noto Sans Armenian"));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.test;
+
+import org.interlisp.graphics.FallbackFontStack;
+import org.interlisp.graphics.FontRegistry;
+import org.interlisp.graphics.FontSource;
+import org.interlisp.graphics.FontStack;
+import org.interlisp.unicode.XccsToUnicode;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFontRegistry {
+
+    static {
+        XccsToUnicode.init(new File(LocalFontServer.RESOURCES, "data"));
+    }
+
+    @Test
+    void testSharedMembersLoadOnce() throws IOException, URISyntaxException, FontFormatException {
+        try (final LocalFontServer server = new LocalFontServer()) {
+            final URI base = URI.create(server.baseUrl());
+            FontRegistry.getInstance(base).prefetch(List.of("Noto Sans Hebrew", "Noto Sans Runic", "Noto Sans Armenian"));
+            assertEquals(1, server.requests("/css2"));
+            assertEquals(3, server.requests("/fonts/"));
+
+            final FontStack first = new FontStack(base, "First", "Noto Sans Hebrew", "Noto Sans Runic");
+            final FontStack second = new FontStack(base, "Second", "Noto Sans Armenian", "Noto Sans Runic");
+            assertEquals(1, server.requests("/css2"));
+            assertEquals(3, server.requests("/fonts/"));
+            assertSame(first.getStack().get(1), second.getStack().get(1));
+
+            // a member nobody asked for yet costs one more request, for that member only
+            new FontStack(base, "Third", "Noto Sans Georgian", "Noto Sans Hebrew");
+            assertEquals(2, server.requests("/css2"));
+            assertEquals(4, server.requests("/fonts/"));
+        }
+    }
+
+    @Test
+    void testLoadingOneMemberDoesNotHoldUpOthers() throws Exception {
+        final CountDownLatch slowStarted = new CountDownLatch(1);
+        final CountDownLatch releaseSlow = new CountDownLatch(1);
+        final AtomicInteger slowLoads = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final FontSource source = names -> {
+            if (names.contains("Slow")) {
+                slowLoads.incrementAndGet();
+                slowStarted.countDown();
+                try {
+                    releaseSlow.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (names.contains("Flaky") && failures.getAndIncrement() == 0) {
+                throw new IOException("try again");
+            }
+            final Map<String, List<Font>> result = new HashMap<>();
+            for (String name : names) {
+                result.put(name, List.of(new Font(Font.SANS_SERIF, Font.PLAIN, 1)));
+            }
+            return result;
+        };
+        final FontRegistry registry = FontRegistry.getInstance(source);
+
+        try (final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final Future<List<Font>> first = executor.submit(() -> registry.get("Slow"));
+            slowStarted.await();
+            final Future<List<Font>> second = executor.submit(() -> registry.get("Slow"));
+            // another member loads while the slow one is still loading
+            assertEquals(1, executor.submit(() -> registry.get("Fast")).get(10, TimeUnit.SECONDS).size());
+            assertFalse(second.isDone());
+
+            releaseSlow.countDown();
+            assertSame(first.get().getFirst(), second.get().getFirst());
+            assertEquals(1, slowLoads.get());
+        }
+
+        // a failed load is forgotten, so the next try loads again
+        final IOException e = assertThrows(IOException.class, () -> registry.get("Flaky"));
+        assertEquals("try again", e.getMessage());
+        assertEquals(1, registry.get("Flaky").size());
+        assertEquals(2, failures.get());
+    }
+
+    @Test
+    void testFallbackSharesFonts() throws IOException, URISyntaxException, FontFormatException {
+        try (final LocalFontServer server = new LocalFontServer()) {
+            final URI base = URI.create(server.baseUrl());
+            final FontStack primary = new FontStack(base, "Primary", "Noto Sans Hebrew", "Noto Sans Runic");
+            final FontStack withFallback = new FallbackFontStack(primary, "Fallback", "Noto Sans Runic");
+            assertEquals(2, withFallback.getStack().size());
+            assertSame(primary.getStack().get(1), withFallback.getStack().get(0));
+            assertEquals(2, server.requests("/fonts/"));
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.test;
+
+import org.interlisp.graphics.*;
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.unicode.XccsToUnicode;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFontSources {
+
+    private static final File RESOURCES = new File("src/main/resources");
+
+    static {
+        XccsToUnicode.init(new File(RESOURCES, "data"));
+    }
+
+    @Test
+    void testLocalSourceFindsMembersByName() throws IOException {
+        final LocalFontSource source = new LocalFontSource(RESOURCES);
+        final Map<String, List<Font>> fonts =
+                source.load(List.of("Noto Sans", "Noto Sans Hebrew", "Noto Sans Symbols 2", "Noto Sans JP"));
+
+        // upright first
+        assertEquals(2, fonts.get("Noto Sans").size());
+        assertEquals("Noto Sans Regular", fonts.get("Noto Sans").getFirst().getFontName());
+        // found by PostScript name, since its family is "Noto Sans Hebrew Thin"
+        assertEquals(1, fonts.get("Noto Sans Hebrew").size());
+        assertEquals(1, fonts.get("Noto Sans Symbols 2").size());
+        // not staged
+        assertFalse(fonts.containsKey("Noto Sans JP"));
+    }
+
+    @Test
+    void testStackFromLocalSource() throws IOException, URISyntaxException, FontFormatException {
+        final LocalFontSource source = new LocalFontSource(RESOURCES);
+        final FontStack stack = new FontStack(source, "Local", "Noto Sans Mono", "Noto Sans Hebrew");
+        final FontStack fallback = new FallbackFontStack(stack, "Local Fallback", "Noto Sans Runic");
+        assertNull(stack.getBaseDownloadUri());
+        assertSame(stack.getStack().get(1), fallback.getStack().get(2));
+        assertNotNull(stack.isDisplayableBy('\u05D0'));
+    }
+
+    @Test
+    void testLazyStackLoadsMembersOnDemand() throws IOException, URISyntaxException, FontFormatException {
+        final FontRegistry registry = FontRegistry.getInstance(new LocalFontSource(RESOURCES));
+        final FontStack stack = FontStack.lazy(registry, "Lazy", "Noto Sans Runic", "Noto Sans Hebrew", "Noto Sans Armenian");
+        final FontStack fallback = new FallbackFontStack(stack, "Lazy Fallback", "Noto Sans Mono");
+        assertTrue(fallback.isLazy());
+        assertEquals(0, stack.getLoadedMemberCount());
+        assertTrue(stack.getStack().isEmpty());
+
+        // a Runic character needs only the first member
+        assertNotNull(stack.isDisplayableBy('\u16A0'));
+        assertEquals(1, stack.getLoadedMemberCount());
+        // a Hebrew one needs the second, but not the third
+        assertNotNull(stack.isDisplayableBy('\u05D0'));
+        assertEquals(2, stack.getLoadedMemberCount());
+        // a character nobody has loads them all
+        assertNull(stack.isDisplayableBy('\uE000'));
+        assertEquals(3, stack.getLoadedMemberCount());
+
+        // the fallback tries its own member first, then shares the fonts its fallback loaded
+        assertNotNull(fallback.isDisplayableBy('\u05D0'));
+        assertEquals(3, fallback.getLoadedMemberCount());
+        assertSame(stack.getStack().get(1), fallback.getStack().get(2));
+    }
+
+    @Test
+    void testCoverageAgreesWithCanDisplay() throws IOException, URISyntaxException, FontFormatException {
+        final LocalFontSource source = new LocalFontSource(RESOURCES);
+        final FontStack stack = new FontStack(source, "Local", "Noto Sans Mono", "Noto Sans Hebrew", "Noto Sans Runic");
+        final CoverageMap coverage = stack.getCoverage();
+        assertEquals(stack.getStack().size(), coverage.getFontCount());
+        for (int unicode : XccsToUnicode.getInstance().unicodeCharacters()) {
+            final char ch = (char)unicode;
+            assertTrue(coverage.isMapped(ch));
+            int expected = -1;
+            for (int i = 0; i < stack.getStack().size(); i++) {
+                final boolean canDisplay = stack.getStack().get(i).canDisplay(ch);
+                assertEquals(canDisplay, coverage.covers(i, ch));
+                if (canDisplay && expected < 0) {
+                    expected = i;
+                }
+            }
+            assertEquals(expected, stack.indexOfFontDisplaying(ch));
+        }
+    }
+
+    @Test
+    void testMultiSizeMetricsMatchSingleSize() throws IOException, URISyntaxException, FontFormatException {
+        final LocalFontSource source = new LocalFontSource(RESOURCES);
+        final FontStack stack = new FontStack(source, "Local", "Noto Sans Mono", "Noto Sans Hebrew");
+        final List<Integer> sizes = List.of(600, 1400);
+        final List<FontMetricsExtractor.FontMeasurements> measurements =
+                List.of(new FontMetricsExtractor.FontMeasurements(), new FontMetricsExtractor.FontMeasurements());
+        final List<CharsetWidthMatrix> matrices = stack.getCharsetWidthMatrices(sizes, Font.BOLD, measurements);
+
+        // measure every width again, rather than finding them all in the memo
+        stack.setWidthMemo(null);
+        for (int s = 0; s < sizes.size(); s++) {
+            final long glyphsBefore = stack.getMeasurementStats().getGlyphs();
+            final FontMetricsExtractor.FontMeasurements single = new FontMetricsExtractor.FontMeasurements();
+            final List<WebCharsetMetrics> metrics = stack.getAllCharsetMetrics(sizes.get(s), Font.BOLD, single);
+            assertTrue(stack.getMeasurementStats().getGlyphs() > glyphsBefore);
+            assertEquals(metrics.size(), matrices.size());
+            for (int c = 0; c < metrics.size(); c++) {
+                assertEquals(metrics.get(c).toString(), matrices.get(c).forSize(s).toString());
+                assertArrayEquals(metrics.get(c).widths(), matrices.get(c).widths()[s]);
+            }
+            assertEquals(single.toString(), measurements.get(s).toString());
+        }
+    }
+
+    @Test
+    void testParallelMetricsMatchSequential() throws IOException, URISyntaxException, FontFormatException {
+        final LocalFontSource source = new LocalFontSource(RESOURCES);
+        final FontStack stack = new FontStack(source, "Local", "Noto Sans Mono", "Noto Sans Hebrew", "Noto Sans Math");
+        stack.setWidthMemo(new WidthMemo());
+        final FontMetricsExtractor.FontMeasurements sequentialMeasurements = new FontMetricsExtractor.FontMeasurements();
+        final List<WebCharsetMetrics> sequential = stack.getAllCharsetMetrics(1000, Font.ITALIC, sequentialMeasurements);
+
+        // a fresh memo, so the parallel run measures everything the sequential one did
+        stack.setWidthMemo(new WidthMemo());
+        stack.setParallel(true);
+        final long glyphsBefore = stack.getMeasurementStats().getGlyphs();
+        final FontMetricsExtractor.FontMeasurements parallelMeasurements = new FontMetricsExtractor.FontMeasurements();
+        final List<WebCharsetMetrics> parallel = stack.getAllCharsetMetrics(1000, Font.ITALIC, parallelMeasurements);
+        assertTrue(stack.getMeasurementStats().getGlyphs() > glyphsBefore);
+
+        assertEquals(sequentialMeasurements.toString(), parallelMeasurements.toString());
+        assertEquals(sequential.size(), parallel.size());
+        for (int c = 0; c < sequential.size(); c++) {
+            assertEquals(sequential.get(c).toString(), parallel.get(c).toString());
+            assertArrayEquals(sequential.get(c).widths(), parallel.get(c).widths());
+        }
+    }
+
+    @Test
+    void testParallelVisitorGetsCharsetsInOrder() throws IOException, URISyntaxException, FontFormatException {
+        final LocalFontSource source = new LocalFontSource(RESOURCES);
+        final FontStack stack = new FontStack(source, "Local", "Noto Sans Mono", "Noto Sans Hebrew", "Noto Sans Math");
+        final List<Integer> sizes = List.of(800, 1600);
+        stack.setWidthMemo(new WidthMemo());
+        final List<FontMetricsExtractor.FontMeasurements> sequential =
+                List.of(new FontMetricsExtractor.FontMeasurements(), new FontMetricsExtractor.FontMeasurements());
+        final List<CharsetWidthMatrix> matrices = stack.getCharsetWidthMatrices(sizes, Font.PLAIN, sequential);
+
+        // a visitor that takes a size at a time, and so needs override nothing else
+        stack.setWidthMemo(new WidthMemo());
+        stack.setParallel(true);
+        final List<WebCharsetMetrics> visited = new ArrayList<>();
+        final List<List<FontMetricsExtractor.FontMeasurements>> ended = new ArrayList<>();
+        stack.visitCharsetMetrics(sizes, Font.PLAIN, new CharsetMetricsVisitor() {
+            @Override
+            public void visitCharset(int sizeIndex, WebCharsetMetrics metrics) {
+                assertEquals(visited.size() % sizes.size(), sizeIndex);
+                assertTrue(ended.isEmpty());
+                visited.add(metrics);
+            }
+
+            @Override
+            public void visitEnd(List<FontMetricsExtractor.FontMeasurements> measurements) {
+                ended.add(measurements);
+            }
+        });
+
+        assertEquals(matrices.size() * sizes.size(), visited.size());
+        for (int c = 0; c < matrices.size(); c++) {
+            for (int s = 0; s < sizes.size(); s++) {
+                final WebCharsetMetrics metrics = visited.get(c * sizes.size() + s);
+                assertEquals(stack.getResolutionPlan().charset(c), metrics.charset());
+                assertEquals(matrices.get(c).forSize(s).toString(), metrics.toString());
+            }
+        }
+        assertEquals(1, ended.size());
+        assertEquals(sequential.toString(), ended.get(0).toString());
+    }
+
+    @Test
+    void testFallbackReusesWidthsOfSharedFonts()throws IOException, URISyntaxException, FontFormatException {
+        final LocalFontSource source = new LocalFontSource(RESOURCES);
+        final FontStack stack = new FontStack(source, "Local", "Noto Sans Hebrew", "Noto Sans Armenian");
+        final FontStack fallback = new FallbackFontStack(stack, "Local Fallback", "Noto Sans Runic");
+        assertSame(stack.getWidthMemo(), fallback.getWidthMemo());
+        stack.getWidthMemo().clear();
+        stack.getAllCharsetMetrics(1200, Font.PLAIN, new FontMetricsExtractor.FontMeasurements());
+        final long measuredByStack = stack.getMeasurementStats().getGlyphs();
+        assertTrue(measuredByStack > 0);
+
+        final long hitsBefore = stack.getWidthMemo().getHits();
+        fallback.getAllCharsetMetrics(1200, Font.PLAIN, new FontMetricsExtractor.FontMeasurements());
+        // the fallback measures only what its own member displays, and reuses the rest
+        assertTrue(stack.getWidthMemo().getHits() > hitsBefore);
+        assertTrue(fallback.getMeasurementStats().getGlyphs() < measuredByStack);
+    }
+
+    @Test
+    void testCachedSourceServesOnlyWhatWasCached() throws IOException, URISyntaxException, FontFormatException {
+        final File cacheDir = Files.createTempDirectory("font-cache").toFile();
+        final URI base;
+        try (final LocalFontServer server = new LocalFontServer()) {
+            base = URI.create(server.baseUrl());
+            final FontCache cache = new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.CACHE_FIRST);
+            new WebFontDownloader(server.cssUrl("Noto Sans Runic", "Noto Sans Hebrew"), cache).getFonts();
+        }
+
+        final CachedFontSource source = new CachedFontSource(cacheDir, base);
+        final Map<String, List<Font>> fonts = source.load(List.of("Noto Sans Runic", "Noto Sans Hebrew"));
+        assertEquals(1, fonts.get("Noto Sans Runic").size());
+        assertEquals(1, fonts.get("Noto Sans Hebrew").size());
+        // a batch we never fetched, served from the document that asked for more
+        assertEquals(1, source.load(List.of("Noto Sans Hebrew")).get("Noto Sans Hebrew").size());
+        assertTrue(source.load(List.of("Noto Sans Armenian")).isEmpty());
+
+        // a member the cache doesn't have is reported, not silently left out
+        final FontStack stack = new FontStack(source, "Cached", "Noto Sans Runic", "Noto Sans Armenian");
+        assertEquals(List.of("Noto Sans Armenian"), stack.getMissingMembers());
+        assertTrue(stack.getRegistry().isMissing("Noto Sans Armenian"));
+        assertFalse(stack.getRegistry().isMissing("Noto Sans Runic"));
+    }
+
+    @Test
+    void testCachedSourceFindsAliasedMembers() throws IOException, URISyntaxException, FontFormatException {
+        final File cacheDir = Files.createTempDirectory("font-cache").toFile();
+        final URI base;
+        try (final LocalFontServer server = new LocalFontServer()) {
+            base = URI.create(server.baseUrl());
+            final FontCache cache = new FontCache(cacheDir, FontCache.DEFAULT_MAX_BYTES, FontCache.Mode.CACHE_FIRST);
+            // the service answers to "Noto Runic" with the family "Noto Sans Runic"
+            final Map<String, List<Font>> byFamily =
+                    new WebFontDownloader(server.cssUrl("Noto Sans Hebrew", "Noto Runic"), cache).getFontsByFamily();
+            assertEquals(List.of("Noto Sans Hebrew", "Noto Sans Runic"), List.copyOf(byFamily.keySet()));
+        }
+
+        // not the batch we fetched, so we find it in the document that asked for it, under its alias
+        final CachedFontSource source = new CachedFontSource(cacheDir, base);
+        final Map<String, List<Font>> fonts = source.load(List.of("Noto Runic"));
+        assertEquals(1, fonts.get("Noto Runic").size());
+        assertTrue(fonts.get("Noto Runic").getFirst().canDisplay('\u16A0'));
+
+        final FontStack stack = new FontStack(source, "Cached", "Noto Runic", "Noto Sans Hebrew");
+        assertTrue(stack.getMissingMembers().isEmpty());
+        assertEquals(2, stack.getStack().size());
+    }
+}
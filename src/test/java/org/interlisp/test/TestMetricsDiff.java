@@ -0,0 +1,206 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.test;
+
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.io.font.WebFontDescr;
+import org.interlisp.io.sexp.CanWriteSExp;
+import org.interlisp.io.sexp.SExpEmitter;
+import org.interlisp.tools.CharsetTableStore;
+import org.interlisp.tools.MetricsDiff;
+import org.interlisp.tools.WebMetricsWriter;
+import org.interlisp.unicode.XccsToUnicode;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMetricsDiff {
+
+    private static final File RESOURCES = new File("src/main/resources");
+
+    private static final String FONT = "NOTO-SANS-MONO-10-BOLD-REGULAR-REGULAR";
+
+    static {
+        XccsToUnicode.init(new File(RESOURCES, "data"));
+    }
+
+    private static void write(Path dir, String name, CanWriteSExp metrics) throws IOException {
+        final SExpEmitter emitter = new SExpEmitter();
+        WebMetricsWriter.writeMetricsFile(emitter, metrics);
+        Files.write(dir.resolve(name), emitter.toByteArray());
+    }
+
+    private static int[] widths() {
+        final int[] widths = new int[256];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = 500 + i;
+        }
+        return widths;
+    }
+
+    @Test
+    void testDiffFindsChangedValues() throws IOException {
+        final Path oldDir = Files.createTempDirectory("old");
+        final Path newDir = Files.createTempDirectory("new");
+        for (Path dir : List.of(oldDir, newDir)) {
+            write(dir, FONT + "-0.wcm", new WebCharsetMetrics(0, 12, 3, 15, widths()));
+        }
+        write(oldDir, FONT + "-33.wcm", new WebCharsetMetrics(0x21, 12, 3, 15, widths()));
+        final int[] changedWidths = widths();
+        changedWidths[1] += 7;
+        changedWidths[10] -= 2;
+        write(newDir, FONT + "-33.wcm", new WebCharsetMetrics(0x21, 13, 3, 16, changedWidths));
+        write(oldDir, FONT + "-34.wcm", new WebCharsetMetrics(0x22, 12, 3, 15, widths()));
+        write(newDir, FONT + "-35.wcm", new WebCharsetMetrics(0x23, 12, 3, 15, widths()));
+        write(oldDir, FONT + ".wfm", new WebFontDescr("Noto Sans Mono", 10, 15, Font.BOLD, 12, 3, 6, List.of(0, 0x21, 0x22)));
+        write(newDir, FONT + ".wfm", new WebFontDescr("Noto Sans Mono", 10, 15, Font.BOLD, 12, 3, 6, List.of(0, 0x21, 0x23)));
+
+        final MetricsDiff.Result result = new MetricsDiff(XccsToUnicode.getInstance()).diff(oldDir, newDir);
+        assertEquals(5, result.files().size());
+        assertEquals(1, result.count(MetricsDiff.Status.SAME));
+        assertEquals(2, result.count(MetricsDiff.Status.CHANGED));
+        assertEquals(1, result.count(MetricsDiff.Status.ADDED));
+        assertEquals(1, result.count(MetricsDiff.Status.REMOVED));
+
+        final MetricsDiff.FileDiff charset33 = result.files().get(1);
+        assertEquals(FONT + "-33.wcm", charset33.name());
+        assertEquals(2, charset33.changedWidths());
+        assertEquals(7, charset33.maxWidthDelta());
+        assertEquals(new MetricsDiff.Change("MAX-ASCENT", -1, -1, 12, 13), charset33.changes().get(0));
+        final int secondMember = XccsToUnicode.getInstance().charsetMembers(0x21).stream().skip(1).findFirst().orElseThrow();
+        assertEquals(new MetricsDiff.Change("XCCS-WIDTHS", 1, secondMember, 501, 508), charset33.changes().get(1));
+
+        final MetricsDiff.FileDiff font = result.files().get(4);
+        assertEquals(FONT + ".wfm", font.name());
+        assertEquals(List.of(new MetricsDiff.Change("CHARSETS", 0x22, -1, 1, 0),
+                new MetricsDiff.Change("CHARSETS", 0x23, -1, 0, 1)), font.changes());
+
+        final StringWriter report = new StringWriter();
+        result.writeReport(new PrintWriter(report));
+        final List<String> lines = report.toString().lines().toList();
+        // a header, 3 changes in charset 33, 2 in the font, and a line each for the added and removed files
+        assertEquals(1 + 3 + 2 + 2, lines.size());
+        assertTrue(lines.stream().allMatch(line -> line.split("\t", -1).length == 12), report.toString());
+        assertEquals(String.join("\t", FONT + "-33.wcm", "NOTO-SANS-MONO", "10", "BOLD", "REGULAR", "33", "CHANGED",
+                "XCCS-WIDTHS", "1", String.format("0x%04X", secondMember), "501", "508"), lines.get(2));
+
+        final StringWriter summary = new StringWriter();
+        result.writeSummary(new PrintWriter(summary), 5);
+        assertTrue(summary.toString().startsWith("Compared 5 files: 1 same, 2 changed, 1 added, 1 removed"),
+                summary.toString());
+    }
+
+    /**
+     * Write a font's metrics in the dedup layout, each charset table named by its digest.
+     */
+    private static void writeDedup(Path dir, WebFontDescr font, List<WebCharsetMetrics> charsets) throws IOException {
+        final List<String> digests = new ArrayList<>();
+        for (WebCharsetMetrics metrics : charsets) {
+            final SExpEmitter emitter = new SExpEmitter();
+            WebMetricsWriter.writeMetricsFile(emitter, metrics);
+            final String digest = CharsetTableStore.digest(ByteBuffer.wrap(emitter.toByteArray()));
+            digests.add(digest);
+            Files.write(dir.resolve(CharsetTableStore.fileName(digest)), emitter.toByteArray());
+        }
+        write(dir, FONT + ".wfm", new WebFontDescr(font.getName(), font.getSize(), font.getHeight(), font.getStyle(),
+                font.getMaxAscent(), font.getMaxDescent(), font.getSlugWidth(), font.getCharsets(), digests));
+    }
+
+    @Test
+    void testDiffComparesDedupTablesByCharset() throws IOException {
+        final WebFontDescr font = new WebFontDescr("Noto Sans Mono", 10, 15, Font.BOLD, 12, 3, 6, List.of(0, 0x21));
+        final List<WebCharsetMetrics> charsets = List.of(new WebCharsetMetrics(0, 12, 3, 15, widths()),
+                new WebCharsetMetrics(0x21, 12, 3, 15, widths()));
+        final Path filesDir = Files.createTempDirectory("files");
+        write(filesDir, FONT + ".wfm", font);
+        for (WebCharsetMetrics metrics : charsets) {
+            write(filesDir, FONT + "-" + metrics.charset() + ".wcm", metrics);
+        }
+        final Path oldDir = Files.createTempDirectory("old");
+        writeDedup(oldDir, font, charsets);
+
+        // the same metrics in either layout, under the same names
+        final MetricsDiff diff = new MetricsDiff(XccsToUnicode.getInstance());
+        final MetricsDiff.Result same = diff.diff(filesDir, oldDir);
+        assertEquals(List.of(FONT + "-0.wcm", FONT + "-33.wcm", FONT + ".wfm"),
+                same.files().stream().map(MetricsDiff.FileDiff::name).toList());
+        assertEquals(3, same.count(MetricsDiff.Status.SAME));
+
+        final int[] changedWidths = widths();
+        changedWidths[3] += 4;
+        final Path newDir = Files.createTempDirectory("new");
+        writeDedup(newDir, font, List.of(charsets.get(0), new WebCharsetMetrics(0x21, 12, 3, 15, changedWidths)));
+        final MetricsDiff.Result changed = diff.diff(oldDir, newDir);
+        assertEquals(3, changed.files().size());
+        assertEquals(2, changed.count(MetricsDiff.Status.SAME));
+        final MetricsDiff.FileDiff charset33 = changed.files().get(1);
+        assertEquals(FONT + "-33.wcm", charset33.name());
+        assertEquals(1, charset33.changedWidths());
+        assertEquals(4, charset33.maxWidthDelta());
+
+        // a font that names a table that isn't there
+        try (final Stream<Path> tables = Files.list(newDir)) {
+            for (Path table : tables.filter(file -> !file.getFileName().toString().equals(FONT + ".wfm")).toList()) {
+                Files.delete(table);
+            }
+        }
+        assertThrows(IOException.class, () -> diff.diff(oldDir, newDir));
+    }
+
+    private static void writeCombined(Path dir, WebFontDescr font, List<WebCharsetMetrics> charsets) throws IOException {
+        final SExpEmitter emitter = new SExpEmitter();
+        WebMetricsWriter.writeCombinedFile(emitter, font, charsets);
+        Files.write(dir.resolve(FONT + ".wfc"), emitter.toByteArray());
+    }
+
+    @Test
+    void testDiffComparesCombinedFilesByCharset() throws IOException {
+        final WebFontDescr font = new WebFontDescr("Noto Sans Mono", 10, 15, Font.BOLD, 12, 3, 6, List.of(0, 0x21));
+        final List<WebCharsetMetrics> charsets = List.of(new WebCharsetMetrics(0, 12, 3, 15, widths()),
+                new WebCharsetMetrics(0x21, 12, 3, 15, widths()));
+        final Path dedupDir = Files.createTempDirectory("dedup");
+        writeDedup(dedupDir, font, charsets);
+        final Path oldDir = Files.createTempDirectory("old");
+        writeCombined(oldDir, font, charsets);
+
+        // the same metrics in either layout, under the same names
+        final MetricsDiff diff = new MetricsDiff(XccsToUnicode.getInstance());
+        final MetricsDiff.Result same = diff.diff(dedupDir, oldDir);
+        assertEquals(List.of(FONT + "-0.wcm", FONT + "-33.wcm", FONT + ".wfm"),
+                same.files().stream().map(MetricsDiff.FileDiff::name).toList());
+        assertEquals(3, same.count(MetricsDiff.Status.SAME));
+
+        final int[] changedWidths = widths();
+        changedWidths[5] -= 3;
+        final Path newDir = Files.createTempDirectory("new");
+        writeCombined(newDir, new WebFontDescr("Noto Sans Mono", 10, 16, Font.BOLD, 12, 3, 6, List.of(0, 0x21)),
+                List.of(charsets.get(0), new WebCharsetMetrics(0x21, 12, 3, 15, changedWidths)));
+        final MetricsDiff.Result changed = diff.diff(oldDir, newDir);
+        assertEquals(1, changed.count(MetricsDiff.Status.SAME));
+        assertEquals(2, changed.count(MetricsDiff.Status.CHANGED));
+        final MetricsDiff.FileDiff charset33 = changed.files().get(1);
+        assertEquals(FONT + "-33.wcm", charset33.name());
+        assertEquals(1, charset33.changedWidths());
+        assertEquals(3, charset33.maxWidthDelta());
+        assertEquals(List.of(new MetricsDiff.Change("HEIGHT", -1, -1, 15, 16)), changed.files().get(2).changes());
+
+        // a font's metrics in a combined file and a font metrics file both
+        write(newDir, FONT + ".wfm", font);
+        assertThrows(IOException.class, () -> diff.diff(oldDir, newDir));
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.test;
+
+import org.interlisp.graphics.FallbackFontStack;
+import org.interlisp.graphics.FontStack;
+import org.interlisp.graphics.LocalFontSource;
+import org.interlisp.graphics.WidthStore;
+import org.interlisp.io.font.WebFontDescr;
+import org.interlisp.io.sexp.CanWriteSExp;
+import org.interlisp.io.sexp.SExpEmitter;
+import org.interlisp.tools.CharsetTableStore;
+import org.interlisp.tools.MetricsPipeline;
+import org.interlisp.tools.MetricsProcessor;
+import org.interlisp.tools.MetricsValidator;
+import org.interlisp.tools.WebMetricsReader;
+import org.interlisp.tools.WebMetricsWriter;
+import org.interlisp.unicode.XccsToUnicode;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMetricsPipeline {
+
+    private static final File RESOURCES = new File("src/main/resources");
+
+    private static final List<Integer> SIZES = List.of(8, 12);
+
+    static {
+        XccsToUnicode.init(new File(RESOURCES, "data"));
+    }
+
+    @Test
+    void testPipelineWritesWhatProcessorWrites() throws IOException, URISyntaxException, FontFormatException {
+        final LocalFontSource source = new LocalFontSource(RESOURCES);
+        final FontStack stack = new FontStack(source, "Local", "Noto Sans Mono", "Noto Sans Hebrew");
+        final FontStack fallback = new FallbackFontStack(stack, "Local Fallback", "Noto Sans Runic");
+
+        final File expectedDir = Files.createTempDirectory("processor").toFile();
+        new MetricsProcessor(expectedDir, stack, 100, SIZES).writeStackMetrics();
+        new MetricsProcessor(expectedDir, fallback, 100, SIZES).writeStackMetrics();
+
+        // measure again, rather than finding every width in the memo the stacks share
+        stack.getWidthMemo().clear();
+        final long glyphsBefore = stack.getMeasurementStats().getGlyphs();
+        final File actualDir = Files.createTempDirectory("pipeline").toFile();
+        new MetricsPipeline(actualDir, 100, SIZES, 1).run(List.of(() -> stack, () -> fallback));
+        assertEquals(glyphsBefore * 2, stack.getMeasurementStats().getGlyphs());
+
+        final String[] expectedNames = expectedDir.list();
+        assertNotNull(expectedNames);
+        assertEquals(expectedNames.length, actualDir.list().length);
+        for (String name : expectedNames) {
+            assertArrayEquals(Files.readAllBytes(new File(expectedDir, name).toPath()),
+                    Files.readAllBytes(new File(actualDir, name).toPath()), name);
+        }
+    }
+
+    @Test
+    void testPipelineKeepsWhatProcessorKeeps() throws IOException, URISyntaxException, FontFormatException {
+        final FontStack stack = new FontStack(new LocalFontSource(RESOURCES), "Local", "Noto Sans Mono", "Noto Sans Hebrew");
+        final WidthStore expected = new WidthStore(SIZES, XccsToUnicode.getInstance());
+        final MetricsProcessor processor = new MetricsProcessor(Files.createTempDirectory("processor").toFile(), stack,
+                100, SIZES);
+        processor.setWidthStore(expected);
+        processor.writeStackMetrics();
+
+        stack.getWidthMemo().clear();
+        final WidthStore actual = new WidthStore(SIZES, XccsToUnicode.getInstance());
+        final MetricsPipeline pipeline = new MetricsPipeline(Files.createTempDirectory("pipeline").toFile(), 100, SIZES);
+        pipeline.setWidthStore(actual);
+        pipeline.run(List.of(() -> stack));
+
+        assertEquals(1, actual.stackCount());
+        assertEquals(0, actual.stackIndex("Local"));
+        for (int sizeIndex = 0; sizeIndex < SIZES.size(); sizeIndex++) {
+            for (int style : new int[]{Font.PLAIN, Font.BOLD, Font.ITALIC, Font.BOLD + Font.ITALIC}) {
+                assertEquals(expected.getMeasurements(0, sizeIndex, style).toString(),
+                        actual.getMeasurements(0, sizeIndex, style).toString());
+                for (int charset : XccsToUnicode.getInstance().charsets()) {
+                    assertEquals(expected.get(0, sizeIndex, style, charset).toString(),
+                            actual.get(0, sizeIndex, style, charset).toString());
+                    assertArrayEquals(expected.get(0, sizeIndex, style, charset).widths(),
+                            actual.get(0, sizeIndex, style, charset).widths());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCombinedLayoutHoldsWhatFilesHold() throws IOException, URISyntaxException, FontFormatException {
+        final FontStack stack = new FontStack(new LocalFontSource(RESOURCES), "Local", "Noto Sans Mono");
+        final File filesDir = Files.createTempDirectory("files").toFile();
+        new MetricsProcessor(filesDir, stack, 100, SIZES).writeStackMetrics();
+
+        stack.getWidthMemo().clear();
+        final File combinedDir = Files.createTempDirectory("combined").toFile();
+        final MetricsProcessor processor = new MetricsProcessor(combinedDir, stack, 100, SIZES);
+        processor.setLayout(MetricsProcessor.Layout.COMBINED);
+        processor.writeStackMetrics();
+        stack.getWidthMemo().clear();
+        final File pipelineDir = Files.createTempDirectory("pipeline").toFile();
+        final MetricsPipeline pipeline = new MetricsPipeline(pipelineDir, 100, SIZES);
+        pipeline.setLayout(MetricsProcessor.Layout.COMBINED);
+        // the pipeline writes from a store it shares with us, the processor from its own
+        final WidthStore store = new WidthStore(SIZES, XccsToUnicode.getInstance());
+        pipeline.setWidthStore(store);
+        pipeline.run(List.of(() -> stack));
+        assertEquals(1, store.stackCount());
+
+        final String[] combinedNames = combinedDir.list();
+        assertNotNull(combinedNames);
+        // one file per size and style
+        assertEquals(SIZES.size() * 4, combinedNames.length);
+        for (String name : combinedNames) {
+            assertTrue(name.endsWith("." + MetricsProcessor.WEB_COMBINED_METRICS_EXT), name);
+            final byte[] combined = Files.readAllBytes(new File(combinedDir, name).toPath());
+            assertArrayEquals(combined, Files.readAllBytes(new File(pipelineDir, name).toPath()), name);
+
+            final String prefix = name.substring(0, name.length() - MetricsProcessor.WEB_COMBINED_METRICS_EXT.length() - 1);
+            final ByteBuffer contents = ByteBuffer.wrap(combined);
+            final WebMetricsReader.CombinedIndex index = WebMetricsReader.readCombinedIndex(contents);
+            assertEquals(XccsToUnicode.getInstance().charsets().size(), index.charsetCount());
+            assertArrayEquals(toBytes(WebMetricsReader.read(new File(filesDir, prefix + ".wfm").toPath())),
+                    toBytes(WebMetricsReader.readCombinedFont(contents, index)));
+            for (int charset : XccsToUnicode.getInstance().charsets()) {
+                assertArrayEquals(toBytes(WebMetricsReader.read(new File(filesDir, prefix + "-" + charset + ".wcm").toPath())),
+                        toBytes(WebMetricsReader.readCombinedCharset(contents, index, charset)), name + " " + charset);
+            }
+            final WebFontDescr descr = WebMetricsReader.readCombinedFont(contents, index);
+            assertArrayEquals(toBytes(store.get(0, SIZES.indexOf(descr.getSize()), descr.getStyle(), 0)),
+                    toBytes(WebMetricsReader.readCombinedCharset(contents, index, 0)), name);
+            assertNull(WebMetricsReader.readCombinedCharset(contents, index, 0x1FF));
+        }
+        assertTrue(new MetricsValidator().validate(combinedDir.toPath()).isValid());
+    }
+
+    @Test
+    void testDedupLayoutHoldsWhatFilesHold() throws IOException, URISyntaxException, FontFormatException {
+        final FontStack stack = new FontStack(new LocalFontSource(RESOURCES), "Local", "Noto Sans Mono");
+        final File filesDir = Files.createTempDirectory("files").toFile();
+        new MetricsProcessor(filesDir, stack, 100, SIZES).writeStackMetrics();
+
+        stack.getWidthMemo().clear();
+        final File dedupDir = Files.createTempDirectory("dedup").toFile();
+        final CharsetTableStore store = new CharsetTableStore();
+        final MetricsProcessor processor = new MetricsProcessor(dedupDir, stack, 100, SIZES);
+        processor.setLayout(MetricsProcessor.Layout.DEDUP);
+        processor.setTableStore(store);
+        processor.writeStackMetrics();
+        stack.getWidthMemo().clear();
+        final File pipelineDir = Files.createTempDirectory("pipeline").toFile();
+        final MetricsPipeline pipeline = new MetricsPipeline(pipelineDir, 100, SIZES);
+        pipeline.setLayout(MetricsProcessor.Layout.DEDUP);
+        pipeline.run(List.of(() -> stack));
+
+        final String[] dedupNames = dedupDir.list();
+        assertNotNull(dedupNames);
+        assertEquals(dedupNames.length, pipelineDir.list().length);
+        for (String name : dedupNames) {
+            assertArrayEquals(Files.readAllBytes(new File(dedupDir, name).toPath()),
+                    Files.readAllBytes(new File(pipelineDir, name).toPath()), name);
+        }
+
+        final int charsetCount = XccsToUnicode.getInstance().charsets().size();
+        // every table counted, but fewer written
+        assertEquals(SIZES.size() * 4L * charsetCount, store.getTables());
+        assertEquals(dedupNames.length - SIZES.size() * 4, store.getStoredTables());
+        assertTrue(store.getStoredTables() < store.getTables());
+        assertEquals(store.toString(), pipeline.getTableStore().toString());
+
+        for (String name : filesDir.list((dir, name) -> name.endsWith(".wfm"))) {
+            final WebFontDescr descr = (WebFontDescr) WebMetricsReader.read(new File(dedupDir, name).toPath());
+            assertEquals(charsetCount, descr.getCharsetDigests().size());
+            final String prefix = name.substring(0, name.length() - MetricsProcessor.WEB_FONT_METRICS_EXT.length() - 1);
+            int i = 0;
+            for (int charset : descr.getCharsets()) {
+                final byte[] table = Files.readAllBytes(new File(filesDir, prefix + "-" + charset + ".wcm").toPath());
+                final String digest = descr.getCharsetDigests().get(i++);
+                assertEquals(CharsetTableStore.digest(ByteBuffer.wrap(table)), digest);
+                assertArrayEquals(table, Files.readAllBytes(new File(dedupDir, CharsetTableStore.fileName(digest)).toPath()));
+            }
+            // the same font metrics, less the digests
+            final WebFontDescr plain = new WebFontDescr(descr.getName(), descr.getSize(), descr.getHeight(),
+                    descr.getStyle(), descr.getMaxAscent(), descr.getMaxDescent(), descr.getSlugWidth(),
+                    descr.getCharsets());
+            assertArrayEquals(Files.readAllBytes(new File(filesDir, name).toPath()), toBytes(plain));
+        }
+        assertTrue(new MetricsValidator().validate(dedupDir.toPath()).isValid());
+    }
+
+    private static byte[] toBytes(CanWriteSExp metrics) {
+        final SExpEmitter emitter = new SExpEmitter();
+        WebMetricsWriter.writeMetricsFile(emitter, metrics);
+        return emitter.toByteArray();
+    }
+
+    @Test
+    void testPipelineReportsFailedStage() throws IOException {
+        final File dir = Files.createTempDirectory("pipeline").toFile();
+        final Callable<FontStack> failing = () -> {
+            throw new IOException("no fonts today");
+        };
+        final IOException e = assertThrows(IOException.class,
+                () -> new MetricsPipeline(dir, 100, SIZES).run(List.of(failing)));
+        assertEquals("no fonts today", e.getMessage());
+    }
+}
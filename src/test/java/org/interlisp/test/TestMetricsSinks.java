@@ -0,0 +1,155 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.test;
+
+import org.interlisp.graphics.FontStack;
+import org.interlisp.graphics.LocalFontSource;
+import org.interlisp.tools.MetricsPipeline;
+import org.interlisp.tools.MetricsProcessor;
+import org.interlisp.tools.MetricsSink;
+import org.interlisp.unicode.XccsToUnicode;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMetricsSinks {
+
+    private static final File RESOURCES = new File("src/main/resources");
+
+    static {
+        XccsToUnicode.init(new File(RESOURCES, "data"));
+    }
+
+    private static final Map<String, byte[]> FILES = new LinkedHashMap<>();
+
+    static {
+        FILES.put("empty.wcm", new byte[0]);
+        FILES.put("one-block.wcm", new byte[512]);
+        FILES.put("hello.wfm", "(:FORMAT 2 )(:NAME HELLO )\n".getBytes(StandardCharsets.US_ASCII));
+        final byte[] big = new byte[70000];
+        Arrays.fill(big, (byte) '7');
+        FILES.put("big.wcm", big);
+    }
+
+    private static void writeAll(MetricsSink sink) throws IOException {
+        for (Map.Entry<String, byte[]> file : FILES.entrySet()) {
+            // the sink should consume the buffer from its position, not from 0
+            final ByteBuffer content = ByteBuffer.allocateDirect(file.getValue().length + 3);
+            content.put(new byte[]{9, 9, 9}).put(file.getValue()).flip().position(3);
+            sink.write(file.getKey(), content);
+            assertFalse(content.hasRemaining());
+        }
+    }
+
+    private static Map<String, byte[]> readZip(byte[] zip) throws IOException {
+        final Map<String, byte[]> result = new LinkedHashMap<>();
+        try (final ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                result.put(entry.getName(), in.readAllBytes());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read a tar archive the hard way, checking each header's checksum.
+     */
+    private static Map<String, byte[]> readTarGz(byte[] tgz) throws IOException {
+        final Map<String, byte[]> result = new LinkedHashMap<>();
+        try (final InputStream in = new GZIPInputStream(new ByteArrayInputStream(tgz))) {
+            while (true) {
+                final byte[] header = in.readNBytes(512);
+                assertEquals(512, header.length);
+                if (header[0] == 0) {
+                    // the end: two empty blocks
+                    assertArrayEquals(new byte[512], header);
+                    assertArrayEquals(new byte[512], in.readNBytes(512));
+                    assertEquals(-1, in.read());
+                    return result;
+                }
+                assertEquals("ustar", new String(header, 257, 5, StandardCharsets.US_ASCII));
+                assertEquals('0', header[156]);
+                final long checksum = Long.parseLong(new String(header, 148, 6, StandardCharsets.US_ASCII), 8);
+                Arrays.fill(header, 148, 156, (byte) ' ');
+                long sum = 0;
+                for (byte b : header) {
+                    sum += b & 0xFF;
+                }
+                assertEquals(sum, checksum);
+                int nameLength = 0;
+                while (nameLength < 100 && header[nameLength] != 0) {
+                    nameLength++;
+                }
+                final String name = new String(header, 0, nameLength, StandardCharsets.UTF_8);
+                final int size = Integer.parseInt(new String(header, 124, 11, StandardCharsets.US_ASCII), 8);
+                result.put(name, in.readNBytes(size));
+                in.readNBytes((512 - size % 512) % 512);
+            }
+        }
+    }
+
+    @Test
+    void testArchivesHoldWhatWasWritten() throws IOException {
+        final ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (final MetricsSink sink = MetricsSink.archive(zip, MetricsSink.Format.ZIP)) {
+            writeAll(sink);
+        }
+        final ByteArrayOutputStream tgz = new ByteArrayOutputStream();
+        try (final MetricsSink sink = MetricsSink.archive(tgz, MetricsSink.Format.TGZ)) {
+            writeAll(sink);
+        }
+        for (Map<String, byte[]> archived : List.of(readZip(zip.toByteArray()), readTarGz(tgz.toByteArray()))) {
+            assertEquals(FILES.keySet(), archived.keySet());
+            for (String name : FILES.keySet()) {
+                assertArrayEquals(FILES.get(name), archived.get(name), name);
+            }
+        }
+
+        assertEquals(MetricsSink.Format.ZIP, MetricsSink.Format.forName("metrics.ZIP"));
+        assertEquals(MetricsSink.Format.TGZ, MetricsSink.Format.forName("metrics.tar.gz"));
+        assertThrows(IOException.class, () -> MetricsSink.archive(new ByteArrayOutputStream(), MetricsSink.Format.TGZ)
+                .write("x".repeat(101), ByteBuffer.allocate(1)));
+    }
+
+    @Test
+    void testArchiveHoldsWhatDirectoryHolds() throws IOException, URISyntaxException, FontFormatException {
+        final List<Integer> sizes = List.of(10);
+        final FontStack stack = new FontStack(new LocalFontSource(RESOURCES), "Local", "Noto Sans Mono");
+        final File dir = Files.createTempDirectory("files").toFile();
+        new MetricsProcessor(dir, stack, 100, sizes).writeStackMetrics();
+
+        stack.getWidthMemo().clear();
+        final ByteArrayOutputStream tgz = new ByteArrayOutputStream();
+        try (final MetricsSink sink = MetricsSink.archive(tgz, MetricsSink.Format.TGZ)) {
+            new MetricsPipeline(sink, 100, sizes, 1).run(List.of(() -> stack));
+        }
+        final Map<String, byte[]> archived = readTarGz(tgz.toByteArray());
+        final String[] names = dir.list();
+        assertNotNull(names);
+        assertEquals(names.length, archived.size());
+        for (String name : names) {
+            assertArrayEquals(Files.readAllBytes(new File(dir, name).toPath()), archived.get(name), name);
+        }
+    }
+}
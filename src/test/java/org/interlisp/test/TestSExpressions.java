@@ -5,17 +5,29 @@
  */
 package org.interlisp.test;
 
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.io.font.WebFontDescr;
+import org.interlisp.io.sexp.CanWriteSExp;
 import org.interlisp.io.sexp.LispList;
+import org.interlisp.io.sexp.SExpEmitter;
 import org.interlisp.io.sexp.SExpression;
+import org.interlisp.tools.WebMetricsWriter;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.awt.*;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import static org.interlisp.io.sexp.LispNum.num;
+import static org.interlisp.io.sexp.LispString.str;
 import static org.interlisp.io.sexp.Litatom.atom;
 
 public class TestSExpressions {
@@ -53,4 +65,66 @@ public class TestSExpressions {
         writer.flush();
     }
 
+    @Test
+    void testIntVectorWritesWhatAListOfNumbersWrites() throws IOException {
+        final Random random = new Random(42);
+        for (int length : new int[]{0, 1, 84, 85, 86, 256, 1000}) {
+            final int[] ints = new int[length];
+            for (int i = 0; i < length; i++) {
+                ints[i] = i % 5 == 0 ? random.nextInt() : random.nextInt(2000) - 1000;
+            }
+            if (length > 2) {
+                ints[0] = Integer.MIN_VALUE;
+                ints[1] = Integer.MAX_VALUE;
+            }
+            final LispList boxed = new LispList();
+            Arrays.stream(ints).forEach(i -> boxed.add(num(i)));
+            final StringWriter expected = new StringWriter();
+            boxed.write(expected);
+
+            final StringWriter actual = new StringWriter();
+            LispList.list(ints).write(actual);
+            Assertions.assertEquals(expected.toString(), actual.toString());
+
+            final StringWriter fromCollection = new StringWriter();
+            LispList.list(Arrays.stream(ints).boxed().toList()).write(fromCollection);
+            Assertions.assertEquals(expected.toString(), fromCollection.toString());
+        }
+    }
+
+    @Test
+    void testEmitterWritesWhatTheTreeWrites() throws IOException {
+        final int[] widths = new int[256];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = (i * 7919) % 2000 - 3;
+        }
+        widths[1] = Integer.MIN_VALUE;
+        widths[2] = Integer.MAX_VALUE;
+        final List<CanWriteSExp> all = List.of(
+                new WebCharsetMetrics(0x21, 12, -4, 16, widths),
+                new WebCharsetMetrics(0, 0, 0, 0, new int[0]),
+                new WebFontDescr("Noto Sans Mono", 10, 14, Font.BOLD | Font.ITALIC, 11, 3, 6, List.of(0, 0x21, 0xEF)),
+                new WebFontDescr("Noto Serif", 92, 120, Font.PLAIN, 90, 30, 46, List.of()));
+        final SExpEmitter emitter = new SExpEmitter(16);
+        for (CanWriteSExp metrics : all) {
+            final StringWriter expected = new StringWriter();
+            new WebMetricsWriter(expected, metrics).writeMetricsFile();
+            WebMetricsWriter.writeMetricsFile(emitter.reset(), metrics);
+            Assertions.assertEquals(expected.toString(), emitter.toString());
+            Assertions.assertArrayEquals(expected.toString().getBytes(StandardCharsets.UTF_8), emitter.toByteArray());
+        }
+    }
+
+    @Test
+    void testEmitterEscapesStringsLikeTheTree() throws IOException {
+        final String str = "say \"h\u00e9llo\" \u2603 \ud83d\ude00";
+        final StringWriter expected = new StringWriter();
+        new LispList(str(str), atom(":\u00e9"), num(-17)).write(expected);
+        final SExpEmitter emitter = new SExpEmitter();
+        emitter.beginList().string(str).atom(":\u00e9").num(-17).endList();
+        Assertions.assertEquals(expected.toString(), emitter.toString());
+        Assertions.assertArrayEquals(expected.toString().getBytes(StandardCharsets.UTF_8), emitter.toByteArray());
+        Assertions.assertThrows(IllegalStateException.class, emitter::endList);
+    }
+
 }
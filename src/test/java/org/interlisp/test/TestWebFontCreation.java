@@ -70,6 +70,18 @@ public class TestWebFontCreation {
         testDownloading(TWO_FAMILY_CSS_URL, 2);
     }
 
+    @Test
+    void testConcurrentDownloadsKeepCssOrder() throws IOException, URISyntaxException, FontFormatException {
+        try (final LocalFontServer server = new LocalFontServer()) {
+            final String[] families = LocalFontServer.FAMILIES.keySet().toArray(new String[0]);
+            final List<Font> fonts = new WebFontDownloader(server.cssUrl(families), null, 4).getFonts();
+            Assertions.assertEquals(families.length, fonts.size());
+            for (int i = 0; i < families.length; i++) {
+                Assertions.assertTrue(fonts.get(i).getFamily().startsWith(families[i]));
+            }
+        }
+    }
+
     @Test
     void testDownloadingFromFourFontCss() throws IOException, URISyntaxException, FontFormatException {
         testDownloading(FOUR_FAMILY_CSS_URL, 4);
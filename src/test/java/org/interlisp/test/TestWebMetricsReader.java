@@ -0,0 +1,104 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.test;
+
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.io.font.WebFontDescr;
+import org.interlisp.io.sexp.CanWriteSExp;
+import org.interlisp.io.sexp.SExpEmitter;
+import org.interlisp.tools.MetricsValidator;
+import org.interlisp.tools.WebMetricsReader;
+import org.interlisp.tools.WebMetricsWriter;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestWebMetricsReader {
+
+    private static byte[] bytes(CanWriteSExp metrics) {
+        final SExpEmitter emitter = new SExpEmitter();
+        WebMetricsWriter.writeMetricsFile(emitter, metrics);
+        return emitter.toByteArray();
+    }
+
+    private static WebCharsetMetrics charsetMetrics(int charset) {
+        final int[] widths = new int[256];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = (i * 31 + charset) % 1700;
+        }
+        widths[255] = -1;
+        return new WebCharsetMetrics(charset, 14, -3, 11, widths);
+    }
+
+    @Test
+    void testReadsWhatWeWrite() throws IOException {
+        final WebCharsetMetrics charsetMetrics = charsetMetrics(0x21);
+        final WebCharsetMetrics read = WebMetricsReader.readCharsetMetrics(ByteBuffer.wrap(bytes(charsetMetrics)));
+        assertEquals(charsetMetrics.charset(), read.charset());
+        assertEquals(charsetMetrics.maxAscent(), read.maxAscent());
+        assertEquals(charsetMetrics.maxDescent(), read.maxDescent());
+        assertEquals(11, read.maxHeight());
+        assertArrayEquals(charsetMetrics.widths(), read.widths());
+
+        final WebFontDescr descr = new WebFontDescr("Noto Sans Mono", 10, 14, Font.BOLD | Font.ITALIC, 11, 3, 6,
+                List.of(0, 0x21, 0xEF));
+        final WebFontDescr readDescr = WebMetricsReader.readFontDescr(ByteBuffer.wrap(bytes(descr)));
+        assertEquals("NOTO-SANS-MONO", readDescr.getName());
+        assertEquals(Font.BOLD | Font.ITALIC, readDescr.getStyle());
+        assertEquals(descr.getSize(), readDescr.getSize());
+        assertEquals(descr.getHeight(), readDescr.getHeight());
+        assertEquals(descr.getSlugWidth(), readDescr.getSlugWidth());
+        assertEquals(descr.getCharsets(), readDescr.getCharsets());
+        assertArrayEquals(bytes(descr), bytes(readDescr));
+
+        assertThrows(IOException.class, () -> WebMetricsReader.readFontDescr(ByteBuffer.wrap(bytes(charsetMetrics))));
+    }
+
+    @Test
+    void testRejectsMalformedFiles() {
+        for (String bad : List.of("", "(:FORMAT 1 )(:CHARSET 0 )", "(:FORMAT 2 )(:CHARSET 0 :MAX-ASCENT 1 )",
+                "(:FORMAT 2 )(:CHARSET 0 :MAX-ASCENT 1 :MAX-DESCENT 2 :XCCS-WIDTHS (1 2 x ) )",
+                "(:FORMAT 2 )(:CHARSET 99999999999 )", "(:FORMAT 2 )(:CHARSET 0 :MAX-ASCENT 1 :MAX-DESCENT 2 " +
+                        ":XCCS-WIDTHS (1 2 ) )(", "(:FORMAT 2 )(:NAME \"unterminated")) {
+            assertThrows(IOException.class,
+                    () -> WebMetricsReader.read(ByteBuffer.wrap(bad.getBytes(StandardCharsets.US_ASCII))), bad);
+        }
+    }
+
+    @Test
+    void testValidatorFindsBadFiles() throws IOException {
+        final Path dir = Files.createTempDirectory("metrics");
+        for (int charset = 0; charset < 40; charset++) {
+            Files.write(dir.resolve("NOTO-SANS-10-MEDIUM-REGULAR-REGULAR-" + charset + ".wcm"),
+                    bytes(charsetMetrics(charset)));
+        }
+        Files.write(dir.resolve("NOTO-SANS-10-MEDIUM-REGULAR-REGULAR.wfm"),
+                bytes(new WebFontDescr("Noto Sans", 10, 14, Font.PLAIN, 11, 3, 6, List.of(0, 1, 2))));
+        Files.writeString(dir.resolve("README.txt"), "not metrics");
+
+        final MetricsValidator.Result result = new MetricsValidator().validate(dir);
+        assertTrue(result.isValid(), result.failures().toString());
+        assertEquals(40, result.charsetFiles());
+        assertEquals(1, result.fontFiles());
+
+        // the same metrics, spaced differently, read fine but don't write back the same
+        Files.writeString(dir.resolve("NOTO-SANS-10-MEDIUM-REGULAR-REGULAR-1.wcm"),
+                "(:FORMAT 2)(:CHARSET 1 :MAX-ASCENT 14 :MAX-DESCENT -3 :XCCS-WIDTHS (1 2))");
+        Files.writeString(dir.resolve("NOTO-SANS-10-MEDIUM-REGULAR-REGULAR-2.wcm"), "(:FORMAT 2 )(:CHARSET");
+        final MetricsValidator.Result broken = new MetricsValidator().validate(dir);
+        assertEquals(2, broken.failures().size());
+        assertTrue(broken.failures().get(0).startsWith("NOTO-SANS-10-MEDIUM-REGULAR-REGULAR-1.wcm"));
+        assertTrue(broken.failures().get(1).startsWith("NOTO-SANS-10-MEDIUM-REGULAR-REGULAR-2.wcm"));
+    }
+}
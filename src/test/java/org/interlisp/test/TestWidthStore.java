@@ -0,0 +1,75 @@
+/*
+ *
+ * Copyright 2025 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package org.interlisp.test;
+
+import org.interlisp.graphics.FontMetricsExtractor;
+import org.interlisp.graphics.FontStack;
+import org.interlisp.graphics.LocalFontSource;
+import org.interlisp.graphics.WidthStore;
+import org.interlisp.io.font.WebCharsetMetrics;
+import org.interlisp.unicode.XccsToUnicode;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestWidthStore {
+
+    private static final File RESOURCES = new File("src/main/resources");
+
+    static {
+        XccsToUnicode.init(new File(RESOURCES, "data"));
+    }
+
+    @Test
+    void testStoreGivesBackWhatWasMeasured() throws IOException, URISyntaxException, FontFormatException {
+        final XccsToUnicode xccsToUnicode = XccsToUnicode.getInstance();
+        final List<Integer> sizes = List.of(1000, 2400);
+        final FontStack stack = new FontStack(new LocalFontSource(RESOURCES), "Local", "Noto Sans Mono", "Noto Sans Hebrew");
+        final WidthStore store = new WidthStore(sizes, xccsToUnicode);
+        final int index = store.addStack(stack.getFamilyName());
+        assertEquals(index, store.stackIndex("Local"));
+        assertNull(store.get(index, 0, Font.BOLD, 0));
+
+        stack.visitCharsetMetrics(sizes, Font.BOLD, store.recorder(index, Font.BOLD));
+
+        for (int sizeIndex = 0; sizeIndex < sizes.size(); sizeIndex++) {
+            final FontMetricsExtractor.FontMeasurements measurements = new FontMetricsExtractor.FontMeasurements();
+            final List<WebCharsetMetrics> expected = stack.getAllCharsetMetrics(sizes.get(sizeIndex), Font.BOLD, measurements);
+            assertEquals(measurements.toString(), store.getMeasurements(index, sizeIndex, Font.BOLD).toString());
+            for (WebCharsetMetrics metrics : expected) {
+                final WebCharsetMetrics stored = store.get(index, sizeIndex, Font.BOLD, metrics.charset());
+                assertEquals(metrics.toString(), stored.toString());
+                assertArrayEquals(metrics.widths(), stored.widths());
+                // look widths up by character code, too
+                int rank = 0;
+                for (int xccsChar : xccsToUnicode.charsetMembers(metrics.charset())) {
+                    assertEquals(metrics.widths()[rank++], store.width(index, sizeIndex, Font.BOLD, metrics.charset(),
+                            XccsToUnicode.charCode(xccsChar)));
+                }
+            }
+        }
+        assertNull(store.getMeasurements(index, 0, Font.PLAIN));
+    }
+
+    @Test
+    void testWidthsTooBigForCharsOverflow() {
+        final WidthStore store = new WidthStore(List.of(9200), XccsToUnicode.getInstance());
+        final int index = store.addStack("Huge");
+        final int[] widths = new int[256];
+        widths[0] = 70000;
+        widths[1] = Character.MAX_VALUE;
+        widths[2] = Character.MAX_VALUE - 1;
+        store.put(index, 0, Font.PLAIN, new WebCharsetMetrics(0, 1, 2, 3, widths));
+        assertArrayEquals(widths, store.get(index, 0, Font.PLAIN, 0).widths());
+        assertTrue(store.estimatedBytes() > 0);
+    }
+}
@@ -5,7 +5,9 @@
  */
 package org.interlisp.test;
 
+import org.interlisp.graphics.DerivedFontPool;
 import org.interlisp.graphics.FontMetricsExtractor;
+import org.interlisp.graphics.HeadlessFontMetrics;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -14,7 +16,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class TestWidths {
 
@@ -59,4 +61,84 @@ public class TestWidths {
         checkWidths(notoSansMono);
         checkWidths(notoSerif);
     }
+
+    @Test
+    void testMetricsCacheIsIdentityKeyedAndBounded() {
+        final FontMetricsExtractor extractor = new FontMetricsExtractor(1);
+        final Font font = new Font(Font.SERIF, Font.PLAIN, POINT_SIZE);
+        final FontMetrics metrics = extractor.fromFont(font);
+        assertSame(metrics, extractor.fromFont(font));
+        assertEquals(1, extractor.getCacheHits());
+        assertEquals(1, extractor.getCacheMisses());
+
+        // an equal font is still a different font
+        final Font equalFont = new Font(Font.SERIF, Font.PLAIN, POINT_SIZE);
+        assertEquals(font, equalFont);
+        extractor.fromFont(equalFont);
+        assertEquals(2, extractor.getCacheMisses());
+
+        // and there's room for only one
+        extractor.fromFont(font);
+        assertEquals(3, extractor.getCacheMisses());
+        assertEquals(1, extractor.getCacheHits());
+    }
+
+    @Test
+    void testDerivedFontPoolSharesAndEvicts() {
+        final Font base = new Font(Font.SERIF, Font.PLAIN, 1);
+        final DerivedFontPool pool = new DerivedFontPool(1);
+        final Font derived = pool.derive(base, Font.BOLD, 1000f);
+        assertEquals(1000f, derived.getSize2D());
+        assertTrue(derived.isBold());
+        assertSame(derived, pool.derive(base, Font.BOLD, 1000f));
+        assertEquals(1, pool.getHits());
+
+        // the budget is too small for two
+        pool.derive(base, Font.ITALIC, 1000f);
+        assertEquals(1, pool.size());
+        assertEquals(1, pool.getEvictions());
+        assertNotSame(derived, pool.derive(base, Font.BOLD, 1000f));
+        assertEquals(3, pool.getMisses());
+    }
+
+    @Test
+    void testHeadlessMetricsMatchGraphics() throws IOException, FontFormatException {
+        final File[] fontFiles = new File(RESOURCES, "Noto Sans").listFiles((dir, name) -> name.endsWith(".ttf"));
+        assertNotNull(fontFiles);
+        final FontMetricsExtractor headless = FontMetricsExtractor.headless();
+        for (File fontFile : fontFiles) {
+            for (Font base : Font.createFonts(fontFile)) {
+                for (int style : new int[]{Font.PLAIN, Font.BOLD, Font.ITALIC, Font.BOLD + Font.ITALIC}) {
+                    for (float size : new float[]{600f, 1000f, 9200f}) {
+                        final Font font = base.deriveFont(style, size);
+                        final FontMetrics expected = fme.fromFont(font);
+                        final FontMetrics actual = headless.fromFont(font);
+                        assertInstanceOf(HeadlessFontMetrics.class, actual);
+                        assertEquals(expected.getAscent(), actual.getAscent());
+                        assertEquals(expected.getDescent(), actual.getDescent());
+                        assertEquals(expected.getHeight(), actual.getHeight());
+                        assertEquals(expected.stringWidth(SAMPLE), actual.stringWidth(SAMPLE));
+                        for (char ch = 0; ch < 0x2500; ch++) {
+                            if (font.canDisplay(ch)) {
+                                assertEquals(expected.charWidth(ch), actual.charWidth(ch));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testBatchWidthsMatchSingleWidths() throws IOException, FontFormatException {
+        final Font font = Font.createFonts(new File(RESOURCES, "Noto Sans/NotoSans-VariableFont_wdth,wght.ttf"))[0].deriveFont(Font.BOLD, 1400f);
+        final HeadlessFontMetrics metrics = new HeadlessFontMetrics(font);
+        final char[] chars = SAMPLE.toCharArray();
+        final int[] widths = new int[chars.length];
+        metrics.charWidths(chars, chars.length - 1, widths);
+        for (int i = 0; i < chars.length - 1; i++) {
+            assertEquals(metrics.charWidth(chars[i]), widths[i]);
+        }
+        assertEquals(0, widths[chars.length - 1]);
+    }
 }